@@ -1,9 +1,16 @@
 truncate user;
 truncate role;
+truncate role_closure;
 truncate op_log;
+truncate login_session;
+truncate login_session_event;
+truncate token_revocation;
 
 insert into user (id, username, nickname, hashed_password, status, role_id, created_at, updated_at, remark)
 values (1, 'wxj', '吴仙杰', '$2a$10$5.HAUrgWzzz6Vkju4X/guOFcVIqPr0c/HFHXBX6QilZTYf38SlK72', 1, 1, now(), now(), null);
 
 insert into role (id, name, authorities, parent_id, parent_name, full_path, created_at, updated_at, remark)
 values (1, '超级管理员', 'root', null, null, '1', now(), now(), null);
+
+insert into role_closure (ancestor, descendant, depth)
+values (1, 1, 0);
@@ -17,6 +17,39 @@
 SET NAMES utf8mb4;
 SET FOREIGN_KEY_CHECKS = 0;
 
+-- ----------------------------
+-- Table structure for login_session
+-- ----------------------------
+DROP TABLE IF EXISTS `login_session`;
+CREATE TABLE `login_session` (
+  `username` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL,
+  `user_id` int unsigned DEFAULT NULL,
+  `nickname` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci DEFAULT NULL,
+  `status` tinyint DEFAULT NULL,
+  `role_id` int unsigned DEFAULT NULL,
+  `authorities` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci DEFAULT NULL,
+  `access_token_digest` binary(32) DEFAULT NULL,
+  `refresh_token_digest` binary(32) DEFAULT NULL,
+  `expires_at` bigint NOT NULL,
+  PRIMARY KEY (`username`) USING BTREE,
+  KEY `idx_user_id` (`user_id`) USING BTREE,
+  KEY `idx_role_id` (`role_id`) USING BTREE,
+  KEY `idx_expires_at` (`expires_at`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=DYNAMIC;
+
+-- ----------------------------
+-- Table structure for login_session_event
+-- ----------------------------
+DROP TABLE IF EXISTS `login_session_event`;
+CREATE TABLE `login_session_event` (
+  `id` bigint unsigned NOT NULL AUTO_INCREMENT,
+  `username` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL,
+  `node_id` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL,
+  `created_at` bigint NOT NULL,
+  PRIMARY KEY (`id`) USING BTREE,
+  KEY `idx_created_at` (`created_at`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=DYNAMIC;
+
 -- ----------------------------
 -- Table structure for op_log
 -- ----------------------------
@@ -47,6 +80,31 @@ CREATE TABLE `role` (
   PRIMARY KEY (`id`) USING BTREE
 ) ENGINE=InnoDB AUTO_INCREMENT=2 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=DYNAMIC;
 
+-- ----------------------------
+-- Table structure for role_closure
+-- ----------------------------
+DROP TABLE IF EXISTS `role_closure`;
+CREATE TABLE `role_closure` (
+  `ancestor` int unsigned NOT NULL,
+  `descendant` int unsigned NOT NULL,
+  `depth` int unsigned NOT NULL,
+  PRIMARY KEY (`ancestor`,`descendant`) USING BTREE,
+  KEY `idx_descendant` (`descendant`,`depth`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=DYNAMIC;
+
+-- ----------------------------
+-- Table structure for token_revocation
+-- ----------------------------
+DROP TABLE IF EXISTS `token_revocation`;
+CREATE TABLE `token_revocation` (
+  `id` bigint unsigned NOT NULL AUTO_INCREMENT,
+  `subject` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL,
+  `revoked_at` bigint NOT NULL,
+  `expires_at` bigint NOT NULL,
+  PRIMARY KEY (`id`) USING BTREE,
+  KEY `idx_expires_at` (`expires_at`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=DYNAMIC;
+
 -- ----------------------------
 -- Table structure for user
 -- ----------------------------
@@ -61,7 +119,8 @@ CREATE TABLE `user` (
   `created_at` datetime DEFAULT NULL,
   `updated_at` datetime DEFAULT NULL,
   `remark` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci DEFAULT NULL,
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  KEY `idx_role_id` (`role_id`) USING BTREE
 ) ENGINE=InnoDB AUTO_INCREMENT=2 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=DYNAMIC;
 
 SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,49 @@
+/*
+ 升级脚本：新增角色闭包表 role_closure，并由 role.parent_id 回填
+
+ 适用于尚无 role_closure 表或未回填数据的旧库，可重复执行；新库直接使用 wxj_demo_structure.sql 即可。
+ 未回填时，判断是否存在下级角色及按角色查询用户均依赖该表，将无法查到任何数据。
+*/
+
+SET NAMES utf8mb4;
+
+-- ----------------------------
+-- Table structure for role_closure
+-- ----------------------------
+CREATE TABLE IF NOT EXISTS `role_closure` (
+  `ancestor` int unsigned NOT NULL,
+  `descendant` int unsigned NOT NULL,
+  `depth` int unsigned NOT NULL,
+  PRIMARY KEY (`ancestor`,`descendant`) USING BTREE,
+  KEY `idx_descendant` (`descendant`,`depth`) USING BTREE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=DYNAMIC;
+
+-- ----------------------------
+-- Index idx_role_id for user（MySQL 不支持 CREATE INDEX IF NOT EXISTS）
+-- ----------------------------
+SET @ddl = IF(
+  (SELECT COUNT(*) FROM information_schema.statistics
+   WHERE table_schema = DATABASE() AND table_name = 'user' AND index_name = 'idx_role_id') = 0,
+  'ALTER TABLE `user` ADD KEY `idx_role_id` (`role_id`) USING BTREE',
+  'DO 0'
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- ----------------------------
+-- Backfill role_closure：每个角色与自身及其所有下级角色各一行
+-- ----------------------------
+START TRANSACTION;
+
+DELETE FROM `role_closure`;
+
+INSERT INTO `role_closure` (`ancestor`, `descendant`, `depth`)
+WITH RECURSIVE c AS (
+  SELECT id AS ancestor, id AS descendant, 0 AS depth FROM `role`
+  UNION ALL
+  SELECT c.ancestor, r.id, c.depth + 1 FROM c JOIN `role` r ON r.parent_id = c.descendant
+)
+SELECT ancestor, descendant, depth FROM c;
+
+COMMIT;
@@ -1,13 +1,10 @@
 package net.wuxianjie.springbootweb.auth;
 
-import cn.hutool.cache.CacheUtil;
-import cn.hutool.cache.impl.TimedCache;
-import net.wuxianjie.springbootweb.auth.dto.AuthData;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
-import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
-import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+
+import java.nio.file.Path;
 
 /**
  * 鉴权相关配置。
@@ -18,50 +15,80 @@ import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
 public class AuthConfig {
 
   /**
-   * 用于 Token 身份验证的定时缓存。
+   * 用于 Token 身份验证的登录会话存储。
    *
-   * @return Token 登录缓存（{@code {username: AuthData}}）
+   * @param authProps Token 鉴权相关的配置项
+   * @param sessionMapper 集群模式下会话相关的 SQL 语句
+   * @return 登录会话存储（{@code {username: LoginSession}}）
    */
   @Bean
-  public TimedCache<String, AuthData> accessTokenCache() {
-    // 创建 Token 定时缓存
-    final int timeoutMs = AuthProps.TOKEN_EXP_SEC * 1000;
-    final TimedCache<String, AuthData> cache = CacheUtil.newTimedCache(timeoutMs);
+  public SessionStore sessionStore(final AuthProps authProps, final SessionMapper sessionMapper) {
+    if (authProps.getSession().getMode() == AuthProps.SessionMode.CLUSTER) {
+      final AuthProps.Cluster cluster = authProps.getSession().getCluster();
+
+      return new ClusteredSessionStore(
+        sessionMapper,
+        cluster.getNearCacheTtlSec() * 1000L,
+        cluster.getPollIntervalMs()
+      );
+    }
+
+    final TimingWheelSessionStore store = new TimingWheelSessionStore(
+      AuthProps.TOKEN_EXP_SEC * 1000L,
+      authProps.getSession().isSlidingExpiry()
+    );
+
+    final AuthProps.Journal journal = authProps.getSession().getJournal();
 
-    // 启动定时任务，每到过期时间时清理一次过期条目
-    cache.schedulePrune(timeoutMs);
+    if (!journal.isEnabled()) {
+      return store;
+    }
 
-    return cache;
+    // 启用会话日志时，会在此处回放日志以恢复会话
+    return new JournaledSessionStore(
+      store,
+      Path.of(journal.getPath()),
+      journal.getInitialSizeMb() * 1024L * 1024L,
+      journal.getCompactIntervalSec()
+    );
   }
 
   /**
-   * 配置拥有上下级关系的功能权限。
+   * 无状态 Token 的吊销列表。
    *
-   * <p>Spring Boot 3 即 Spring Security 6 开始，还需要创建 {@link #expressionHandler()}，
-   * <br>否则无法在方法之上使用 {@code @PreAuthorize("hasAuthority('user_add')")}。
+   * <p>集群模式下吊销记录保存在数据库中，多个节点共享；单机模式下仅在当前进程中生效；
+   * <br>会话模式下返回未启用的吊销列表，不启动后台线程。
    *
-   * @return 拥有上下级关系的功能权限
+   * @param authProps Token 鉴权相关的配置项
+   * @param sessionMapper 集群模式下吊销记录相关的 SQL 语句
+   * @return 吊销列表
    */
   @Bean
-  public RoleHierarchy roleHierarchy() {
-    final RoleHierarchyImpl hierarchy = new RoleHierarchyImpl();
+  public TokenRevocationList tokenRevocationList(final AuthProps authProps, final SessionMapper sessionMapper) {
+    // 会话模式下由移除会话使 Token 失效，无需吊销列表及其后台线程
+    if (authProps.getTokenMode() != AuthProps.TokenMode.STATELESS) {
+      return TokenRevocationList.disabled();
+    }
 
-    hierarchy.setHierarchy(Authority.getHierarchy());
+    final AuthProps.Session session = authProps.getSession();
 
-    return hierarchy;
+    if (session.getMode() == AuthProps.SessionMode.CLUSTER) {
+      return new TokenRevocationList(sessionMapper, session.getCluster().getPollIntervalMs());
+    }
+
+    return new TokenRevocationList(null, 0);
   }
 
   /**
-   * 结合 {@link #roleHierarchy()} 使用。
+   * 方法安全表达式处理器，实现拥有上下级关系的功能权限。
+   *
+   * <p>Spring Boot 3 即 Spring Security 6 开始，需要创建此 Bean 才能自定义
+   * {@code @PreAuthorize("hasAuthority('user_add')")} 的判断逻辑。
    *
-   * @return 实现拥有上下级关系的功能权限
+   * @return 基于 {@link AuthorityLattice} 的方法安全表达式处理器
    */
   @Bean
   public DefaultMethodSecurityExpressionHandler expressionHandler() {
-    final DefaultMethodSecurityExpressionHandler handler = new DefaultMethodSecurityExpressionHandler();
-
-    handler.setRoleHierarchy(roleHierarchy());
-
-    return handler;
+    return new AuthorityExpressionHandler();
   }
 }
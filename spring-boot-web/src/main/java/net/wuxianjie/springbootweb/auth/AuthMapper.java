@@ -12,4 +12,8 @@ import org.apache.ibatis.annotations.Mapper;
 public interface AuthMapper {
 
   AuthData selectByUsername(String username);
+
+  AuthData selectById(long userId);
+
+  String selectAuthoritiesByRoleId(long roleId);
 }
@@ -6,6 +6,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.validation.annotation.Validated;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Token 鉴权相关的配置项。
  *
@@ -35,6 +38,29 @@ public class AuthProps {
    */
   public static final String TOKEN_TYPE_REFRESH = "refresh";
 
+  /**
+   * JWT Payload - 用户 id，仅用于无状态 Token。
+   */
+  public static final String JWT_PAYLOAD_USER_ID = "uid";
+  /**
+   * JWT Payload - 账号状态，仅用于无状态 Token。
+   */
+  public static final String JWT_PAYLOAD_STATUS = "sts";
+  /**
+   * JWT Payload - 角色 id，仅用于无状态 Token。
+   */
+  public static final String JWT_PAYLOAD_ROLE_ID = "rid";
+  /**
+   * JWT Payload - 功能权限位（十六进制），仅用于无状态 Token，见 {@link AuthorityLattice#bitsOf(java.util.Collection)}。
+   */
+  public static final String JWT_PAYLOAD_AUTHORITIES = "auth";
+  /**
+   * JWT Payload - 签发时间，单位：毫秒，仅用于无状态 Token。
+   *
+   * <p>标准的 {@code iat} 仅精确到秒，无法区分同一秒内吊销前后签发的 Token。
+   */
+  public static final String JWT_PAYLOAD_ISSUED_AT_MS = "iatMs";
+
   /**
    * Token 过期时间，单位：秒。
    */
@@ -50,4 +76,219 @@ public class AuthProps {
    */
   @NotBlank(message = "Token 签名密钥不能为空")
   private String tokenKey;
+
+  /**
+   * Token 签名密钥 id，写入 Token 的 {@code kid} 请求头，轮换密钥时需同时修改。
+   */
+  @NotBlank(message = "Token 签名密钥 id 不能为空")
+  private String tokenKeyId = "k1";
+
+  /**
+   * 仅用于验签的密钥，键为密钥 id，值为密钥，用于不停机轮换签名密钥，见 {@link TokenKeyRing}。
+   */
+  private Map<String, String> verificationKeys = new LinkedHashMap<>();
+
+  /**
+   * Token 模式，默认为会话模式。
+   */
+  private TokenMode tokenMode = TokenMode.SESSION;
+
+  /**
+   * 登录会话相关配置。
+   */
+  private Session session = new Session();
+
+  /**
+   * 登录相关配置。
+   */
+  private Login login = new Login();
+
+  /**
+   * 刷新 Token 相关配置。
+   */
+  private Refresh refresh = new Refresh();
+
+  /**
+   * Token 模式。
+   */
+  public enum TokenMode {
+
+    /**
+     * 会话模式，Access Token 仅用于查找登录会话，身份验证所需数据保存在会话中。
+     */
+    SESSION,
+
+    /**
+     * 无状态模式，Access Token 自身携带身份验证所需的全部数据，验证时无需查询会话或数据库。
+     *
+     * <p>注销或禁用账号通过 {@link TokenRevocationList} 实现，集群模式下各节点共享吊销列表。
+     */
+    STATELESS
+  }
+
+  /**
+   * 登录会话相关配置项。
+   */
+  @Data
+  public static class Session {
+
+    /**
+     * 会话存储模式，默认为单机模式。
+     */
+    private SessionMode mode = SessionMode.LOCAL;
+
+    /**
+     * 是否启用滑动过期，即每次访问都顺延会话的过期时间，默认不启用。
+     *
+     * <p>注意：Access Token 本身的过期时间不受影响。
+     */
+    private boolean slidingExpiry = false;
+
+    /**
+     * 会话日志相关配置，仅用于单机模式。
+     */
+    private Journal journal = new Journal();
+
+    /**
+     * 集群模式相关配置。
+     */
+    private Cluster cluster = new Cluster();
+  }
+
+  /**
+   * 会话存储模式。
+   */
+  public enum SessionMode {
+
+    /**
+     * 单机模式，会话仅保存在当前进程中。
+     */
+    LOCAL,
+
+    /**
+     * 集群模式，会话保存在数据库中，多个节点共享。
+     */
+    CLUSTER
+  }
+
+  /**
+   * 集群模式相关配置项。
+   */
+  @Data
+  public static class Cluster {
+
+    /**
+     * 近端缓存中会话的最长保留时长，即漏读变更事件时最多使用多久的旧数据，单位：秒。
+     */
+    private int nearCacheTtlSec = 60;
+
+    /**
+     * 拉取会话变更事件的间隔，即其他节点的变更最迟多久后生效，单位：毫秒。
+     */
+    private long pollIntervalMs = 500;
+  }
+
+  /**
+   * 刷新 Token 相关配置项。
+   */
+  @Data
+  public static class Refresh {
+
+    /**
+     * 宽限期，单位：秒。
+     *
+     * <p>Refresh Token 被替代后的宽限期内再次使用，返回替代它的那组 Token，而非拒绝，
+     * <br>以免多个标签页同时刷新时，除第一个外均因 Token 已废弃而失败并重试。
+     */
+    private int graceSec = 10;
+
+    /**
+     * 宽限期内保留的刷新结果数上限。
+     */
+    private int graceCapacity = 10_000;
+
+    /**
+     * 等待同一 Refresh Token 进行中的刷新结果的最长时间，单位：毫秒。
+     */
+    private long waitTimeoutMs = 5_000;
+  }
+
+  /**
+   * 登录相关配置项，主要用于限制 BCrypt 密码校验所占用的资源。
+   */
+  @Data
+  public static class Login {
+
+    /**
+     * 密码校验线程数，小于等于 0 时取 CPU 核数。
+     */
+    private int hashThreads = 0;
+
+    /**
+     * 密码校验等待队列的容量，队列已满时直接返回 503。
+     */
+    private int hashQueueCapacity = 64;
+
+    /**
+     * 等待密码校验结果的最长时间，单位：毫秒。
+     */
+    private long hashTimeoutMs = 10_000;
+
+    /**
+     * 同一用户名同时进行中的密码校验数上限。
+     */
+    private int maxInFlightPerUsername = 2;
+
+    /**
+     * 同一客户端 IP 同时进行中的密码校验数上限。
+     */
+    private int maxInFlightPerIp = 8;
+
+    /**
+     * 拒绝登录时建议客户端的重试间隔，即 {@code Retry-After} 响应头，单位：秒。
+     */
+    private int retryAfterSec = 1;
+
+    /**
+     * 单次 BCrypt 哈希的目标耗时，启动时据此选择 cost，单位：毫秒。
+     */
+    private long hashTargetMs = 250;
+
+    /**
+     * BCrypt 的最小 cost，即使超出目标耗时也不会低于该值。
+     */
+    private int hashMinCost = 10;
+
+    /**
+     * BCrypt 的最大 cost。
+     */
+    private int hashMaxCost = 16;
+  }
+
+  /**
+   * 会话日志相关配置项，启用后登录会话可在服务重启后恢复。
+   */
+  @Data
+  public static class Journal {
+
+    /**
+     * 是否启用会话日志，默认不启用。
+     */
+    private boolean enabled = false;
+
+    /**
+     * 日志文件路径。
+     */
+    private String path = "data/session.journal";
+
+    /**
+     * 日志文件初始大小，单位：MB。
+     */
+    private int initialSizeMb = 16;
+
+    /**
+     * 定期压缩日志的间隔，单位：秒。
+     */
+    private int compactIntervalSec = 600;
+  }
 }
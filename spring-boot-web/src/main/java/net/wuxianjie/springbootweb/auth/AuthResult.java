@@ -0,0 +1,73 @@
+package net.wuxianjie.springbootweb.auth;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+
+/**
+ * Access Token 身份验证的结果。
+ *
+ * <p>身份验证失败是客户端可高频触发的常见情况，故以预先创建的 {@link Failure} 常量表示，而非抛出异常，
+ * <br>以免每次失败都要创建异常对象及捕获调用栈。
+ *
+ * @author 吴仙杰
+ */
+public sealed interface AuthResult permits AuthResult.Success, AuthResult.Failure {
+
+  /**
+   * 身份验证通过。
+   *
+   * @param session 登录会话
+   */
+  record Success(LoginSession session) implements AuthResult {}
+
+  /**
+   * 身份验证失败的原因。
+   */
+  @Getter
+  @RequiredArgsConstructor
+  enum Failure implements AuthResult {
+
+    /**
+     * 授权请求头格式有误。
+     */
+    MALFORMED_HEADER("授权信息格式有误", false),
+
+    /**
+     * Token 格式、签名或载荷有误，或已过期。
+     */
+    ILLEGAL_TOKEN("Token 不合法", true),
+
+    /**
+     * 不是 Access Token。
+     */
+    WRONG_TYPE("API 鉴权请使用 Access Token", true),
+
+    /**
+     * 登录会话不存在或已过期。
+     */
+    SESSION_EXPIRED("Token 已失效", true),
+
+    /**
+     * Token 已被新 Token 替代。
+     */
+    REVOKED("Token 已废弃", true),
+
+    /**
+     * 账号已被禁用。
+     */
+    ACCOUNT_DISABLED("账号已禁用", false);
+
+    /**
+     * 返回给客户端的错误提示信息。
+     */
+    private final String message;
+
+    /**
+     * 同一 Token 是否始终会因该原因被拒绝，是则可缓存至 {@link RejectedTokenCache}。
+     *
+     * <p>如账号已禁用，在账号重新启用后 Token 仍可使用，故不可缓存。
+     */
+    private final boolean permanent;
+  }
+}
@@ -1,17 +1,18 @@
 package net.wuxianjie.springbootweb.auth;
 
-import cn.hutool.cache.impl.TimedCache;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.extra.servlet.JakartaServletUtil;
 import lombok.RequiredArgsConstructor;
 import net.wuxianjie.springbootweb.auth.dto.AuthData;
 import net.wuxianjie.springbootweb.auth.dto.GetTokenRequest;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
 import net.wuxianjie.springbootweb.auth.dto.TokenPayload;
 import net.wuxianjie.springbootweb.auth.dto.TokenResponse;
 import net.wuxianjie.springbootweb.shared.restapi.ApiException;
 import net.wuxianjie.springbootweb.shared.util.ServletUtils;
+import net.wuxianjie.springbootweb.user.PasswordRehasher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -25,18 +26,22 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class AuthServiceImpl implements AuthService {
 
-  private final PasswordEncoder passwordEncoder;
+  private final PasswordVerifier passwordVerifier;
+  private final PasswordRehasher passwordRehasher;
   private final TokenService tokenService;
-  private final TimedCache<String, AuthData> accessTokenCache;
-  private final TokenAuth tokenAuth;
-  private final AuthMapper authMapper;
+  private final SessionStore sessionStore;
+  private final RejectedTokenCache rejectedTokenCache;
+  private final TokenRevocationList revocationList;
+  private final LoginPrincipalCache loginPrincipalCache;
+  private final RefreshCoalescer refreshCoalescer;
+  private final AuthProps authProps;
 
   public ResponseEntity<TokenResponse> getToken(final GetTokenRequest req) {
     // 用户名不区分大小写
     req.setUsername(req.getUsername().toLowerCase());
 
-    // 检索数据库，获取用户
-    final AuthData auth = Optional.ofNullable(authMapper.selectByUsername(req.getUsername()))
+    // 检索缓存或数据库，获取用户
+    final AuthData auth = Optional.ofNullable(loginPrincipalCache.get(req.getUsername()))
       .orElseThrow(() -> new ApiException(HttpStatus.UNAUTHORIZED, "用户名或密码错误"));
 
     // 检验账号是否已被禁用
@@ -45,48 +50,61 @@ public class AuthServiceImpl implements AuthService {
     }
 
     // 检验登录密码是否正确
-    if (!passwordEncoder.matches(req.getPassword(), auth.getHashedPassword())) {
+    final String clientIp = JakartaServletUtil.getClientIP(ServletUtils.getCurrentRequest().orElseThrow());
+
+    if (!passwordVerifier.matches(req.getPassword(), auth.getHashedPassword(), req.getUsername(), clientIp)) {
       throw new ApiException(HttpStatus.UNAUTHORIZED, "用户名或密码错误");
     }
 
+    // 哈希密码的 cost 与当前不一致时，在后台重新编码
+    passwordRehasher.rehashIfNeeded(auth.getUserId(), req.getPassword(), auth.getHashedPassword());
+
     // 创建 Token
-    final TokenData tokenData = createToken(req.getUsername());
+    final TokenData tokenData = createToken(auth);
 
     // 添加 Access Token 信息到登录缓存
-    auth.setAccessToken(tokenData.accessToken);
-    auth.setRefreshToken(tokenData.refreshToken);
-
-    final TokenResponse resp = addLoginCache(auth);
+    final TokenResponse resp = addLoginCache(auth, tokenData);
 
     return ResponseEntity.ok(resp);
   }
 
   public ResponseEntity<TokenResponse> updateToken(final String refreshToken) {
-    // 检验 JWT Token 本身（格式）是否合法
-    final boolean legalToken = tokenService.isLegal(refreshToken);
-    if (!legalToken) {
-      throw new ApiException(HttpStatus.UNAUTHORIZED, "Token 不合法");
-    }
+    // 同一 Refresh Token 的并发刷新只执行一次，刚被替代的 Refresh Token 在宽限期内返回同一结果
+    return ResponseEntity.ok(refreshCoalescer.refresh(refreshToken, () -> refresh(refreshToken)));
+  }
 
-    // 解析 JWT Token 获取载荷
-    final TokenPayload payload = tokenService.parse(refreshToken);
+  private RefreshCoalescer.Refreshed refresh(final String refreshToken) {
+    // 验证 JWT Token 并获取载荷
+    final TokenPayload payload = tokenService.verify(refreshToken)
+      .orElseThrow(() -> new ApiException(HttpStatus.UNAUTHORIZED, "Token 不合法"));
 
     // 检验 Token 类型是否为 Refresh Token
     if (!StrUtil.equals(payload.getType(), AuthProps.TOKEN_TYPE_REFRESH)) {
       throw new ApiException(HttpStatus.UNAUTHORIZED, "刷新请使用 Refresh Token");
     }
 
-    // 检索登录缓存，获取用户
-    final AuthData cachedAuth = Optional.ofNullable(accessTokenCache.get(payload.getUsername()))
-      .orElseThrow(() -> new ApiException(HttpStatus.UNAUTHORIZED, "Token 已失效"));
-
-    // 检验 Refresh Token 是否与登录缓存中的一致
-    if (!StrUtil.equals(cachedAuth.getRefreshToken(), refreshToken)) {
-      throw new ApiException(HttpStatus.UNAUTHORIZED, "Token 已废弃");
+    if (isStateless()) {
+      // 无状态模式下不保存会话，仅检验 Refresh Token 是否已被吊销
+      if (payload.getClaims() == null || revocationList.isRevoked(payload.getClaims())) {
+        throw new ApiException(HttpStatus.UNAUTHORIZED, "Token 已废弃");
+      }
+    } else {
+      // 检索登录缓存，获取用户
+      final LoginSession cached = sessionStore.get(payload.getUsername())
+        .orElseThrow(() -> new ApiException(HttpStatus.UNAUTHORIZED, "Token 已失效"));
+
+      // 检验 Refresh Token 是否与登录缓存中的一致，不一致时以共享存储中的最新会话为准
+      final boolean matches = cached.matchesRefreshToken(refreshToken) || sessionStore.reload(payload.getUsername())
+        .map(session -> session.matchesRefreshToken(refreshToken))
+        .orElse(false);
+
+      if (!matches) {
+        throw new ApiException(HttpStatus.UNAUTHORIZED, "Token 已废弃");
+      }
     }
 
-    // 检索数据库，获取新增的用户数据
-    final AuthData auth = Optional.ofNullable(authMapper.selectByUsername(payload.getUsername()))
+    // 检索缓存或数据库，获取最新的用户数据
+    final AuthData auth = Optional.ofNullable(loginPrincipalCache.get(payload.getUsername()))
       .orElseThrow(() -> new ApiException(HttpStatus.UNAUTHORIZED, "无效的 Token"));
 
     // 检验账号是否已被禁用
@@ -95,50 +113,74 @@ public class AuthServiceImpl implements AuthService {
     }
 
     // 创建 Token
-    final TokenData tokenData = createToken(payload.getUsername());
+    final TokenData tokenData = createToken(auth);
 
     // 添加 Access Token 信息到登录缓存
-    auth.setAccessToken(tokenData.accessToken);
-    auth.setRefreshToken(tokenData.refreshToken);
-
-    final TokenResponse resp = addLoginCache(auth);
-
-    return ResponseEntity.ok(resp);
+    return new RefreshCoalescer.Refreshed(auth.getUserId(), auth.getRoleId(), addLoginCache(auth, tokenData));
   }
 
-  private TokenData createToken(final String username) {
-    // 获取当前时间戳，精确到秒
-    final long curTimeSec = System.currentTimeMillis() / 1000;
+  private TokenData createToken(final AuthData auth) {
+    // 获取当前时间戳
+    final long curTimeMs = System.currentTimeMillis();
+    final long curTimeSec = curTimeMs / 1000;
+
+    // 无状态模式下，Token 携带身份验证所需的全部数据
+    TokenPayload.Claims claims = null;
+
+    if (isStateless()) {
+      claims = new TokenPayload.Claims(
+        auth.getUserId(),
+        auth.getStatus(),
+        auth.getRoleId(),
+        AuthorityLattice.bitsOf(auth.getAuthorities()),
+        curTimeMs
+      );
+    }
 
     // 创建 Access Token
     final String accessToken = tokenService.createToken(new TokenPayload(
-      username,
+      auth.getUsername(),
       AuthProps.TOKEN_TYPE_ACCESS,
       AuthProps.TOKEN_ISSUER,
-      curTimeSec + AuthProps.TOKEN_EXP_SEC
+      curTimeSec + AuthProps.TOKEN_EXP_SEC,
+      claims
     ));
 
     // 创建 Refresh Token
     final String refreshToken = tokenService.createToken(new TokenPayload(
-      username,
+      auth.getUsername(),
       AuthProps.TOKEN_TYPE_REFRESH,
       AuthProps.TOKEN_ISSUER,
-      curTimeSec + AuthProps.TOKEN_EXP_SEC
+      curTimeSec + AuthProps.TOKEN_EXP_SEC,
+      claims
     ));
 
     return new TokenData(accessToken, refreshToken);
   }
 
-  private TokenResponse addLoginCache(final AuthData auth) {
-    // 添加 Token 身份验证缓存
-    accessTokenCache.put(auth.getUsername(), auth);
+  private TokenResponse addLoginCache(final AuthData auth, final TokenData tokenData) {
+    // 会话中不含哈希密码，仅保存 Token 摘要
+    final LoginSession session = LoginSession.of(auth, tokenData.accessToken, tokenData.refreshToken);
+
+    // 无状态模式下不保存会话
+    if (!isStateless()) {
+      // 预先创建身份验证数据，随会话一同缓存，之后每次请求无需再创建
+      session.getAuthentication();
 
-    // 将登录信息写入 Spring Security Context 中，以便记录登录日志进可获取用户名
-    tokenAuth.setAuthenticatedContext(auth, ServletUtils.getCurrentRequest().orElseThrow());
+      // 旧会话的 Token 已被替代，按会话中保存的摘要加入拒绝缓存
+      sessionStore.get(auth.getUsername()).ifPresent(old -> {
+        if (old.getAccessTokenDigest() != null) {
+          rejectedTokenCache.putDigest(old.getAccessTokenDigest(), AuthResult.Failure.REVOKED);
+        }
+      });
+
+      // 添加 Token 身份验证缓存
+      sessionStore.put(auth.getUsername(), session);
+    }
 
     return new TokenResponse(
-      auth.getAccessToken(),
-      auth.getRefreshToken(),
+      tokenData.accessToken,
+      tokenData.refreshToken,
       AuthProps.TOKEN_EXP_SEC,
       auth.getUsername(),
       auth.getNickname(),
@@ -146,5 +188,9 @@ public class AuthServiceImpl implements AuthService {
     );
   }
 
+  private boolean isStateless() {
+    return authProps.getTokenMode() == AuthProps.TokenMode.STATELESS;
+  }
+
   private record TokenData(String accessToken, String refreshToken) {}
 }
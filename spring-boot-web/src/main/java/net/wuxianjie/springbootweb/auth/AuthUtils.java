@@ -1,6 +1,6 @@
 package net.wuxianjie.springbootweb.auth;
 
-import net.wuxianjie.springbootweb.auth.dto.AuthData;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,13 +19,13 @@ public class AuthUtils {
    *
    * @return 当前登录用户数据
    */
-  public static Optional<AuthData> getCurrentUser() {
+  public static Optional<LoginSession> getCurrentUser() {
     final Authentication auth = SecurityContextHolder.getContext().getAuthentication();
 
     if (auth == null || auth instanceof AnonymousAuthenticationToken) {
       return Optional.empty();
     }
 
-    return Optional.of((AuthData) auth.getPrincipal());
+    return Optional.of((LoginSession) auth.getPrincipal());
   }
 }
@@ -3,16 +3,16 @@ package net.wuxianjie.springbootweb.auth;
 import cn.hutool.core.lang.tree.Tree;
 import cn.hutool.core.lang.tree.TreeNode;
 import cn.hutool.core.lang.tree.TreeUtil;
-import cn.hutool.core.util.StrUtil;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
-import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 系统所关心的功能权限。
@@ -57,30 +57,10 @@ public enum Authority {
   OP_LOG(ROOT.id + ".3", ROOT.id, "操作日志", "op_log"),
   OP_LOG_VIEW(OP_LOG.id + ".1", OP_LOG.id, "查看日志", "op_log_view");
 
-  // 切记：每次添加节点时，都需要手动修改 `getHierarchy` 方法
+  // 切记：新增节点时需正确设置 `parentId`，上下级关系由 `AuthorityLattice` 据此自动推导
 
-  /**
-   * 获取符合 {@link RoleHierarchyImpl} 的权限字符串。
-   *
-   * <p>注意：修改权限枚举时，也要修改本方法。
-   *
-   * @return 符合 {@link RoleHierarchyImpl} 的权限字符串
-   */
-  public static String getHierarchy() {
-    return ROOT.code + " > " + USER.code + "\n" +
-      USER.code + " > " + USER_VIEW.code + "\n" +
-      USER.code + " > " + USER_ADD.code + "\n" +
-      USER.code + " > " + USER_EDIT.code + "\n" +
-      USER.code + " > " + USER_DEL.code + "\n" +
-      USER.code + " > " + USER_RESET.code + "\n" +
-      ROOT.code + " > " + ROLE.code + "\n" +
-      ROLE.code + " > " + ROLE_VIEW.code + "\n" +
-      ROLE.code + " > " + ROLE_ADD.code + "\n" +
-      ROLE.code + " > " + ROLE_EDIT.code + "\n" +
-      ROLE.code + " > " + ROLE_DEL.code + "\n" +
-      ROOT.code + " > " + OP_LOG.code + "\n" +
-      OP_LOG.code + " > " + OP_LOG_VIEW.code + "\n";
-  }
+  private static final Map<String, Authority> BY_CODE = Arrays.stream(values())
+    .collect(Collectors.toUnmodifiableMap(Authority::getCode, Function.identity()));
 
   /**
    * 权限 id。
@@ -125,16 +105,13 @@ public enum Authority {
    * @throws IllegalArgumentException 当 code 解析失败时
    */
   public static boolean isSubNode(final String parentCode, final String checkedCode) throws IllegalArgumentException {
-    final String parentId = resolve(parentCode)
-      .map(Authority::getId)
+    final Authority parent = resolve(parentCode)
       .orElseThrow(() -> new IllegalArgumentException("无法识别 parentCode: " + parentCode));
 
-    final String checkedId = resolve(checkedCode)
-      .map(Authority::getId)
+    final Authority checked = resolve(checkedCode)
       .orElseThrow(() -> new IllegalArgumentException("无法识别 checkedCode: " + checkedCode));
 
-    // id 是有意设计的，故可通过 `id.` 前缀，即可实现是否为下级的判断
-    return StrUtil.startWith(checkedId, parentId + StrUtil.DOT);
+    return AuthorityLattice.isSubNode(parent, checked);
   }
 
   /**
@@ -144,11 +121,17 @@ public enum Authority {
    * @return 枚举值
    */
   public static Optional<Authority> resolve(final String code) {
-    try {
-      // 定义时保证了常量名与 `code` 保持一致，故可采用 `valueOf()` 方法解析
-      return Optional.of(valueOf(code.toUpperCase()));
-    } catch (IllegalArgumentException ignore) {
+    if (code == null) {
       return Optional.empty();
     }
+
+    final Authority authority = BY_CODE.get(code);
+
+    if (authority != null) {
+      return Optional.of(authority);
+    }
+
+    // 兼容大小写不一致的 code
+    return Optional.ofNullable(BY_CODE.get(code.toLowerCase()));
   }
 }
@@ -0,0 +1,41 @@
+package net.wuxianjie.springbootweb.auth;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.security.access.expression.SecurityExpressionRoot;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.core.Authentication;
+
+import java.util.function.Supplier;
+
+/**
+ * 基于 {@link AuthorityLattice} 的方法安全表达式处理器。
+ *
+ * <p>以 {@link AuthoritySecurityExpressionRoot} 作为表达式的根对象，
+ * <br>故 {@code hasAuthority} 无需再通过 {@code RoleHierarchy} 展开上下级权限。
+ *
+ * @author 吴仙杰
+ */
+public class AuthorityExpressionHandler extends DefaultMethodSecurityExpressionHandler {
+
+  @Override
+  public EvaluationContext createEvaluationContext(
+    final Supplier<Authentication> authentication,
+    final MethodInvocation mi
+  ) {
+    final StandardEvaluationContext ctx = (StandardEvaluationContext) super.createEvaluationContext(authentication, mi);
+
+    final SecurityExpressionRoot delegate = new SecurityExpressionRoot(authentication) {};
+    delegate.setTrustResolver(getTrustResolver());
+    delegate.setPermissionEvaluator(getPermissionEvaluator());
+    delegate.setDefaultRolePrefix(getDefaultRolePrefix());
+
+    final AuthoritySecurityExpressionRoot root = new AuthoritySecurityExpressionRoot(authentication, delegate);
+    root.setThis(mi.getThis());
+
+    ctx.setRootObject(root);
+
+    return ctx;
+  }
+}
@@ -0,0 +1,183 @@
+package net.wuxianjie.springbootweb.auth;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由 {@link Authority} 编译而成的权限闭包表。
+ *
+ * <p>每个功能权限对应 {@code long} 中的一位，每个权限代码对应其自身及所有下级权限的位掩码，
+ * <br>故判断是否拥有某权限只需一次按位与运算，无需再逐级展开上下级关系或比较字符串。
+ *
+ * <p>权限树由 {@link Authority#getParentId()} 自动推导，新增权限时无需修改本类。
+ *
+ * @author 吴仙杰
+ */
+public final class AuthorityLattice {
+
+  private static final Authority[] AUTHORITIES = Authority.values();
+
+  /**
+   * 下标为 {@link Authority#ordinal()}，值为该权限自身及所有下级权限的位掩码。
+   */
+  private static final long[] CLOSURES = new long[AUTHORITIES.length];
+
+  /**
+   * 权限代码所对应的位。
+   */
+  private static final Map<String, Long> BIT_BY_CODE = new HashMap<>();
+
+  /**
+   * 权限代码所对应的闭包位掩码。
+   */
+  private static final Map<String, Long> CLOSURE_BY_CODE = new HashMap<>();
+
+  static {
+    if (AUTHORITIES.length > Long.SIZE) {
+      throw new IllegalStateException("功能权限数量超出位掩码上限: " + AUTHORITIES.length);
+    }
+
+    final Map<String, Authority> byId = new HashMap<>();
+
+    for (final Authority authority : AUTHORITIES) {
+      byId.put(authority.getId(), authority);
+    }
+
+    // 将每个权限的位登记至其自身及所有上级权限
+    for (final Authority authority : AUTHORITIES) {
+      final long bit = bit(authority);
+
+      for (Authority node = authority; node != null; node = byId.get(node.getParentId())) {
+        CLOSURES[node.ordinal()] |= bit;
+      }
+    }
+
+    for (final Authority authority : AUTHORITIES) {
+      BIT_BY_CODE.put(authority.getCode(), bit(authority));
+      CLOSURE_BY_CODE.put(authority.getCode(), CLOSURES[authority.ordinal()]);
+    }
+  }
+
+  private AuthorityLattice() {}
+
+  /**
+   * 获取功能权限所对应的位。
+   *
+   * @param authority 功能权限
+   * @return 位
+   */
+  public static long bit(final Authority authority) {
+    return 1L << authority.ordinal();
+  }
+
+  /**
+   * 获取权限代码所对应的位。
+   *
+   * @param code 权限代码
+   * @return 位，若无法识别则返回 0
+   */
+  public static long bitOf(final String code) {
+    final Long bit = BIT_BY_CODE.get(code);
+
+    return bit == null ? 0 : bit;
+  }
+
+  /**
+   * 获取权限代码所对应的闭包位掩码，即其自身及所有下级权限。
+   *
+   * @param code 权限代码
+   * @return 闭包位掩码，若无法识别则返回 0
+   */
+  public static long closureOf(final String code) {
+    final Long closure = CLOSURE_BY_CODE.get(code);
+
+    return closure == null ? 0 : closure;
+  }
+
+  /**
+   * 计算所拥有的全部功能权限（含下级权限）的位掩码，无法识别的权限代码会被忽略。
+   *
+   * @param codes 权限代码列表
+   * @return 位掩码
+   */
+  public static long effectiveMask(final Collection<String> codes) {
+    if (codes == null) {
+      return 0;
+    }
+
+    long mask = 0;
+
+    for (final String code : codes) {
+      mask |= closureOf(code);
+    }
+
+    return mask;
+  }
+
+  /**
+   * 计算所拥有的功能权限本身（不含下级权限）的位，无法识别的权限代码会被忽略。
+   *
+   * <p>用于写入无状态 Token，解码时由 {@link #codesOf(long)} 还原权限代码。
+   *
+   * @param codes 权限代码列表
+   * @return 位
+   */
+  public static long bitsOf(final Collection<String> codes) {
+    if (codes == null) {
+      return 0;
+    }
+
+    long bits = 0;
+
+    for (final String code : codes) {
+      bits |= bitOf(code);
+    }
+
+    return bits;
+  }
+
+  /**
+   * 将位还原为权限代码列表，按 {@link Authority} 的声明顺序排列。
+   *
+   * @param bits 位，见 {@link #bitsOf(Collection)}
+   * @return 权限代码列表
+   */
+  public static List<String> codesOf(final long bits) {
+    final List<String> codes = new ArrayList<>(Long.bitCount(bits));
+
+    for (long remaining = bits; remaining != 0; remaining &= remaining - 1) {
+      final int ordinal = Long.numberOfTrailingZeros(remaining);
+
+      if (ordinal < AUTHORITIES.length) {
+        codes.add(AUTHORITIES[ordinal].getCode());
+      }
+    }
+
+    return codes;
+  }
+
+  /**
+   * 检查位掩码中是否包含指定权限。
+   *
+   * @param mask 位掩码，见 {@link #effectiveMask(Collection)}
+   * @param code 权限代码
+   * @return 是否包含该权限
+   */
+  public static boolean implies(final long mask, final String code) {
+    return (mask & bitOf(code)) != 0;
+  }
+
+  /**
+   * 检查节点是否为下级节点。
+   *
+   * @param parent 父节点
+   * @param checked 需要被检查的节点
+   * @return {@code checked} 是否为 {@code parent} 的下级节点
+   */
+  public static boolean isSubNode(final Authority parent, final Authority checked) {
+    return parent != checked && (CLOSURES[parent.ordinal()] & bit(checked)) != 0;
+  }
+}
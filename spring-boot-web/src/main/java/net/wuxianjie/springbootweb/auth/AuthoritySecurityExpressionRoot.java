@@ -0,0 +1,160 @@
+package net.wuxianjie.springbootweb.auth;
+
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import org.springframework.security.access.expression.SecurityExpressionRoot;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+import java.util.function.Supplier;
+
+/**
+ * 方法安全表达式（如 {@code @PreAuthorize("hasAuthority('user_add')")}）的根对象。
+ *
+ * <p>{@code hasAuthority} 及 {@code hasAnyAuthority} 直接检查 {@link LoginSession#getAuthorityMask()}，
+ * <br>其他表达式则交由 Spring Security 的默认实现处理。
+ *
+ * <p>{@link SecurityExpressionRoot} 中的 {@code hasAuthority} 为 {@code final} 方法，故只能以委托而非继承的方式实现。
+ *
+ * @author 吴仙杰
+ */
+class AuthoritySecurityExpressionRoot implements MethodSecurityExpressionOperations {
+
+  private final Supplier<Authentication> authentication;
+  private final SecurityExpressionRoot delegate;
+
+  private Object filterObject;
+  private Object returnObject;
+  private Object target;
+
+  /**
+   * 构造表达式根对象。
+   *
+   * @param authentication 当前的身份验证数据
+   * @param delegate 用于处理其他表达式的默认实现
+   */
+  AuthoritySecurityExpressionRoot(
+    final Supplier<Authentication> authentication,
+    final SecurityExpressionRoot delegate
+  ) {
+    this.authentication = authentication;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public boolean hasAuthority(final String authority) {
+    final Object principal = getPrincipal();
+
+    if (principal instanceof LoginSession auth) {
+      return AuthorityLattice.implies(auth.getAuthorityMask(), authority);
+    }
+
+    return delegate.hasAuthority(authority);
+  }
+
+  @Override
+  public boolean hasAnyAuthority(final String... authorities) {
+    final Object principal = getPrincipal();
+
+    if (principal instanceof LoginSession auth) {
+      long required = 0;
+
+      for (final String authority : authorities) {
+        required |= AuthorityLattice.bitOf(authority);
+      }
+
+      return (auth.getAuthorityMask() & required) != 0;
+    }
+
+    return delegate.hasAnyAuthority(authorities);
+  }
+
+  @Override
+  public Authentication getAuthentication() {
+    return authentication.get();
+  }
+
+  public Object getPrincipal() {
+    final Authentication auth = getAuthentication();
+
+    return auth == null ? null : auth.getPrincipal();
+  }
+
+  @Override
+  public boolean hasRole(final String role) {
+    return delegate.hasRole(role);
+  }
+
+  @Override
+  public boolean hasAnyRole(final String... roles) {
+    return delegate.hasAnyRole(roles);
+  }
+
+  @Override
+  public boolean permitAll() {
+    return true;
+  }
+
+  @Override
+  public boolean denyAll() {
+    return false;
+  }
+
+  @Override
+  public boolean isAnonymous() {
+    return delegate.isAnonymous();
+  }
+
+  @Override
+  public boolean isAuthenticated() {
+    return delegate.isAuthenticated();
+  }
+
+  @Override
+  public boolean isRememberMe() {
+    return delegate.isRememberMe();
+  }
+
+  @Override
+  public boolean isFullyAuthenticated() {
+    return delegate.isFullyAuthenticated();
+  }
+
+  @Override
+  public boolean hasPermission(final Object target, final Object permission) {
+    return delegate.hasPermission(target, permission);
+  }
+
+  @Override
+  public boolean hasPermission(final Object targetId, final String targetType, final Object permission) {
+    return delegate.hasPermission(targetId, targetType, permission);
+  }
+
+  @Override
+  public void setFilterObject(final Object filterObject) {
+    this.filterObject = filterObject;
+  }
+
+  @Override
+  public Object getFilterObject() {
+    return filterObject;
+  }
+
+  @Override
+  public void setReturnObject(final Object returnObject) {
+    this.returnObject = returnObject;
+  }
+
+  @Override
+  public Object getReturnObject() {
+    return returnObject;
+  }
+
+  void setThis(final Object target) {
+    this.target = target;
+  }
+
+  @Override
+  public Object getThis() {
+    return target;
+  }
+}
@@ -0,0 +1,97 @@
+package net.wuxianjie.springbootweb.auth;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 不可变的功能权限集合，按权限列表驻留（intern），同一角色下的所有登录会话共享同一实例。
+ *
+ * <p>除权限代码列表外，还预先计算了位掩码（见 {@link AuthorityLattice}）及 Spring Security 的权限集合，
+ * <br>故每个会话只需持有一个引用，无需再各自拆分字符串或创建权限对象。
+ *
+ * @author 吴仙杰
+ */
+public final class AuthoritySet {
+
+  /**
+   * 驻留的权限集合数上限，超出后不再驻留，防止异常数据导致内存无限增长。
+   *
+   * <p>正常情况下不同的权限列表数不会超过角色数。
+   */
+  private static final int MAX_INTERNED = 4096;
+
+  private static final Map<List<String>, AuthoritySet> INTERNED = new ConcurrentHashMap<>();
+
+  /**
+   * 空权限集合。
+   */
+  public static final AuthoritySet EMPTY = of(List.of());
+
+  private final List<String> codes;
+  private final long mask;
+  private final List<GrantedAuthority> grantedAuthorities;
+
+  private AuthoritySet(final List<String> codes) {
+    this.codes = codes;
+    this.mask = AuthorityLattice.effectiveMask(codes);
+    this.grantedAuthorities = List.copyOf(AuthorityUtils.createAuthorityList(codes.toArray(String[]::new)));
+  }
+
+  /**
+   * 获取权限列表所对应的权限集合。
+   *
+   * @param codes 权限代码列表，可为 {@code null}
+   * @return 驻留的权限集合
+   */
+  public static AuthoritySet of(final Collection<String> codes) {
+    final List<String> key = codes == null ? List.of() : List.copyOf(codes);
+    final AuthoritySet interned = INTERNED.get(key);
+
+    if (interned != null) {
+      return interned;
+    }
+
+    if (INTERNED.size() >= MAX_INTERNED) {
+      return new AuthoritySet(key);
+    }
+
+    return INTERNED.computeIfAbsent(key, AuthoritySet::new);
+  }
+
+  /**
+   * 获取权限代码列表。
+   *
+   * @return 不可变的权限代码列表
+   */
+  public List<String> getCodes() {
+    return codes;
+  }
+
+  /**
+   * 获取所拥有的全部功能权限（含下级权限）的位掩码。
+   *
+   * @return 位掩码，见 {@link AuthorityLattice#effectiveMask(Collection)}
+   */
+  public long getMask() {
+    return mask;
+  }
+
+  /**
+   * 获取 Spring Security 的权限集合。
+   *
+   * @return 不可变的权限集合
+   */
+  public List<GrantedAuthority> getGrantedAuthorities() {
+    return grantedAuthorities;
+  }
+
+  @Override
+  public String toString() {
+    return codes.toString();
+  }
+}
@@ -0,0 +1,234 @@
+package net.wuxianjie.springbootweb.auth;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.shared.util.RateLimitedLog;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 根据当前机器性能自动选择 cost 的 BCrypt 密码编码器。
+ *
+ * <ul>
+ *   <li>启动时实测 BCrypt 耗时，选择单次哈希耗时不超过目标耗时的最大 cost</li>
+ *   <li>cost 与目标值不一致的哈希密码需要升级，见 {@link #upgradeEncoding(String)}</li>
+ *   <li>按 cost 统计每次哈希（含校验）的耗时，每 {@value #STATS_LOG_INTERVAL_MIN} 分钟最多输出一次</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+public class CalibratedPasswordEncoder implements PasswordEncoder {
+
+  /**
+   * BCrypt 允许的最小 cost。
+   */
+  public static final int MIN_COST = 4;
+
+  /**
+   * BCrypt 允许的最大 cost。
+   */
+  public static final int MAX_COST = 31;
+
+  /**
+   * 校准时采样的 cost，耗时足够长以减少误差，又不至于拖慢启动。
+   */
+  private static final int SAMPLE_COST = 8;
+
+  /**
+   * 输出耗时统计日志的最小间隔，单位：分钟。
+   */
+  private static final long STATS_LOG_INTERVAL_MIN = 5;
+
+  /**
+   * 目标 cost。
+   */
+  @Getter
+  private final int cost;
+
+  private final BCryptPasswordEncoder delegate;
+
+  private final ConcurrentHashMap<Integer, Timing> timings = new ConcurrentHashMap<>();
+
+  private final RateLimitedLog statsLog = new RateLimitedLog(STATS_LOG_INTERVAL_MIN, TimeUnit.MINUTES);
+
+  /**
+   * 以指定的 cost 构造密码编码器。
+   *
+   * @param cost BCrypt cost
+   */
+  public CalibratedPasswordEncoder(final int cost) {
+    this.cost = cost;
+    this.delegate = new BCryptPasswordEncoder(cost);
+  }
+
+  /**
+   * 实测当前机器的 BCrypt 耗时，并构造单次哈希耗时不超过目标耗时的密码编码器。
+   *
+   * @param targetMs 单次哈希的目标耗时，单位：毫秒
+   * @param minCost 可接受的最小 cost，即使超出目标耗时也不会低于该值
+   * @param maxCost 可接受的最大 cost
+   * @return 密码编码器
+   */
+  public static CalibratedPasswordEncoder calibrate(final long targetMs, final int minCost, final int maxCost) {
+    final BCryptPasswordEncoder sampler = new BCryptPasswordEncoder(SAMPLE_COST);
+
+    // 先预热，避免 JIT 编译前的耗时影响结果
+    sampler.encode("calibration");
+
+    final int rounds = 3;
+    final long startNanos = System.nanoTime();
+
+    for (int i = 0; i < rounds; i++) {
+      sampler.encode("calibration");
+    }
+
+    final double sampleMs = (System.nanoTime() - startNanos) / 1_000_000.0 / rounds;
+
+    // cost 每加 1，耗时翻倍
+    int cost = SAMPLE_COST;
+    double estimatedMs = sampleMs;
+
+    while (cost < maxCost && estimatedMs * 2 <= targetMs) {
+      cost++;
+      estimatedMs *= 2;
+    }
+
+    while (cost > minCost && estimatedMs > targetMs) {
+      cost--;
+      estimatedMs /= 2;
+    }
+
+    cost = Math.max(minCost, Math.min(maxCost, cost));
+
+    log.info("BCrypt 校准完成 [cost={};targetMs={};estimatedMs={}]", cost, targetMs, Math.round(estimatedMs));
+
+    return new CalibratedPasswordEncoder(cost);
+  }
+
+  /**
+   * 从 BCrypt 哈希密码中解析 cost，格式为 {@code $2a$10$...}。
+   *
+   * @param encodedPassword BCrypt 哈希密码
+   * @return cost，若无法解析则返回 -1
+   */
+  public static int costOf(final String encodedPassword) {
+    if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+      return -1;
+    }
+
+    final int end = encodedPassword.indexOf('$', 1);
+
+    if (end < 0 || end + 3 >= encodedPassword.length() || encodedPassword.charAt(end + 3) != '$') {
+      return -1;
+    }
+
+    final char tens = encodedPassword.charAt(end + 1);
+    final char ones = encodedPassword.charAt(end + 2);
+
+    if (!Character.isDigit(tens) || !Character.isDigit(ones)) {
+      return -1;
+    }
+
+    return (tens - '0') * 10 + (ones - '0');
+  }
+
+  @Override
+  public String encode(final CharSequence rawPassword) {
+    final long startNanos = System.nanoTime();
+
+    try {
+      return delegate.encode(rawPassword);
+    } finally {
+      record(cost, startNanos);
+    }
+  }
+
+  @Override
+  public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+    final long startNanos = System.nanoTime();
+
+    try {
+      return delegate.matches(rawPassword, encodedPassword);
+    } finally {
+      record(costOf(encodedPassword), startNanos);
+    }
+  }
+
+  /**
+   * 判断哈希密码是否需要以目标 cost 重新编码。
+   *
+   * <p>与 {@link BCryptPasswordEncoder} 仅升级低于目标 cost 的哈希不同，这里 cost 不一致即需升级，
+   * <br>故在更换为较慢的机器后，过高 cost 的哈希密码也会被降级，以保证登录耗时可控。
+   *
+   * @param encodedPassword 哈希密码
+   * @return 是否需要重新编码
+   */
+  @Override
+  public boolean upgradeEncoding(final String encodedPassword) {
+    final int encodedCost = costOf(encodedPassword);
+
+    return encodedCost >= 0 && encodedCost != cost;
+  }
+
+  /**
+   * 获取按 cost 统计的哈希耗时。
+   *
+   * @return 哈希耗时（{@code {cost: Stats}}），按 cost 升序
+   */
+  public Map<Integer, Stats> getStats() {
+    final Map<Integer, Stats> stats = new TreeMap<>();
+
+    timings.forEach((c, t) -> {
+      final long count = t.count.sum();
+
+      stats.put(c, new Stats(count, count == 0 ? 0 : t.totalNanos.sum() / count / 1000, t.maxNanos / 1000));
+    });
+
+    return stats;
+  }
+
+  private void record(final int encodedCost, final long startNanos) {
+    if (encodedCost < 0) {
+      return;
+    }
+
+    final long elapsedNanos = System.nanoTime() - startNanos;
+    final Timing timing = timings.computeIfAbsent(encodedCost, k -> new Timing());
+
+    timing.count.increment();
+    timing.totalNanos.add(elapsedNanos);
+
+    if (elapsedNanos > timing.maxNanos) {
+      timing.maxNanos = elapsedNanos;
+    }
+
+    if (statsLog.tryAcquire("stats") >= 0) {
+      log.info("BCrypt 哈希耗时统计 [cost={};stats={}]", cost, getStats());
+    }
+  }
+
+  /**
+   * 某 cost 的哈希耗时统计。
+   *
+   * @param count 哈希次数
+   * @param avgMicros 平均耗时，单位：微秒
+   * @param maxMicros 最大耗时，单位：微秒
+   */
+  public record Stats(long count, long avgMicros, long maxMicros) {}
+
+  private static class Timing {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    // 仅用于统计，并发更新时偶尔丢失最大值可以接受
+    private volatile long maxNanos;
+  }
+}
@@ -0,0 +1,244 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import net.wuxianjie.springbootweb.auth.dto.StoredSession;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * 多节点共享的登录会话存储，用于集群部署。
+ *
+ * <ul>
+ *   <li>会话保存在数据库 {@code login_session} 表中，所有节点共享</li>
+ *   <li>每个节点在本地保留一份近端缓存（{@link TimingWheelSessionStore}），命中时无需访问数据库</li>
+ *   <li>添加、替换或移除会话时向 {@code login_session_event} 表追加一条变更事件，
+ *   其他节点定时拉取事件并清除近端缓存中对应的会话，下次读取时再从数据库加载</li>
+ * </ul>
+ *
+ * <p>为防止因漏读事件而长期使用过期数据，近端缓存中的会话最多只保留 {@code nearCacheTtlMs}。
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+public class ClusteredSessionStore implements SessionStore, AutoCloseable {
+
+  /**
+   * 每次拉取的最大事件数。
+   */
+  private static final int EVENT_BATCH_SIZE = 1000;
+
+  /**
+   * 变更事件的保留时长，单位：毫秒。
+   */
+  private static final long EVENT_RETENTION_MS = TimeUnit.MINUTES.toMillis(10);
+
+  /**
+   * 清理过期会话及事件的间隔，单位：秒。
+   */
+  private static final long CLEANUP_INTERVAL_SEC = 60;
+
+  private final SessionMapper sessionMapper;
+  private final TimingWheelSessionStore nearCache;
+  private final ScheduledExecutorService scheduler;
+  private final long nearCacheTtlMs;
+
+  /**
+   * 当前节点 id，用于忽略当前节点自身产生的事件。
+   */
+  @Getter
+  private final String nodeId = IdUtil.fastSimpleUUID();
+
+  /**
+   * 已处理的最后一条事件 id，仅由拉取线程读写。
+   */
+  private long lastEventId;
+
+  /**
+   * 构造集群会话存储，并开始拉取变更事件。
+   *
+   * @param sessionMapper 会话相关的 SQL 语句
+   * @param nearCacheTtlMs 近端缓存中会话的最长保留时长，单位：毫秒
+   * @param pollIntervalMs 拉取变更事件的间隔，单位：毫秒
+   */
+  public ClusteredSessionStore(
+    final SessionMapper sessionMapper,
+    final long nearCacheTtlMs,
+    final long pollIntervalMs
+  ) {
+    this.sessionMapper = sessionMapper;
+    this.nearCacheTtlMs = nearCacheTtlMs;
+
+    // 滑动过期无法同步至其他节点，故集群模式下不启用
+    this.nearCache = new TimingWheelSessionStore(nearCacheTtlMs, false);
+
+    // 近端缓存初始为空，故只需处理此后的事件
+    this.lastEventId = sessionMapper.selectMaxEventId();
+
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "session-cluster");
+      thread.setDaemon(true);
+
+      return thread;
+    });
+
+    scheduler.scheduleWithFixedDelay(this::pollEvents, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    scheduler.scheduleWithFixedDelay(this::cleanup, CLEANUP_INTERVAL_SEC, CLEANUP_INTERVAL_SEC, TimeUnit.SECONDS);
+
+    log.info("已启用集群会话存储 [nodeId={};lastEventId={}]", nodeId, lastEventId);
+  }
+
+  @Override
+  public Optional<LoginSession> get(final String username) {
+    final Optional<LoginSession> cached = nearCache.get(username);
+
+    if (cached.isPresent()) {
+      return cached;
+    }
+
+    final long now = System.currentTimeMillis();
+    final StoredSession stored = sessionMapper.selectByUsername(username, now);
+
+    if (stored == null) {
+      return Optional.empty();
+    }
+
+    nearCache.put(username, stored.getSession(), Math.min(stored.getExpiresAt() - now, nearCacheTtlMs));
+
+    return Optional.of(stored.getSession());
+  }
+
+  /**
+   * 清除近端缓存中的会话后从数据库重新加载。
+   *
+   * <p>其他节点刚替换会话时，本节点在拉取到事件前（最长为拉取间隔，漏读事件时最长为 {@code nearCacheTtlMs}）
+   * <br>仍持有旧会话，新签发的 Token 会因摘要不一致而被误判为已废弃，故判定前需以数据库为准。
+   */
+  @Override
+  public Optional<LoginSession> reload(final String username) {
+    nearCache.remove(username);
+
+    return get(username);
+  }
+
+  @Override
+  public void put(final String username, final LoginSession session) {
+    final long now = System.currentTimeMillis();
+
+    // 先写会话再写事件，保证其他节点收到事件后一定能读取到新会话
+    sessionMapper.upsert(username, session, toAuthoritiesCsv(session), now + AuthProps.TOKEN_EXP_SEC * 1000L);
+    sessionMapper.insertEvent(username, nodeId, now);
+
+    nearCache.put(username, session, Math.min(AuthProps.TOKEN_EXP_SEC * 1000L, nearCacheTtlMs));
+  }
+
+  @Override
+  public void remove(final String username) {
+    sessionMapper.deleteByUsername(username);
+    sessionMapper.insertEvent(username, nodeId, System.currentTimeMillis());
+
+    nearCache.remove(username);
+  }
+
+  @Override
+  public void removeByUserId(final long userId) {
+    sessionMapper.selectByUserId(userId, System.currentTimeMillis())
+      .forEach(stored -> remove(stored.getSession().getUsername()));
+  }
+
+  /**
+   * 修改指定用户的登录会话。
+   *
+   * <p>以数据库中的会话为准，修改后写回数据库，并通知所有节点清除近端缓存。
+   *
+   * @param userId 用户 id
+   * @param patch 由原会话创建新会话的操作
+   */
+  @Override
+  public void updateByUserId(final long userId, final UnaryOperator<LoginSession> patch) {
+    sessionMapper.selectByUserId(userId, System.currentTimeMillis()).forEach(stored -> patchAndSave(stored, patch));
+  }
+
+  /**
+   * 修改指定角色下所有用户的登录会话。
+   *
+   * <p>以数据库中的会话为准，修改后写回数据库，并通知所有节点清除近端缓存。
+   *
+   * @param roleId 角色 id
+   * @param patch 由原会话创建新会话的操作
+   */
+  @Override
+  public void updateByRoleId(final long roleId, final UnaryOperator<LoginSession> patch) {
+    sessionMapper.selectByRoleId(roleId, System.currentTimeMillis()).forEach(stored -> patchAndSave(stored, patch));
+  }
+
+  /**
+   * 获取近端缓存的统计数据。
+   *
+   * @return 近端缓存的统计数据
+   */
+  @Override
+  public Stats getStats() {
+    return nearCache.getStats();
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    nearCache.close();
+  }
+
+  private void patchAndSave(final StoredSession stored, final UnaryOperator<LoginSession> patch) {
+    final LoginSession session = patch.apply(stored.getSession());
+    final String username = session.getUsername();
+
+    sessionMapper.upsert(username, session, toAuthoritiesCsv(session), stored.getExpiresAt());
+    sessionMapper.insertEvent(username, nodeId, System.currentTimeMillis());
+
+    // 近端缓存中的会话可能已过时，直接清除，下次读取时再从数据库加载
+    nearCache.remove(username);
+  }
+
+  private void pollEvents() {
+    try {
+      List<SessionMapper.SessionEvent> events;
+
+      do {
+        events = sessionMapper.selectEventsAfterLimit(lastEventId, EVENT_BATCH_SIZE);
+
+        for (final SessionMapper.SessionEvent event : events) {
+          if (!nodeId.equals(event.nodeId())) {
+            nearCache.remove(event.username());
+          }
+
+          lastEventId = event.id();
+        }
+      } while (events.size() == EVENT_BATCH_SIZE);
+    } catch (Exception e) {
+      log.error("拉取会话变更事件失败", e);
+    }
+  }
+
+  private static String toAuthoritiesCsv(final LoginSession session) {
+    return StrUtil.join(StrUtil.COMMA, session.getAuthorities());
+  }
+
+  private void cleanup() {
+    try {
+      final long now = System.currentTimeMillis();
+
+      sessionMapper.deleteExpired(now);
+      sessionMapper.deleteEventsBefore(now - EVENT_RETENTION_MS);
+    } catch (Exception e) {
+      log.error("清理过期会话失败", e);
+    }
+  }
+}
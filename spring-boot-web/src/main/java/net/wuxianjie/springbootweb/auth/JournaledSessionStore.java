@@ -0,0 +1,207 @@
+package net.wuxianjie.springbootweb.auth;
+
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * 可在重启后恢复的登录会话存储。
+ *
+ * <p>会话仍保存在 {@link TimingWheelSessionStore} 中，每次添加或移除会话时额外追加一条记录至 {@link SessionJournal}。
+ * <br>创建时会先回放日志以恢复会话，故在服务就绪前所有未过期的会话均已恢复。
+ *
+ * <p>日志会定期压缩为仅包含当前有效会话的快照，日志使用率过高时也会提前压缩。
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+public class JournaledSessionStore implements SessionStore, AutoCloseable {
+
+  /**
+   * 日志使用率超过该值时，不再等待定期压缩而是立即压缩。
+   */
+  private static final double COMPACT_USAGE_THRESHOLD = 0.75;
+
+  private final TimingWheelSessionStore delegate;
+  private final SessionJournal journal;
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * 打开会话日志并恢复会话。
+   *
+   * @param delegate 实际保存会话的存储
+   * @param path 日志文件路径
+   * @param initialSizeBytes 日志文件初始映射大小，单位：字节
+   * @param compactIntervalSec 定期压缩日志的间隔，单位：秒
+   * @throws UncheckedIOException 当无法打开日志文件时抛出
+   */
+  public JournaledSessionStore(
+    final TimingWheelSessionStore delegate,
+    final Path path,
+    final long initialSizeBytes,
+    final long compactIntervalSec
+  ) {
+    this.delegate = delegate;
+
+    try {
+      this.journal = new SessionJournal(path, initialSizeBytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException("无法打开会话日志: " + path, e);
+    }
+
+    restore();
+
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "session-journal");
+      thread.setDaemon(true);
+
+      return thread;
+    });
+
+    // 每秒落盘一次，并在使用率过高时提前压缩
+    scheduler.scheduleWithFixedDelay(this::flushOrCompact, 1, 1, TimeUnit.SECONDS);
+    scheduler.scheduleWithFixedDelay(this::compact, compactIntervalSec, compactIntervalSec, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public Optional<LoginSession> get(final String username) {
+    return delegate.get(username);
+  }
+
+  /**
+   * 添加会话。
+   *
+   * <p>写内存与写日志在同一临界区内完成，保证同一用户的多次写入在日志中的顺序与内存一致，
+   * <br>且压缩日志时不会丢失刚写入的会话。日志不可用时仅记录错误，会话仍然有效，只是重启后无法恢复。
+   *
+   * @param username 用户名
+   * @param session 登录会话
+   */
+  @Override
+  public void put(final String username, final LoginSession session) {
+    synchronized (journal) {
+      delegate.put(username, session);
+
+      journaled(() -> journal.appendPut(username, session, System.currentTimeMillis() + AuthProps.TOKEN_EXP_SEC * 1000L));
+    }
+  }
+
+  @Override
+  public void remove(final String username) {
+    synchronized (journal) {
+      delegate.remove(username);
+
+      journaled(() -> journal.appendRemove(username));
+    }
+  }
+
+  @Override
+  public void removeByUserId(final long userId) {
+    final List<String> usernames = new ArrayList<>(1);
+
+    delegate.forEachByUserId(userId, (username, session, remainingMs) -> usernames.add(username));
+
+    usernames.forEach(this::remove);
+  }
+
+  @Override
+  public void updateByUserId(final long userId, final UnaryOperator<LoginSession> patch) {
+    synchronized (journal) {
+      delegate.updateByUserId(userId, patch, this::appendPut);
+    }
+  }
+
+  @Override
+  public void updateByRoleId(final long roleId, final UnaryOperator<LoginSession> patch) {
+    synchronized (journal) {
+      delegate.updateByRoleId(roleId, patch, this::appendPut);
+    }
+  }
+
+  @Override
+  public Stats getStats() {
+    return delegate.getStats();
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+
+    try {
+      journal.close();
+    } catch (IOException e) {
+      log.error("关闭会话日志失败", e);
+    }
+
+    delegate.close();
+  }
+
+  private void appendPut(final String username, final LoginSession session, final long remainingMs) {
+    journaled(() -> journal.appendPut(username, session, System.currentTimeMillis() + remainingMs));
+  }
+
+  private void journaled(final Runnable append) {
+    try {
+      append.run();
+    } catch (RuntimeException e) {
+      log.error("写入会话日志失败，该变更在重启后将无法恢复", e);
+    }
+  }
+
+  private void restore() {
+    final long now = System.currentTimeMillis();
+    final Map<String, SessionJournal.Replayed> sessions = journal.replay(now);
+
+    sessions.forEach((username, replayed) ->
+      delegate.put(username, replayed.session(), replayed.expiresAtEpochMs() - now)
+    );
+
+    log.info("已从会话日志中恢复 {} 个会话", sessions.size());
+
+    compact();
+  }
+
+  private void flushOrCompact() {
+    try {
+      if (journal.usage() > COMPACT_USAGE_THRESHOLD) {
+        compact();
+
+        return;
+      }
+
+      journal.flush();
+    } catch (Exception e) {
+      log.error("会话日志落盘失败", e);
+    }
+  }
+
+  private void compact() {
+    // 持有日志锁期间获取快照，保证快照之后写入的会话都会追加至压缩后的日志
+    synchronized (journal) {
+      final long now = System.currentTimeMillis();
+      final Map<String, SessionJournal.Replayed> sessions = new HashMap<>();
+
+      delegate.forEach((username, session, remainingMs) ->
+        sessions.put(username, new SessionJournal.Replayed(session, now + remainingMs))
+      );
+
+      try {
+        journal.compact(sessions);
+      } catch (Exception e) {
+        log.error("会话日志压缩失败", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,667 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.jwt.JWTHeader;
+import cn.hutool.jwt.JWTPayload;
+
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 专用于本系统 JWT 的请求头及载荷解码器。
+ *
+ * <p>直接扫描 Base64URL 解码后的字节，仅提取 {@link TokenService} 需要的字段，
+ * <br>其他字段只检查格式后跳过，不构造 JSON 对象、Map 或无用的字符串。
+ *
+ * <ul>
+ *   <li>Base64URL 解码至线程内复用的缓冲区</li>
+ *   <li>{@code iss} 及 {@code type} 与常量逐字节比较，相同时直接返回常量</li>
+ *   <li>数值字段直接解析为 {@code long}</li>
+ * </ul>
+ *
+ * <p>只处理严格符合 JSON 规范且字段类型符合预期的 Token，例如不含重复字段、数值字段为整数、字符串字段不为 {@code null}；
+ * <br>其他情况返回 {@code null}，由调用方改用 Hutool 的通用解析器，从而保证与原解析结果完全一致。
+ *
+ * @author 吴仙杰
+ */
+final class JwtClaimDecoder {
+
+  private static final int[] BASE64URL = new int[128];
+
+  static {
+    Arrays.fill(BASE64URL, -1);
+
+    final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    for (int i = 0; i < alphabet.length(); i++) {
+      BASE64URL[alphabet.charAt(i)] = i;
+    }
+  }
+
+  // 请求头字段
+  private static final int ALG = 0;
+  private static final int KID = 1;
+
+  private static final Field[] HEADER_FIELDS = {
+    new Field(JWTHeader.ALGORITHM, true),
+    new Field(JWTHeader.KEY_ID, true)
+  };
+
+  // 载荷字段
+  private static final int USERNAME = 0;
+  private static final int TYPE = 1;
+  private static final int ISS = 2;
+  private static final int EXP = 3;
+  private static final int USER_ID = 4;
+  private static final int STATUS = 5;
+  private static final int ROLE_ID = 6;
+  private static final int AUTHORITIES = 7;
+  private static final int ISSUED_AT_MS = 8;
+
+  private static final Field[] CLAIM_FIELDS = {
+    new Field(AuthProps.JWT_PAYLOAD_USERNAME, true),
+    new Field(AuthProps.JWT_PAYLOAD_TYPE, true),
+    new Field(JWTPayload.ISSUER, true),
+    new Field(JWTPayload.EXPIRES_AT, false),
+    new Field(AuthProps.JWT_PAYLOAD_USER_ID, false),
+    new Field(AuthProps.JWT_PAYLOAD_STATUS, false),
+    new Field(AuthProps.JWT_PAYLOAD_ROLE_ID, false),
+    new Field(AuthProps.JWT_PAYLOAD_AUTHORITIES, true),
+    new Field(AuthProps.JWT_PAYLOAD_ISSUED_AT_MS, false)
+  };
+
+  /**
+   * 出现频率最高的字符串值，与其字节相同时直接返回常量，无需创建字符串。
+   */
+  private static final String[] CONSTANTS = {
+    AuthProps.TOKEN_ISSUER,
+    AuthProps.TOKEN_TYPE_ACCESS,
+    AuthProps.TOKEN_TYPE_REFRESH,
+    "HS256"
+  };
+
+  private static final byte[][] CONSTANT_BYTES = Arrays.stream(CONSTANTS)
+    .map(s -> s.getBytes(StandardCharsets.UTF_8))
+    .toArray(byte[][]::new);
+
+  /**
+   * JSON 嵌套的最大深度，超出时交由通用解析器处理。
+   */
+  private static final int MAX_DEPTH = 32;
+
+  private static final ThreadLocal<Scanner> SCANNERS = ThreadLocal.withInitial(Scanner::new);
+
+  private JwtClaimDecoder() {}
+
+  /**
+   * 解码 JWT 的请求头及载荷。
+   *
+   * @param token JWT Token
+   * @param firstDot 第一个 {@code .} 的位置
+   * @param secondDot 第二个 {@code .} 的位置
+   * @return 解码结果，当 Token 不适合快速解码时返回 {@code null}
+   */
+  static Decoded decode(final String token, final int firstDot, final int secondDot) {
+    final Scanner scanner = SCANNERS.get();
+
+    if (!scanner.scan(token, 0, firstDot, HEADER_FIELDS)) {
+      return null;
+    }
+
+    final String algorithm = scanner.strings[ALG];
+    final String keyId = scanner.strings[KID];
+
+    if (!scanner.scan(token, firstDot + 1, secondDot, CLAIM_FIELDS)) {
+      return null;
+    }
+
+    final boolean hasUserId = scanner.isPresent(USER_ID);
+
+    return new Decoded(
+      algorithm,
+      keyId,
+      scanner.strings[USERNAME],
+      scanner.strings[TYPE],
+      scanner.strings[ISS],
+      scanner.getLong(EXP),
+      hasUserId,
+      scanner.getLong(USER_ID),
+      scanner.getLong(STATUS),
+      scanner.getLong(ROLE_ID),
+      scanner.strings[AUTHORITIES],
+      scanner.getLong(ISSUED_AT_MS)
+    );
+  }
+
+  /**
+   * 将 Base64URL 字符串（不含填充）解码至指定数组。
+   *
+   * @param src 源字符串
+   * @param from 起始位置（含）
+   * @param to 结束位置（不含）
+   * @param dst 目标数组，容量不足时返回 -1
+   * @return 解码后的字节数，当格式错误或容量不足时返回 -1
+   */
+  static int decodeBase64Url(final CharSequence src, final int from, final int to, final byte[] dst) {
+    final int len = to - from;
+
+    if (len % 4 == 1 || len * 3 / 4 > dst.length) {
+      return -1;
+    }
+
+    int bits = 0;
+    int bitCount = 0;
+    int n = 0;
+
+    for (int i = from; i < to; i++) {
+      final char c = src.charAt(i);
+      final int v = c < 128 ? BASE64URL[c] : -1;
+
+      if (v < 0) {
+        return -1;
+      }
+
+      bits = (bits << 6) | v;
+      bitCount += 6;
+
+      if (bitCount >= 8) {
+        bitCount -= 8;
+        dst[n++] = (byte) (bits >> bitCount);
+      }
+    }
+
+    // 末尾多余的位必须为 0，否则同一内容存在多种编码
+    if ((bits & ((1 << bitCount) - 1)) != 0) {
+      return -1;
+    }
+
+    return n;
+  }
+
+  /**
+   * 解码结果，字段不存在时为 {@code null}。
+   *
+   * @param algorithm 请求头 {@code alg}
+   * @param keyId 请求头 {@code kid}
+   * @param username 用户名
+   * @param type Token 类型
+   * @param issuer 签发者
+   * @param expiresAt 过期时间，单位：秒
+   * @param hasUserId 是否含有用户 id，即是否为无状态 Token
+   * @param userId 用户 id
+   * @param status 账号状态
+   * @param roleId 角色 id
+   * @param authorities 十六进制的功能权限位
+   * @param issuedAtMs 签发时间，单位：毫秒
+   */
+  record Decoded(
+    String algorithm,
+    String keyId,
+    String username,
+    String type,
+    String issuer,
+    Long expiresAt,
+    boolean hasUserId,
+    Long userId,
+    Long status,
+    Long roleId,
+    String authorities,
+    Long issuedAtMs
+  ) {}
+
+  private record Field(byte[] name, boolean string) {
+
+    Field(final String name, final boolean string) {
+      this(name.getBytes(StandardCharsets.US_ASCII), string);
+    }
+  }
+
+  /**
+   * 线程内复用的扫描器。
+   */
+  private static class Scanner {
+
+    private final byte[] buf = new byte[4096];
+    private final String[] strings = new String[CLAIM_FIELDS.length];
+    private final long[] longs = new long[CLAIM_FIELDS.length];
+
+    private int len;
+    private int pos;
+    private int present;
+
+    boolean isPresent(final int field) {
+      return (present & (1 << field)) != 0;
+    }
+
+    Long getLong(final int field) {
+      return isPresent(field) ? longs[field] : null;
+    }
+
+    boolean scan(final String token, final int from, final int to, final Field[] fields) {
+      len = decodeBase64Url(token, from, to, buf);
+
+      if (len < 0) {
+        return false;
+      }
+
+      pos = 0;
+      present = 0;
+      Arrays.fill(strings, null);
+
+      try {
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+
+        if (peek() == '}') {
+          pos++;
+        } else {
+          while (true) {
+            final int field = readKey(fields);
+
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            if (field < 0) {
+              skipValue(0);
+            } else {
+              if (isPresent(field)) {
+                return false;
+              }
+
+              present |= 1 << field;
+
+              if (fields[field].string()) {
+                if (peek() != '"') {
+                  return false;
+                }
+
+                strings[field] = readString();
+              } else {
+                longs[field] = readLong();
+              }
+            }
+
+            skipWhitespace();
+
+            if (peek() == ',') {
+              pos++;
+              skipWhitespace();
+
+              continue;
+            }
+
+            expect('}');
+
+            break;
+          }
+        }
+
+        skipWhitespace();
+
+        return pos == len;
+      } catch (Malformed | ArithmeticException e) {
+        return false;
+      }
+    }
+
+    // 仅支持不含转义字符的字段名，返回匹配的字段下标，未知字段返回 -1
+    private int readKey(final Field[] fields) {
+      expect('"');
+
+      final int start = pos;
+
+      while (true) {
+        final int b = next();
+
+        if (b == '"') {
+          break;
+        }
+
+        if (b == '\\' || b < 0x20 || b >= 0x80) {
+          throw Malformed.INSTANCE;
+        }
+      }
+
+      final int end = pos - 1;
+
+      for (int i = 0; i < fields.length; i++) {
+        if (Arrays.equals(buf, start, end, fields[i].name(), 0, fields[i].name().length)) {
+          return i;
+        }
+      }
+
+      return -1;
+    }
+
+    private String readString() {
+      expect('"');
+
+      final int start = pos;
+      boolean simple = true;
+
+      while (true) {
+        final int b = next();
+
+        if (b == '"') {
+          break;
+        }
+
+        if (b == '\\') {
+          simple = false;
+          next();
+        } else if (b < 0x20) {
+          throw Malformed.INSTANCE;
+        } else if (b >= 0x80) {
+          simple = false;
+        }
+      }
+
+      final int end = pos - 1;
+
+      for (int i = 0; i < CONSTANTS.length; i++) {
+        final byte[] constant = CONSTANT_BYTES[i];
+
+        if (Arrays.equals(buf, start, end, constant, 0, constant.length)) {
+          return CONSTANTS[i];
+        }
+      }
+
+      if (simple) {
+        return new String(buf, start, end - start, StandardCharsets.ISO_8859_1);
+      }
+
+      return unescape(start, end);
+    }
+
+    private String unescape(final int start, final int end) {
+      final StringBuilder sb = new StringBuilder(end - start);
+      int runStart = start;
+      int i = start;
+
+      while (i < end) {
+        if (buf[i] != '\\') {
+          i++;
+
+          continue;
+        }
+
+        appendUtf8(sb, runStart, i);
+
+        final int c = buf[i + 1];
+
+        i += 2;
+
+        switch (c) {
+          case '"' -> sb.append('"');
+          case '\\' -> sb.append('\\');
+          case '/' -> sb.append('/');
+          case 'b' -> sb.append('\b');
+          case 'f' -> sb.append('\f');
+          case 'n' -> sb.append('\n');
+          case 'r' -> sb.append('\r');
+          case 't' -> sb.append('\t');
+          case 'u' -> {
+            if (i + 4 > end) {
+              throw Malformed.INSTANCE;
+            }
+
+            sb.append((char) (hex(buf[i]) << 12 | hex(buf[i + 1]) << 8 | hex(buf[i + 2]) << 4 | hex(buf[i + 3])));
+            i += 4;
+          }
+          default -> throw Malformed.INSTANCE;
+        }
+
+        runStart = i;
+      }
+
+      appendUtf8(sb, runStart, end);
+
+      return sb.toString();
+    }
+
+    // 严格解码 UTF-8，非法字节序列交由通用解析器处理
+    private void appendUtf8(final StringBuilder sb, final int from, final int to) {
+      if (from == to) {
+        return;
+      }
+
+      try {
+        sb.append(StandardCharsets.UTF_8.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPORT)
+          .onUnmappableCharacter(CodingErrorAction.REPORT)
+          .decode(ByteBuffer.wrap(buf, from, to - from)));
+      } catch (CharacterCodingException e) {
+        throw Malformed.INSTANCE;
+      }
+    }
+
+    // 仅支持不含小数及指数的整数，且不可溢出
+    private long readLong() {
+      final boolean negative = peek() == '-';
+
+      if (negative) {
+        pos++;
+      }
+
+      final int start = pos;
+      long value = 0;
+
+      while (pos < len && buf[pos] >= '0' && buf[pos] <= '9') {
+        value = Math.addExact(Math.multiplyExact(value, 10), buf[pos] - '0');
+        pos++;
+      }
+
+      final int digits = pos - start;
+
+      // Hutool 不会将 `-0` 解析为数值
+      if (digits == 0 || (digits > 1 && buf[start] == '0') || (negative && value == 0)) {
+        throw Malformed.INSTANCE;
+      }
+
+      if (pos < len && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E')) {
+        throw Malformed.INSTANCE;
+      }
+
+      return negative ? -value : value;
+    }
+
+    private void skipValue(final int depth) {
+      if (depth > MAX_DEPTH) {
+        throw Malformed.INSTANCE;
+      }
+
+      final int b = peek();
+
+      switch (b) {
+        case '"' -> skipString();
+        case '{' -> skipContainer('}', depth, true);
+        case '[' -> skipContainer(']', depth, false);
+        case 't' -> expectLiteral("true");
+        case 'f' -> expectLiteral("false");
+        case 'n' -> expectLiteral("null");
+        default -> skipNumber();
+      }
+    }
+
+    private void skipContainer(final char close, final int depth, final boolean object) {
+      pos++;
+      skipWhitespace();
+
+      if (peek() == close) {
+        pos++;
+
+        return;
+      }
+
+      while (true) {
+        if (object) {
+          skipString();
+          skipWhitespace();
+          expect(':');
+          skipWhitespace();
+        }
+
+        skipValue(depth + 1);
+        skipWhitespace();
+
+        if (peek() == ',') {
+          pos++;
+          skipWhitespace();
+
+          continue;
+        }
+
+        expect(close);
+
+        return;
+      }
+    }
+
+    private void skipString() {
+      expect('"');
+
+      final int start = pos;
+      boolean ascii = true;
+
+      while (true) {
+        final int b = next();
+
+        if (b == '"') {
+          break;
+        }
+
+        if (b == '\\') {
+          final int c = next();
+
+          if (c == 'u') {
+            for (int i = 0; i < 4; i++) {
+              hex(next());
+            }
+          } else if ("\"\\/bfnrt".indexOf(c) < 0) {
+            throw Malformed.INSTANCE;
+          }
+        } else if (b < 0x20) {
+          throw Malformed.INSTANCE;
+        } else if (b >= 0x80) {
+          ascii = false;
+        }
+      }
+
+      if (!ascii) {
+        appendUtf8(new StringBuilder(), start, pos - 1);
+      }
+    }
+
+    private void skipNumber() {
+      if (peek() == '-') {
+        pos++;
+      }
+
+      final int start = pos;
+
+      while (pos < len && buf[pos] >= '0' && buf[pos] <= '9') {
+        pos++;
+      }
+
+      final int digits = pos - start;
+
+      if (digits == 0 || (digits > 1 && buf[start] == '0')) {
+        throw Malformed.INSTANCE;
+      }
+
+      if (pos < len && buf[pos] == '.') {
+        pos++;
+
+        if (!skipDigits()) {
+          throw Malformed.INSTANCE;
+        }
+      }
+
+      if (pos < len && (buf[pos] == 'e' || buf[pos] == 'E')) {
+        pos++;
+
+        if (pos < len && (buf[pos] == '+' || buf[pos] == '-')) {
+          pos++;
+        }
+
+        if (!skipDigits()) {
+          throw Malformed.INSTANCE;
+        }
+      }
+    }
+
+    private boolean skipDigits() {
+      final int start = pos;
+
+      while (pos < len && buf[pos] >= '0' && buf[pos] <= '9') {
+        pos++;
+      }
+
+      return pos > start;
+    }
+
+    private void expectLiteral(final String literal) {
+      for (int i = 0; i < literal.length(); i++) {
+        expect(literal.charAt(i));
+      }
+    }
+
+    private void skipWhitespace() {
+      while (pos < len && (buf[pos] == ' ' || buf[pos] == '\t' || buf[pos] == '\n' || buf[pos] == '\r')) {
+        pos++;
+      }
+    }
+
+    private void expect(final char c) {
+      if (next() != c) {
+        throw Malformed.INSTANCE;
+      }
+    }
+
+    private int peek() {
+      if (pos >= len) {
+        throw Malformed.INSTANCE;
+      }
+
+      return buf[pos] & 0xFF;
+    }
+
+    private int next() {
+      final int b = peek();
+
+      pos++;
+
+      return b;
+    }
+
+    private static int hex(final int b) {
+      final int v = Character.digit(b, 16);
+
+      if (v < 0) {
+        throw Malformed.INSTANCE;
+      }
+
+      return v;
+    }
+  }
+
+  /**
+   * 格式不符合快速解码的要求，无堆栈信息，仅用于跳出扫描。
+   */
+  private static class Malformed extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final Malformed INSTANCE = new Malformed();
+
+    private Malformed() {
+      super(null, null, false, false);
+    }
+  }
+}
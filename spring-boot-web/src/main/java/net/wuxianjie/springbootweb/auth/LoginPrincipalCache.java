@@ -0,0 +1,214 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.auth.dto.AuthData;
+import net.wuxianjie.springbootweb.role.RoleChangedEvent;
+import net.wuxianjie.springbootweb.user.UserChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录用户数据的读穿透缓存，位于 {@link AuthMapper#selectByUsername(String)} 之前。
+ *
+ * <p>登录及刷新 Token 时均需查询用户及其角色，缓存后可避免频繁刷新 Token 时反复查询数据库：
+ *
+ * <ul>
+ *   <li>以小写用户名作为键，容量有限，按 LRU 淘汰</li>
+ *   <li>用户变更（{@link UserChangedEvent}）时移除该用户，角色功能权限变更（{@link RoleChangedEvent}）时移除该角色下的所有用户</li>
+ *   <li>集群模式下，其他节点的用户或角色变更不会通知到本节点，故条目仅保留 {@value #CLUSTER_ENTRY_TTL_MS} 毫秒，
+ *   <br>只用于合并短时间内的重复查询</li>
+ *   <li>返回的是副本，调用方可自由修改，如写入 Token 后保存至登录会话</li>
+ *   <li>每 {@value #REPORT_INTERVAL_MIN} 分钟最多输出一次命中率日志</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+@Component
+public class LoginPrincipalCache {
+
+  /**
+   * 缓存的最大用户数。
+   */
+  private static final int CAPACITY = 10_000;
+
+  /**
+   * 缓存条目的最长保留时长，作为漏掉失效事件（如直接修改数据库）时的兜底。
+   */
+  private static final long ENTRY_TTL_MS = AuthProps.TOKEN_EXP_SEC * 1000L;
+
+  /**
+   * 集群模式下缓存条目的最长保留时长。
+   */
+  private static final long CLUSTER_ENTRY_TTL_MS = 5_000;
+
+  /**
+   * 输出命中率日志的最小间隔，单位：分钟。
+   */
+  private static final long REPORT_INTERVAL_MIN = 5;
+
+  private final AuthMapper authMapper;
+
+  private final LRUCache<String, AuthData> cache;
+
+  /**
+   * 用户 id 所对应的缓存键，用于按用户 id 失效。
+   */
+  private final Map<Long, String> usernameByUserId = new ConcurrentHashMap<>();
+
+  /**
+   * 失效次数，用于丢弃在失效前就已开始的数据库查询结果，防止旧数据被写回缓存。
+   */
+  private final AtomicLong invalidations = new AtomicLong();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private final AtomicLong lastReportNanos = new AtomicLong(System.nanoTime());
+
+  public LoginPrincipalCache(final AuthMapper authMapper, final AuthProps authProps) {
+    this.authMapper = authMapper;
+
+    final long ttlMs = authProps.getSession().getMode() == AuthProps.SessionMode.CLUSTER
+      ? CLUSTER_ENTRY_TTL_MS
+      : ENTRY_TTL_MS;
+
+    this.cache = CacheUtil.newLRUCache(CAPACITY, ttlMs);
+
+    // 条目被淘汰或过期时同步清理反向索引，仅当索引仍指向该条目时才移除
+    this.cache.setListener((username, auth) -> usernameByUserId.remove(auth.getUserId(), username));
+  }
+
+  /**
+   * 获取登录用户数据，未命中时查询数据库。
+   *
+   * @param username 用户名，不区分大小写
+   * @return 登录用户数据的副本，若用户不存在则返回 {@code null}
+   */
+  public AuthData get(final String username) {
+    final String key = username.toLowerCase();
+    final AuthData cached = cache.get(key, false);
+
+    reportIfDue();
+
+    if (cached != null) {
+      hits.increment();
+
+      return copyOf(cached);
+    }
+
+    misses.increment();
+
+    final long version = invalidations.get();
+    final AuthData loaded = authMapper.selectByUsername(key);
+
+    if (loaded == null) {
+      return null;
+    }
+
+    // 缓存中保存驻留的不可变权限列表，避免与副本共享可变状态
+    loaded.setAuthorities(AuthoritySet.of(loaded.getAuthorities()).getCodes());
+
+    if (invalidations.get() == version) {
+      usernameByUserId.put(loaded.getUserId(), key);
+      cache.put(key, loaded);
+    }
+
+    return copyOf(loaded);
+  }
+
+  /**
+   * 获取缓存的统计数据。
+   *
+   * @return 统计数据
+   */
+  public Stats getStats() {
+    final long hitCount = hits.sum();
+    final long missCount = misses.sum();
+    final long total = hitCount + missCount;
+
+    return new Stats(cache.size(), hitCount, missCount, total == 0 ? 0 : (double) hitCount / total);
+  }
+
+  /**
+   * 获取反向索引中的用户数，正常情况下不超过缓存的用户数。
+   *
+   * @return 反向索引中的用户数
+   */
+  int indexSize() {
+    return usernameByUserId.size();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserChanged(final UserChangedEvent event) {
+    invalidations.incrementAndGet();
+
+    final String username = usernameByUserId.remove(event.userId());
+
+    if (username != null) {
+      cache.remove(username);
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onRoleChanged(final RoleChangedEvent event) {
+    invalidations.incrementAndGet();
+
+    for (final AuthData auth : cache) {
+      if (auth.getRoleId() != event.roleId()) {
+        continue;
+      }
+
+      final String username = usernameByUserId.remove(auth.getUserId());
+
+      if (username != null) {
+        cache.remove(username);
+      }
+    }
+  }
+
+  private void reportIfDue() {
+    final long last = lastReportNanos.get();
+    final long now = System.nanoTime();
+
+    if (now - last < TimeUnit.MINUTES.toNanos(REPORT_INTERVAL_MIN) || !lastReportNanos.compareAndSet(last, now)) {
+      return;
+    }
+
+    final Stats stats = getStats();
+
+    log.info("登录用户缓存统计 [size={};hits={};misses={};hitRate={}]",
+      stats.size(), stats.hits(), stats.misses(), String.format("%.3f", stats.hitRate()));
+  }
+
+  private static AuthData copyOf(final AuthData source) {
+    final AuthData copy = new AuthData();
+    copy.setUserId(source.getUserId());
+    copy.setUsername(source.getUsername());
+    copy.setHashedPassword(source.getHashedPassword());
+    copy.setNickname(source.getNickname());
+    copy.setStatus(source.getStatus());
+    copy.setRoleId(source.getRoleId());
+    copy.setAuthorities(source.getAuthorities());
+
+    return copy;
+  }
+
+  /**
+   * 缓存的统计数据。
+   *
+   * @param size 缓存的用户数
+   * @param hits 命中次数
+   * @param misses 未命中次数，即查询数据库的次数
+   * @param hitRate 命中率
+   */
+  public record Stats(int size, long hits, long misses, double hitRate) {}
+}
@@ -0,0 +1,161 @@
+package net.wuxianjie.springbootweb.auth;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.shared.restapi.ApiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 登录密码校验器。
+ *
+ * <p>BCrypt 校验会占用大量 CPU，若直接在 Tomcat 请求线程中执行，登录高峰时会耗尽所有工作线程，导致其他 API 无法响应。故：
+ *
+ * <ul>
+ *   <li>密码校验交由与 CPU 核数相同的专用线程池执行，其等待队列有界</li>
+ *   <li>等待队列已满时立即拒绝，返回 503 及 {@code Retry-After} 响应头</li>
+ *   <li>限制同一用户名及同一客户端 IP 同时进行中的校验数，超出时返回 429，避免单个客户端独占校验资源</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Component
+@Slf4j
+public class PasswordVerifier {
+
+  private final PasswordEncoder passwordEncoder;
+  private final AuthProps.Login props;
+  private final ThreadPoolExecutor executor;
+
+  private final ConcurrentHashMap<String, Integer> inFlightByUsername = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Integer> inFlightByIp = new ConcurrentHashMap<>();
+
+  public PasswordVerifier(final PasswordEncoder passwordEncoder, final AuthProps authProps) {
+    this.passwordEncoder = passwordEncoder;
+    this.props = authProps.getLogin();
+
+    final int threads = props.getHashThreads() > 0 ?
+      props.getHashThreads() :
+      Runtime.getRuntime().availableProcessors();
+
+    final AtomicInteger threadNum = new AtomicInteger();
+
+    this.executor = new ThreadPoolExecutor(
+      threads,
+      threads,
+      0,
+      TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(props.getHashQueueCapacity()),
+      r -> {
+        final Thread thread = new Thread(r, "password-hash-" + threadNum.incrementAndGet());
+        thread.setDaemon(true);
+
+        return thread;
+      },
+      new ThreadPoolExecutor.AbortPolicy()
+    );
+  }
+
+  /**
+   * 校验登录密码。
+   *
+   * @param rawPassword 明文密码
+   * @param hashedPassword 哈希密码
+   * @param username 用户名
+   * @param clientIp 客户端 IP
+   * @return 密码是否正确
+   * @throws ApiException 当同一用户名或客户端 IP 进行中的校验过多（429），或校验队列已满（503）时抛出
+   */
+  public boolean matches(
+    final String rawPassword,
+    final String hashedPassword,
+    final String username,
+    final String clientIp
+  ) {
+    if (!tryAcquire(inFlightByUsername, username, props.getMaxInFlightPerUsername())) {
+      throw busy(HttpStatus.TOO_MANY_REQUESTS, "该账号登录请求过于频繁，请稍后再试");
+    }
+
+    try {
+      if (!tryAcquire(inFlightByIp, clientIp, props.getMaxInFlightPerIp())) {
+        throw busy(HttpStatus.TOO_MANY_REQUESTS, "登录请求过于频繁，请稍后再试");
+      }
+
+      try {
+        return submitAndWait(rawPassword, hashedPassword);
+      } finally {
+        release(inFlightByIp, clientIp);
+      }
+    } finally {
+      release(inFlightByUsername, username);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private boolean submitAndWait(final String rawPassword, final String hashedPassword) {
+    final Future<Boolean> future;
+
+    try {
+      future = executor.submit(() -> passwordEncoder.matches(rawPassword, hashedPassword));
+    } catch (RejectedExecutionException e) {
+      log.warn("密码校验队列已满 [queue={}]", executor.getQueue().size());
+
+      throw busy(HttpStatus.SERVICE_UNAVAILABLE, "登录繁忙，请稍后再试");
+    }
+
+    try {
+      return future.get(props.getHashTimeoutMs(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+
+      throw busy(HttpStatus.SERVICE_UNAVAILABLE, "登录繁忙，请稍后再试");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+
+      throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "登录请求被中断", e);
+    } catch (ExecutionException e) {
+      throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "密码校验失败", e.getCause(), true);
+    }
+  }
+
+  private ApiException busy(final HttpStatus status, final String reason) {
+    final ApiException e = new ApiException(status, reason);
+
+    e.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(props.getRetryAfterSec()));
+
+    return e;
+  }
+
+  private static boolean tryAcquire(final ConcurrentHashMap<String, Integer> inFlight, final String key, final int limit) {
+    final boolean[] acquired = {false};
+
+    inFlight.compute(key, (k, count) -> {
+      final int current = count == null ? 0 : count;
+
+      if (current >= limit) {
+        return count;
+      }
+
+      acquired[0] = true;
+
+      return current + 1;
+    });
+
+    return acquired[0];
+  }
+
+  private static void release(final ConcurrentHashMap<String, Integer> inFlight, final String key) {
+    // 计数归零时移除，避免 Map 无限增长
+    inFlight.computeIfPresent(key, (k, count) -> count <= 1 ? null : count - 1);
+  }
+}
@@ -0,0 +1,200 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.auth.dto.TokenResponse;
+import net.wuxianjie.springbootweb.shared.restapi.ApiException;
+import net.wuxianjie.springbootweb.shared.util.RateLimitedLog;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 合并同一 Refresh Token 的并发刷新请求。
+ *
+ * <ul>
+ *   <li>同一 Refresh Token 同时只执行一次刷新，其他请求等待并共享同一结果（single-flight）</li>
+ *   <li>刷新成功后，结果在宽限期内保留，期间再次使用这个已被替代的 Refresh Token 时直接返回同一组新 Token，
+ *   <br>既不会因 Token 已废弃而失败，也不会再次替代刚签发的 Token</li>
+ *   <li>刷新失败不缓存，等待中的请求收到同一异常；等待超过 {@code auth.refresh.wait-timeout-ms} 时返回 503</li>
+ *   <li>每 {@value #STATS_LOG_INTERVAL_MIN} 分钟最多输出一次实际刷新、合并及宽限期命中次数</li>
+ *   <li>用户被强制退出登录或 Token 被吊销时（{@link SessionInvalidationListener}），立即移除其宽限期内的结果</li>
+ * </ul>
+ *
+ * <p>仅在当前节点内合并，集群模式下同一 Refresh Token 的请求分散到不同节点时仍各自刷新。
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+@Component
+public class RefreshCoalescer {
+
+  /**
+   * 输出统计日志的最小间隔，单位：分钟。
+   */
+  private static final long STATS_LOG_INTERVAL_MIN = 5;
+
+  private final ConcurrentHashMap<String, CompletableFuture<Refreshed>> inFlight = new ConcurrentHashMap<>();
+  private final LRUCache<String, Refreshed> recent;
+  private final long waitTimeoutMs;
+
+  /**
+   * 失效次数，用于丢弃在失效前就已开始的刷新结果，防止其被写入宽限期缓存。
+   */
+  private final AtomicLong invalidations = new AtomicLong();
+
+  private final LongAdder computed = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder graceHits = new LongAdder();
+
+  private final RateLimitedLog statsLog = new RateLimitedLog(STATS_LOG_INTERVAL_MIN, TimeUnit.MINUTES);
+
+  public RefreshCoalescer(final AuthProps authProps) {
+    final AuthProps.Refresh props = authProps.getRefresh();
+
+    this.recent = CacheUtil.newLRUCache(props.getGraceCapacity(), TimeUnit.SECONDS.toMillis(props.getGraceSec()));
+    this.waitTimeoutMs = props.getWaitTimeoutMs();
+  }
+
+  /**
+   * 执行刷新，或共享同一 Refresh Token 正在进行中或刚完成的刷新结果。
+   *
+   * @param refreshToken Refresh Token
+   * @param refresher 实际执行刷新的操作
+   * @return 刷新结果
+   */
+  public TokenResponse refresh(final String refreshToken, final Supplier<Refreshed> refresher) {
+    if (statsLog.tryAcquire("stats") >= 0) {
+      log.info("刷新 Token 合并统计 {}", getStats());
+    }
+
+    final Refreshed cached = recent.get(refreshToken, false);
+
+    if (cached != null) {
+      graceHits.increment();
+
+      return cached.response();
+    }
+
+    final CompletableFuture<Refreshed> future = new CompletableFuture<>();
+    final CompletableFuture<Refreshed> existing = inFlight.putIfAbsent(refreshToken, future);
+
+    if (existing != null) {
+      coalesced.increment();
+
+      return await(existing);
+    }
+
+    try {
+      computed.increment();
+
+      final long version = invalidations.get();
+      final Refreshed result = refresher.get();
+
+      // 先写入宽限期缓存再移除进行中的刷新，保证之后到达的请求总能获取到结果
+      if (invalidations.get() == version) {
+        recent.put(refreshToken, result);
+      }
+
+      future.complete(result);
+
+      return result.response();
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+
+      throw e;
+    } finally {
+      inFlight.remove(refreshToken, future);
+    }
+  }
+
+  /**
+   * 移除该用户在宽限期内的刷新结果，用于强制退出登录或吊销其 Token 后。
+   *
+   * @param userId 用户 id
+   */
+  public void invalidateUser(final long userId) {
+    invalidate(r -> r.userId() == userId);
+  }
+
+  /**
+   * 移除该角色下所有用户在宽限期内的刷新结果，用于吊销该角色的 Token 后。
+   *
+   * @param roleId 角色 id
+   */
+  public void invalidateRole(final long roleId) {
+    invalidate(r -> r.roleId() == roleId);
+  }
+
+  /**
+   * 获取统计数据。
+   *
+   * @return 统计数据
+   */
+  public Stats getStats() {
+    return new Stats(computed.sum(), coalesced.sum(), graceHits.sum());
+  }
+
+  private void invalidate(final Predicate<Refreshed> matcher) {
+    invalidations.incrementAndGet();
+
+    // 遍历的是缓存的副本，遍历期间不阻塞刷新
+    final List<String> keys = new ArrayList<>();
+
+    recent.cacheObjIterator().forEachRemaining(obj -> {
+      if (matcher.test(obj.getValue())) {
+        keys.add(obj.getKey());
+      }
+    });
+
+    keys.forEach(recent::remove);
+  }
+
+  private TokenResponse await(final CompletableFuture<Refreshed> future) {
+    try {
+      return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS).response();
+    } catch (TimeoutException e) {
+      throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "刷新繁忙，请稍后再试");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+      throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "刷新请求被中断", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * 统计数据。
+   *
+   * @param computed 实际执行的刷新次数
+   * @param coalesced 等待并共享进行中刷新结果的次数
+   * @param graceHits 宽限期内直接返回刚完成刷新结果的次数
+   */
+  public record Stats(long computed, long coalesced, long graceHits) {}
+
+  /**
+   * 刷新结果，附带失效宽限期缓存所需的用户信息。
+   *
+   * @param userId 用户 id
+   * @param roleId 角色 id
+   * @param response 新签发的 Token
+   */
+  public record Refreshed(long userId, long roleId, TokenResponse response) {}
+}
@@ -0,0 +1,262 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.shared.util.RateLimitedLog;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 近期被拒绝或已被替代的 Token 缓存。
+ *
+ * <p>客户端反复使用已过期或已废弃的 Token 时，可在签名验证及会话查询之前直接拒绝：
+ *
+ * <ul>
+ *   <li>以 Token SHA-256 摘要的前 128 位作为键，不保存 Token 本身，
+ *   <br>与登录会话中保存的摘要一致，故刷新 Token 时可直接将旧会话的摘要加入缓存</li>
+ *   <li>前置布隆过滤器，对正常 Token 通常只需几次位运算即可确认不在缓存中</li>
+ *   <li>布隆过滤器命中后再查询有界的 LRU 缓存确认，故误判不会导致正常 Token 被拒绝</li>
+ *   <li>布隆过滤器按代轮换，新一代写满或超过 Token 有效期时丢弃最老的一代</li>
+ *   <li>每 {@value #STATS_LOG_INTERVAL_MIN} 分钟最多输出一次缓存大小及误判率日志</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+@Component
+public class RejectedTokenCache {
+
+  /**
+   * 每代布隆过滤器的预期元素数。
+   */
+  private static final int BLOOM_EXPECTED_INSERTIONS = 100_000;
+
+  /**
+   * 每代布隆过滤器在写满时的预期误判率。
+   */
+  private static final double BLOOM_TARGET_FPP = 0.01;
+
+  /**
+   * LRU 缓存的最大条目数。
+   */
+  private static final int CACHE_CAPACITY = 100_000;
+
+  /**
+   * 缓存条目的有效时长，超过 Token 有效期后 Token 本身已过期，无需再缓存。
+   */
+  private static final long ENTRY_TTL_MS = AuthProps.TOKEN_EXP_SEC * 1000L;
+
+  /**
+   * 输出统计日志的最小间隔，单位：分钟。
+   */
+  private static final long STATS_LOG_INTERVAL_MIN = 5;
+
+  private final RateLimitedLog statsLog = new RateLimitedLog(STATS_LOG_INTERVAL_MIN, TimeUnit.MINUTES);
+
+  private final LRUCache<TokenKey, AuthResult.Failure> cache = CacheUtil.newLRUCache(CACHE_CAPACITY, ENTRY_TTL_MS);
+
+  private final int bloomBits;
+  private final int bloomHashes;
+
+  private volatile Generation current;
+  private volatile Generation previous;
+
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder bloomPositives = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+
+  public RejectedTokenCache() {
+    // m = -n * ln(p) / (ln2)^2，k = m / n * ln2
+    final double ln2 = Math.log(2);
+
+    this.bloomBits = (int) Math.ceil(-BLOOM_EXPECTED_INSERTIONS * Math.log(BLOOM_TARGET_FPP) / (ln2 * ln2));
+    this.bloomHashes = Math.max(1, (int) Math.round((double) bloomBits / BLOOM_EXPECTED_INSERTIONS * ln2));
+
+    this.current = new Generation(bloomBits);
+    this.previous = new Generation(bloomBits);
+  }
+
+  /**
+   * 获取 Token 被拒绝的原因。
+   *
+   * @param token Token
+   * @return 被拒绝的原因，若不在缓存中则返回 {@code null}
+   */
+  public AuthResult.Failure get(final String token) {
+    lookups.increment();
+
+    if (statsLog.tryAcquire("stats") >= 0) {
+      log.info("拒绝 Token 缓存统计 {}", getStats());
+    }
+
+    final TokenKey key = TokenKey.of(token);
+
+    if (!current.mightContain(key, bloomHashes) && !previous.mightContain(key, bloomHashes)) {
+      return null;
+    }
+
+    bloomPositives.increment();
+
+    final AuthResult.Failure failure = cache.get(key, false);
+
+    if (failure != null) {
+      hits.increment();
+    }
+
+    return failure;
+  }
+
+  /**
+   * 缓存被拒绝的 Token。
+   *
+   * @param token Token
+   * @param failure 被拒绝的原因
+   */
+  public void put(final String token, final AuthResult.Failure failure) {
+    final TokenKey key = TokenKey.of(token);
+
+    cache.put(key, failure);
+
+    rotateIfNeeded().put(key, bloomHashes);
+  }
+
+  /**
+   * 按 Token 的 SHA-256 摘要缓存被拒绝的 Token，用于只保存了摘要的登录会话。
+   *
+   * @param tokenDigest Token 的 SHA-256 摘要
+   * @param failure 被拒绝的原因
+   */
+  public void putDigest(final byte[] tokenDigest, final AuthResult.Failure failure) {
+    final TokenKey key = TokenKey.ofDigest(tokenDigest);
+
+    cache.put(key, failure);
+
+    rotateIfNeeded().put(key, bloomHashes);
+  }
+
+  /**
+   * 获取缓存的统计数据。
+   *
+   * @return 统计数据
+   */
+  public Stats getStats() {
+    final long lookupCount = lookups.sum();
+    final long positives = bloomPositives.sum();
+    final long hitCount = hits.sum();
+    final long negatives = lookupCount - hitCount;
+
+    return new Stats(
+      cache.size(),
+      current.insertions.sum() + previous.insertions.sum(),
+      (long) bloomBits * 2 / Byte.SIZE,
+      current.expectedFpp(bloomBits, bloomHashes),
+      negatives == 0 ? 0 : (double) (positives - hitCount) / negatives,
+      lookupCount,
+      hitCount
+    );
+  }
+
+  private Generation rotateIfNeeded() {
+    final Generation gen = current;
+
+    if (gen.insertions.sum() < BLOOM_EXPECTED_INSERTIONS && System.currentTimeMillis() - gen.createdAtMs < ENTRY_TTL_MS) {
+      return gen;
+    }
+
+    synchronized (this) {
+      if (current == gen) {
+        previous = gen;
+        current = new Generation(bloomBits);
+      }
+
+      return current;
+    }
+  }
+
+  /**
+   * 缓存的统计数据。
+   *
+   * @param cacheSize LRU 缓存中的条目数
+   * @param bloomInsertions 当前两代布隆过滤器的元素总数
+   * @param bloomBytes 两代布隆过滤器占用的内存，单位：字节
+   * @param bloomExpectedFpp 按当前代元素数计算的理论误判率
+   * @param bloomObservedFpp 实际误判率，即未被拒绝的 Token 中布隆过滤器误判的比例
+   * @param lookups 查询次数
+   * @param hits 命中次数，即被直接拒绝的请求数
+   */
+  public record Stats(
+    long cacheSize,
+    long bloomInsertions,
+    long bloomBytes,
+    double bloomExpectedFpp,
+    double bloomObservedFpp,
+    long lookups,
+    long hits
+  ) {}
+
+  private record TokenKey(long h1, long h2) {
+
+    static TokenKey of(final String token) {
+      return ofDigest(DigestUtil.sha256(token));
+    }
+
+    static TokenKey ofDigest(final byte[] digest) {
+      final ByteBuffer buffer = ByteBuffer.wrap(digest);
+
+      return new TokenKey(buffer.getLong(), buffer.getLong());
+    }
+  }
+
+  private static class Generation {
+
+    private final AtomicLongArray words;
+    private final long createdAtMs = System.currentTimeMillis();
+    private final LongAdder insertions = new LongAdder();
+
+    Generation(final int bits) {
+      this.words = new AtomicLongArray((bits + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    void put(final TokenKey key, final int hashes) {
+      final int bits = words.length() * Long.SIZE;
+
+      for (int i = 0; i < hashes; i++) {
+        final int index = index(key, i, bits);
+        final long mask = 1L << index;
+
+        words.getAndUpdate(index >>> 6, w -> w | mask);
+      }
+
+      insertions.increment();
+    }
+
+    boolean mightContain(final TokenKey key, final int hashes) {
+      final int bits = words.length() * Long.SIZE;
+
+      for (int i = 0; i < hashes; i++) {
+        final int index = index(key, i, bits);
+
+        if ((words.get(index >>> 6) & (1L << index)) == 0) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    double expectedFpp(final int bits, final int hashes) {
+      return Math.pow(1 - Math.exp(-(double) hashes * insertions.sum() / bits), hashes);
+    }
+
+    // 双重哈希：h1 + i * h2
+    private static int index(final TokenKey key, final int i, final int bits) {
+      return (int) Math.floorMod(key.h1() + i * key.h2(), (long) bits);
+    }
+  }
+}
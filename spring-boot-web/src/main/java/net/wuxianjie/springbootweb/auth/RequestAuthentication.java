@@ -0,0 +1,82 @@
+package net.wuxianjie.springbootweb.auth;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+import java.io.Serial;
+import java.util.Collection;
+
+/**
+ * 当前请求的身份验证数据。
+ *
+ * <p>仅包装会话级别的 {@link SessionAuthentication}，请求详情（{@link WebAuthenticationDetails}）在首次读取时才创建。
+ *
+ * @author 吴仙杰
+ */
+public final class RequestAuthentication implements Authentication {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  private final SessionAuthentication session;
+  private final HttpServletRequest req;
+
+  private WebAuthenticationDetails details;
+
+  /**
+   * 构造当前请求的身份验证数据。
+   *
+   * @param session 会话级别的身份验证数据
+   * @param req 当前 HTTP 请求
+   */
+  public RequestAuthentication(final SessionAuthentication session, final HttpServletRequest req) {
+    this.session = session;
+    this.req = req;
+  }
+
+  @Override
+  public Collection<? extends GrantedAuthority> getAuthorities() {
+    return session.getAuthorities();
+  }
+
+  @Override
+  public Object getCredentials() {
+    return null;
+  }
+
+  @Override
+  public WebAuthenticationDetails getDetails() {
+    if (details == null && req != null) {
+      details = new WebAuthenticationDetails(req);
+    }
+
+    return details;
+  }
+
+  @Override
+  public Object getPrincipal() {
+    return session.getPrincipal();
+  }
+
+  @Override
+  public boolean isAuthenticated() {
+    return true;
+  }
+
+  @Override
+  public void setAuthenticated(final boolean isAuthenticated) throws IllegalArgumentException {
+    throw new IllegalArgumentException("不可修改已缓存的身份验证数据");
+  }
+
+  @Override
+  public String getName() {
+    return session.getName();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + " [Principal=" + getName() + ", Authorities=" + getAuthorities() + "]";
+  }
+}
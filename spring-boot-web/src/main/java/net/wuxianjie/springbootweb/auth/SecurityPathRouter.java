@@ -0,0 +1,273 @@
+package net.wuxianjie.springbootweb.auth;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的安全路径路由，由启动时配置的路径规则构建为按路径段组织的前缀树。
+ *
+ * <p>一次遍历即可判断请求是需要 Token 身份验证、公开访问，还是不经过 Spring Security，
+ * <br>取代逐条比较 Ant 路径模式，且同一请求的判断结果会缓存在请求属性中，供过滤器链复用。
+ *
+ * <p>路径模式支持的语法：
+ *
+ * <ul>
+ *   <li>{@code /api/v1/version}：精确匹配</li>
+ *   <li>{@code *}：匹配单个路径段</li>
+ *   <li>{@code /**}：仅可位于末尾，匹配零或多个路径段</li>
+ * </ul>
+ *
+ * <p>请求路径先解码、移除 {@code ;} 参数并规范化 {@code .}、{@code ..} 及重复的 {@code /}，与 Spring MVC 分派时所用的路径一致，
+ * <br>以免编码后的路径（如 {@code /%61pi/v1/self}）绕过 Spring Security 却仍能到达控制器。
+ *
+ * <p>多条规则同时匹配时，以先添加的规则为准，与 Spring Security 按顺序比较的语义一致；未匹配任何规则时返回 {@link Route#OUTSIDE}。
+ *
+ * @author 吴仙杰
+ */
+public class SecurityPathRouter {
+
+  /**
+   * 缓存判断结果的请求属性名。
+   */
+  private static final String ROUTE_ATTRIBUTE = SecurityPathRouter.class.getName() + ".ROUTE";
+
+  private static final String SINGLE_WILDCARD = "*";
+  private static final String MULTI_WILDCARD = "**";
+
+  /**
+   * 解码请求路径并移除 {@code ;} 参数，与 Spring MVC 的默认配置一致。
+   */
+  private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+  private final Node root;
+
+  private SecurityPathRouter(final Node root) {
+    this.root = root;
+  }
+
+  /**
+   * 创建路由构建器。
+   *
+   * @return 路由构建器
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * 判断请求的安全路由，结果缓存在请求属性中。
+   *
+   * @param req HTTP 请求
+   * @return 安全路由
+   */
+  public Route route(final HttpServletRequest req) {
+    if (req.getAttribute(ROUTE_ATTRIBUTE) instanceof Route cached) {
+      return cached;
+    }
+
+    final Route route = route(normalize(URL_PATH_HELPER.getPathWithinApplication(req)));
+
+    req.setAttribute(ROUTE_ATTRIBUTE, route);
+
+    return route;
+  }
+
+  /**
+   * 判断路径的安全路由。
+   *
+   * @param path 不含上下文路径的请求路径
+   * @return 安全路由
+   */
+  public Route route(final String path) {
+    final Rule rule = match(root, path, path.startsWith("/") ? 1 : 0, null);
+
+    return rule == null ? Route.OUTSIDE : rule.route();
+  }
+
+  // 解析 . 及 .. 路径段，并合并重复的 /
+  static String normalize(final String path) {
+    String cleaned = StringUtils.cleanPath(path.replaceAll("/{2,}", "/"));
+
+    // 越过根路径的 .. 由 cleanPath 原样保留，按从根路径开始处理，偏向于需要身份验证
+    while (cleaned.startsWith("/../")) {
+      cleaned = cleaned.substring(3);
+    }
+
+    return "/..".equals(cleaned) ? "/" : cleaned;
+  }
+
+  // 以深度优先的方式遍历前缀树，只保留顺序最靠前的规则
+  private static Rule match(final Node node, final String path, final int from, final Rule best) {
+    Rule result = earlier(best, node.multiWildcard);
+
+    if (from > path.length()) {
+      return earlier(result, node.terminal);
+    }
+
+    final int slash = path.indexOf('/', from);
+    final int end = slash < 0 ? path.length() : slash;
+    final int next = end + 1;
+
+    final Node literal = node.children.get(path.substring(from, end));
+
+    if (literal != null) {
+      result = match(literal, path, next, result);
+    }
+
+    if (node.singleWildcard != null && end > from) {
+      result = match(node.singleWildcard, path, next, result);
+    }
+
+    return result;
+  }
+
+  private static Rule earlier(final Rule a, final Rule b) {
+    if (a == null) {
+      return b;
+    }
+
+    if (b == null) {
+      return a;
+    }
+
+    return a.order() <= b.order() ? a : b;
+  }
+
+  /**
+   * 安全路由。
+   */
+  public enum Route {
+
+    /**
+     * 需要通过 Token 身份验证。
+     */
+    AUTHENTICATED,
+
+    /**
+     * 经过 Spring Security，但允许匿名访问，无需解析 Token。
+     */
+    PUBLIC,
+
+    /**
+     * 不经过 Spring Security，例如静态资源及 SPA 页面。
+     */
+    OUTSIDE
+  }
+
+  /**
+   * 路由构建器，按添加顺序确定规则的优先级。
+   */
+  public static class Builder {
+
+    private final List<String[]> patterns = new ArrayList<>();
+    private final List<Route> routes = new ArrayList<>();
+
+    private Builder() {}
+
+    /**
+     * 添加允许匿名访问的路径模式。
+     *
+     * @param patterns 路径模式
+     * @return 当前构建器
+     */
+    public Builder permitAll(final String... patterns) {
+      return add(Route.PUBLIC, patterns);
+    }
+
+    /**
+     * 添加需要 Token 身份验证的路径模式。
+     *
+     * @param patterns 路径模式
+     * @return 当前构建器
+     */
+    public Builder authenticated(final String... patterns) {
+      return add(Route.AUTHENTICATED, patterns);
+    }
+
+    /**
+     * 构建路由。
+     *
+     * @return 安全路由
+     */
+    public SecurityPathRouter build() {
+      final Node root = new Node();
+
+      for (int i = 0; i < patterns.size(); i++) {
+        insert(root, patterns.get(i), new Rule(i, routes.get(i)));
+      }
+
+      return new SecurityPathRouter(root);
+    }
+
+    private Builder add(final Route route, final String... patterns) {
+      for (final String pattern : patterns) {
+        if (!pattern.startsWith("/")) {
+          throw new IllegalArgumentException("路径模式必须以 / 开头 [" + pattern + "]");
+        }
+
+        final String[] segments = pattern.substring(1).split("/", -1);
+
+        for (int i = 0; i < segments.length - 1; i++) {
+          if (MULTI_WILDCARD.equals(segments[i])) {
+            throw new IllegalArgumentException("** 仅可位于路径模式末尾 [" + pattern + "]");
+          }
+        }
+
+        this.patterns.add(segments);
+        this.routes.add(route);
+      }
+
+      return this;
+    }
+
+    private static void insert(final Node root, final String[] segments, final Rule rule) {
+      Node node = root;
+
+      for (int i = 0; i < segments.length; i++) {
+        final String segment = segments[i];
+
+        if (i == segments.length - 1 && MULTI_WILDCARD.equals(segment)) {
+          node.multiWildcard = earlier(node.multiWildcard, rule);
+
+          return;
+        }
+
+        if (SINGLE_WILDCARD.equals(segment)) {
+          if (node.singleWildcard == null) {
+            node.singleWildcard = new Node();
+          }
+
+          node = node.singleWildcard;
+        } else {
+          node = node.children.computeIfAbsent(segment, k -> new Node());
+        }
+      }
+
+      node.terminal = earlier(node.terminal, rule);
+    }
+  }
+
+  private record Rule(int order, Route route) {}
+
+  private static class Node {
+
+    private final Map<String, Node> children = new HashMap<>();
+    private Node singleWildcard;
+
+    /**
+     * 在此处结束的路径模式。
+     */
+    private Rule terminal;
+
+    /**
+     * 以 {@code /**} 结尾且前缀到此为止的路径模式。
+     */
+    private Rule multiWildcard;
+  }
+}
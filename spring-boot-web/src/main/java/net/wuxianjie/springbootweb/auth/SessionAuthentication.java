@@ -0,0 +1,81 @@
+package net.wuxianjie.springbootweb.auth;
+
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serial;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 与登录会话一同缓存的身份验证数据，不可变。
+ *
+ * <p>在创建会话时构建一次，之后每次请求仅需由 {@link RequestAuthentication} 包装后写入 Spring Security Context，
+ * <br>权限集合由同一角色下的所有会话共享，见 {@link AuthoritySet}。
+ *
+ * @author 吴仙杰
+ */
+public final class SessionAuthentication implements Authentication {
+
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  private final LoginSession principal;
+  private final List<GrantedAuthority> authorities;
+
+  /**
+   * 构造身份验证数据。
+   *
+   * @param principal 登录会话
+   */
+  public SessionAuthentication(final LoginSession principal) {
+    this.principal = principal;
+    this.authorities = principal.getAuthoritySet().getGrantedAuthorities();
+  }
+
+  @Override
+  public Collection<? extends GrantedAuthority> getAuthorities() {
+    return authorities;
+  }
+
+  @Override
+  public Object getCredentials() {
+    return null;
+  }
+
+  /**
+   * 会话级别的数据不包含请求详情，见 {@link RequestAuthentication#getDetails()}。
+   *
+   * @return {@code null}
+   */
+  @Override
+  public Object getDetails() {
+    return null;
+  }
+
+  @Override
+  public LoginSession getPrincipal() {
+    return principal;
+  }
+
+  @Override
+  public boolean isAuthenticated() {
+    return true;
+  }
+
+  @Override
+  public void setAuthenticated(final boolean isAuthenticated) throws IllegalArgumentException {
+    throw new IllegalArgumentException("不可修改已缓存的身份验证数据");
+  }
+
+  @Override
+  public String getName() {
+    return principal.getUsername();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + " [Principal=" + getName() + ", Authorities=" + authorities + "]";
+  }
+}
@@ -0,0 +1,102 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.auth.dto.AuthData;
+import net.wuxianjie.springbootweb.role.RoleChangedEvent;
+import net.wuxianjie.springbootweb.user.UserChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * 在用户或角色变更后同步更新登录会话，使变更立即生效，而无需在每次请求时查询数据库。
+ *
+ * <ul>
+ *   <li>用户被删除、禁用、更换角色或重置密码：移除其登录会话</li>
+ *   <li>用户其他信息变更：更新其登录会话中的昵称</li>
+ *   <li>角色功能权限变更：更新该角色下所有用户登录会话中的功能权限</li>
+ * </ul>
+ *
+ * <p>无状态 Token 模式下，需移除会话时改为吊销该用户或角色此前签发的 Token，见 {@link TokenRevocationList}。
+ *
+ * <p>移除会话或吊销 Token 的同时，移除其在 {@link RefreshCoalescer} 宽限期内的刷新结果，以免已失效的 Refresh Token 仍能换回新 Token。
+ *
+ * <p>事务提交后才处理事件，以保证读取到的是已提交的数据；无事务时则立即处理。
+ *
+ * @author 吴仙杰
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SessionInvalidationListener {
+
+  private final SessionStore sessionStore;
+  private final TokenRevocationList revocationList;
+  private final RefreshCoalescer refreshCoalescer;
+  private final AuthMapper authMapper;
+  private final AuthProps authProps;
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onUserChanged(final UserChangedEvent event) {
+    final long userId = event.userId();
+
+    if (event.forceLogout()) {
+      logout(userId);
+
+      return;
+    }
+
+    final AuthData latest = authMapper.selectById(userId);
+
+    if (latest == null || latest.getStatus() == AccountStatus.DISABLED) {
+      logout(userId);
+
+      return;
+    }
+
+    // 角色变更意味着功能权限变更，无法在原会话上修改，需重新登录
+    final boolean roleChanged = sessionStore.get(latest.getUsername())
+      .map(session -> session.getRoleId() != latest.getRoleId())
+      .orElse(false);
+
+    if (roleChanged) {
+      logout(userId);
+
+      return;
+    }
+
+    sessionStore.updateByUserId(userId, session -> session.withNickname(latest.getNickname()));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onRoleChanged(final RoleChangedEvent event) {
+    final String authorities = authMapper.selectAuthoritiesByRoleId(event.roleId());
+    final List<String> latest = StrUtil.split(authorities, StrUtil.COMMA, true, true);
+
+    sessionStore.updateByRoleId(event.roleId(), session -> session.withAuthorities(latest));
+
+    // 无状态 Token 中的功能权限无法修改，只能吊销后重新登录
+    if (isStateless()) {
+      revocationList.revokeRole(event.roleId());
+      refreshCoalescer.invalidateRole(event.roleId());
+    }
+
+    log.info("已更新角色的登录会话 [roleId={};authorities={}]", event.roleId(), authorities);
+  }
+
+  private void logout(final long userId) {
+    sessionStore.removeByUserId(userId);
+    refreshCoalescer.invalidateUser(userId);
+
+    if (isStateless()) {
+      revocationList.revokeUser(userId);
+    }
+  }
+
+  private boolean isStateless() {
+    return authProps.getTokenMode() == AuthProps.TokenMode.STATELESS;
+  }
+}
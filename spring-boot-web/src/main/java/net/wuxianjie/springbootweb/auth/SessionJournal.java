@@ -0,0 +1,437 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 基于内存映射文件的登录会话日志，仅追加写入。
+ *
+ * <p>文件格式：{@code [magic][record]...}，每条记录为 {@code [length][crc32][op][payload]}。
+ * <br>读取时遇到长度为 0 或校验失败的记录即视为日志结尾，故进程中途退出时写了一半的记录会被忽略。
+ *
+ * <p>写入内存映射区域的数据由操作系统负责落盘，即使进程被强制结束也不会丢失；
+ * <br>另外每次 {@link #flush()} 时会主动落盘，以尽量减少断电时丢失的数据。
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+class SessionJournal implements Closeable {
+
+  private static final int MAGIC = 0x534A4E31; // "SJN1"
+  private static final int HEADER_BYTES = Integer.BYTES;
+  private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+
+  private static final byte OP_PUT = 1;
+  private static final byte OP_REMOVE = 2;
+
+  private final Path path;
+  private final long initialSizeBytes;
+
+  private FileChannel channel;
+  private FileLock lock;
+  private MappedByteBuffer buffer;
+  private boolean dirty;
+
+  /**
+   * 打开（或创建）会话日志。
+   *
+   * @param path 日志文件路径
+   * @param initialSizeBytes 日志文件初始映射大小，单位：字节
+   * @throws IOException 当无法打开日志文件，或日志文件已被其他进程占用时抛出
+   */
+  SessionJournal(final Path path, final long initialSizeBytes) throws IOException {
+    this.path = path;
+    this.initialSizeBytes = initialSizeBytes;
+
+    final Path dir = path.toAbsolutePath().getParent();
+
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+
+    open(Math.max(initialSizeBytes, Files.exists(path) ? Files.size(path) : 0));
+  }
+
+  /**
+   * 回放日志，获取仍然有效的会话。
+   *
+   * @param nowEpochMs 当前时间戳，单位：毫秒
+   * @return 仍然有效的会话（{@code {username: [LoginSession, expiresAtEpochMs]}}）
+   */
+  synchronized Map<String, Replayed> replay(final long nowEpochMs) {
+    final Map<String, Replayed> sessions = new LinkedHashMap<>();
+
+    scan(record -> {
+      try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+        final byte op = in.readByte();
+        final String username = in.readUTF();
+
+        if (op == OP_PUT) {
+          final long expiresAtEpochMs = in.readLong();
+
+          sessions.put(username, new Replayed(readSession(in, username), expiresAtEpochMs));
+        } else if (op == OP_REMOVE) {
+          sessions.remove(username);
+        }
+      } catch (IOException e) {
+        log.warn("无法解析会话日志记录，已跳过 [path={}]", path, e);
+      }
+    });
+
+    sessions.values().removeIf(r -> r.expiresAtEpochMs() <= nowEpochMs);
+
+    return sessions;
+  }
+
+  /**
+   * 追加添加会话的记录。
+   *
+   * @param username 用户名
+   * @param session 登录会话
+   * @param expiresAtEpochMs 会话过期时间戳，单位：毫秒
+   */
+  synchronized void appendPut(final String username, final LoginSession session, final long expiresAtEpochMs) {
+    append(toPutRecord(username, session, expiresAtEpochMs));
+  }
+
+  /**
+   * 追加移除会话的记录。
+   *
+   * @param username 用户名
+   */
+  synchronized void appendRemove(final String username) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    try (final DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(OP_REMOVE);
+      out.writeUTF(username);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    append(bytes.toByteArray());
+  }
+
+  /**
+   * 压缩日志，即以仅包含当前有效会话的新日志文件替换旧日志文件。
+   *
+   * <ol>
+   *   <li>先完整写入临时文件并落盘，此时旧日志不受影响</li>
+   *   <li>再关闭旧日志的文件通道，以临时文件原子替换旧日志（旧的内存映射由 GC 回收，在此之前 Windows 下可能替换失败）</li>
+   *   <li>替换或重新打开失败时，重新打开磁盘上现有的日志文件，保证后续仍可追加</li>
+   * </ol>
+   *
+   * @param sessions 当前有效的会话（{@code {username: [LoginSession, expiresAtEpochMs]}}）
+   * @throws IOException 当写入新日志文件或替换旧日志失败时抛出
+   */
+  synchronized void compact(final Map<String, Replayed> sessions) throws IOException {
+    final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+    try (final FileOutputStream file = new FileOutputStream(tmp.toFile());
+         final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+      out.writeInt(MAGIC);
+
+      for (final Map.Entry<String, Replayed> e : sessions.entrySet()) {
+        final byte[] record = toPutRecord(e.getKey(), e.getValue().session(), e.getValue().expiresAtEpochMs());
+
+        out.writeInt(record.length);
+        out.writeInt(crc32(record));
+        out.write(record);
+      }
+
+      out.flush();
+      file.getFD().sync();
+    } catch (IOException e) {
+      Files.deleteIfExists(tmp);
+
+      throw e;
+    }
+
+    final long usedBytes = Files.size(tmp);
+    final long previousSize = buffer == null ? initialSizeBytes : buffer.capacity();
+
+    flush();
+    closeChannel();
+
+    try {
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // 旧日志仍完好，重新打开后继续追加
+      Files.deleteIfExists(tmp);
+      reopen(previousSize, e);
+
+      throw e;
+    }
+
+    try {
+      open(Math.max(initialSizeBytes, usedBytes * 2));
+    } catch (IOException e) {
+      reopen(Math.max(initialSizeBytes, usedBytes), e);
+
+      throw e;
+    }
+
+    log.info("会话日志压缩完成 [path={};sessions={};bytes={}]", path, sessions.size(), usedBytes);
+  }
+
+  /**
+   * 获取日志已使用的比例。
+   *
+   * @return 已使用的比例
+   */
+  synchronized double usage() {
+    // 日志未能打开时视为已满，以便尽快通过压缩重新打开
+    return buffer == null ? 1 : (double) buffer.position() / buffer.capacity();
+  }
+
+  /**
+   * 将已写入的记录落盘。
+   */
+  synchronized void flush() {
+    if (dirty && buffer != null) {
+      buffer.force();
+      dirty = false;
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    flush();
+    closeChannel();
+  }
+
+  private void append(final byte[] record) {
+    if (buffer == null) {
+      try {
+        open(initialSizeBytes);
+      } catch (IOException e) {
+        throw new UncheckedIOException("会话日志不可用: " + path, e);
+      }
+    }
+
+    if (buffer.remaining() < RECORD_HEADER_BYTES + record.length) {
+      grow(RECORD_HEADER_BYTES + record.length);
+    }
+
+    buffer.putInt(record.length);
+    buffer.putInt(crc32(record));
+    buffer.put(record);
+
+    dirty = true;
+  }
+
+  private void grow(final int minFreeBytes) {
+    final int position = buffer.position();
+    final long newSize = Math.max((long) buffer.capacity() * 2, (long) position + minFreeBytes);
+
+    try {
+      flush();
+      closeChannel();
+      open(newSize);
+    } catch (IOException e) {
+      reopen(position, e);
+
+      throw new UncheckedIOException("无法扩容会话日志: " + path, e);
+    }
+
+    buffer.position(position);
+  }
+
+  private void open(final long sizeBytes) throws IOException {
+    if (sizeBytes > Integer.MAX_VALUE) {
+      throw new IOException("会话日志超出最大映射大小: " + path);
+    }
+
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    lock = channel.tryLock();
+
+    if (lock == null) {
+      channel.close();
+
+      throw new IOException("会话日志已被其他进程占用: " + path);
+    }
+
+    final boolean isNew = channel.size() == 0;
+
+    try {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+    } catch (IOException e) {
+      closeChannel();
+
+      throw e;
+    }
+
+    if (isNew) {
+      buffer.putInt(0, MAGIC);
+    } else if (buffer.getInt(0) != MAGIC) {
+      closeChannel();
+
+      throw new IOException("无法识别的会话日志格式: " + path);
+    }
+
+    // 定位到最后一条有效记录之后
+    scan(record -> {});
+  }
+
+  // 从头遍历所有有效记录，结束后将写入位置定位到最后一条有效记录之后
+  private void scan(final Consumer<byte[]> handler) {
+    buffer.position(HEADER_BYTES);
+
+    while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+      final int start = buffer.position();
+      final int length = buffer.getInt();
+
+      if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+        buffer.position(start);
+
+        return;
+      }
+
+      final int crc = buffer.getInt();
+      final byte[] record = new byte[length];
+      buffer.get(record);
+
+      if (crc32(record) != crc) {
+        log.warn("会话日志记录校验失败，忽略其后的所有记录 [path={};offset={}]", path, start);
+        buffer.position(start);
+
+        return;
+      }
+
+      handler.accept(record);
+    }
+  }
+
+  // 尽力重新打开磁盘上现有的日志，仍然失败时保持未打开状态，下次追加时会再次尝试
+  private void reopen(final long sizeBytes, final IOException cause) {
+    try {
+      open(Math.max(sizeBytes, Files.exists(path) ? Files.size(path) : 0));
+    } catch (IOException e) {
+      cause.addSuppressed(e);
+      log.error("无法重新打开会话日志 [path={}]", path, e);
+    }
+  }
+
+  // 仅关闭文件通道，内存映射在缓冲区不可达后由 GC 解除
+  private void closeChannel() throws IOException {
+    buffer = null;
+
+    try {
+      if (lock != null && lock.isValid()) {
+        lock.release();
+      }
+
+      if (channel != null) {
+        channel.close();
+      }
+    } finally {
+      lock = null;
+      channel = null;
+    }
+  }
+
+  private static byte[] toPutRecord(final String username, final LoginSession session, final long expiresAtEpochMs) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    try (final DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(OP_PUT);
+      out.writeUTF(username);
+      out.writeLong(expiresAtEpochMs);
+      writeSession(out, session);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return bytes.toByteArray();
+  }
+
+  private static void writeSession(final DataOutputStream out, final LoginSession session) throws IOException {
+    out.writeLong(session.getUserId());
+    writeNullableUTF(out, session.getNickname());
+    out.writeInt(session.getStatus() == null ? -1 : session.getStatus().getCode());
+    out.writeLong(session.getRoleId());
+    writeNullableUTF(out, StrUtil.join(StrUtil.COMMA, session.getAuthorities()));
+    writeNullableBytes(out, session.getAccessTokenDigest());
+    writeNullableBytes(out, session.getRefreshTokenDigest());
+  }
+
+  private static LoginSession readSession(final DataInputStream in, final String username) throws IOException {
+    final long userId = in.readLong();
+    final String nickname = readNullableUTF(in);
+    final AccountStatus status = AccountStatus.resolve(in.readInt()).orElse(null);
+    final long roleId = in.readLong();
+
+    return new LoginSession(
+      userId,
+      username,
+      nickname,
+      status,
+      roleId,
+      readNullableUTF(in),
+      readNullableBytes(in),
+      readNullableBytes(in)
+    );
+  }
+
+  private static void writeNullableBytes(final DataOutputStream out, final byte[] value) throws IOException {
+    out.writeShort(value == null ? -1 : value.length);
+
+    if (value != null) {
+      out.write(value);
+    }
+  }
+
+  private static byte[] readNullableBytes(final DataInputStream in) throws IOException {
+    final short length = in.readShort();
+
+    if (length < 0) {
+      return null;
+    }
+
+    final byte[] value = new byte[length];
+    in.readFully(value);
+
+    return value;
+  }
+
+  private static void writeNullableUTF(final DataOutputStream out, final String value) throws IOException {
+    out.writeBoolean(value != null);
+
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readNullableUTF(final DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static int crc32(final byte[] bytes) {
+    final CRC32 crc = new CRC32();
+    crc.update(bytes);
+
+    return (int) crc.getValue();
+  }
+
+  /**
+   * 从日志中恢复的会话。
+   *
+   * @param session 登录会话
+   * @param expiresAtEpochMs 会话过期时间戳，单位：毫秒
+   */
+  record Replayed(LoginSession session, long expiresAtEpochMs) {}
+}
@@ -0,0 +1,90 @@
+package net.wuxianjie.springbootweb.auth;
+
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import net.wuxianjie.springbootweb.auth.dto.StoredSession;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 集群模式下登录会话及 Token 吊销记录相关的 SQL 语句。
+ *
+ * @author 吴仙杰
+ */
+@Mapper
+public interface SessionMapper {
+
+  StoredSession selectByUsername(
+    @Param("username") String username,
+    @Param("now") long nowEpochMs
+  );
+
+  List<StoredSession> selectByUserId(
+    @Param("userId") long userId,
+    @Param("now") long nowEpochMs
+  );
+
+  List<StoredSession> selectByRoleId(
+    @Param("roleId") long roleId,
+    @Param("now") long nowEpochMs
+  );
+
+  int upsert(
+    @Param("username") String username,
+    @Param("session") LoginSession session,
+    @Param("authorities") String authorities,
+    @Param("expiresAt") long expiresAtEpochMs
+  );
+
+  int deleteByUsername(String username);
+
+  int deleteExpired(long nowEpochMs);
+
+  int insertEvent(
+    @Param("username") String username,
+    @Param("nodeId") String nodeId,
+    @Param("createdAt") long createdAtEpochMs
+  );
+
+  long selectMaxEventId();
+
+  List<SessionEvent> selectEventsAfterLimit(
+    @Param("afterId") long afterId,
+    @Param("limit") int limit
+  );
+
+  int deleteEventsBefore(long createdAtEpochMs);
+
+  int insertRevocation(
+    @Param("subject") String subject,
+    @Param("revokedAt") long revokedAtEpochMs,
+    @Param("expiresAt") long expiresAtEpochMs
+  );
+
+  List<Revocation> selectRevocationsAfterLimit(
+    @Param("afterId") long afterId,
+    @Param("now") long nowEpochMs,
+    @Param("limit") int limit
+  );
+
+  int deleteRevocationsExpired(long nowEpochMs);
+
+  /**
+   * 会话变更事件，即某个会话已被添加、替换或移除。
+   *
+   * @param id 事件 id，自增
+   * @param username 用户名
+   * @param nodeId 产生该事件的节点 id
+   */
+  record SessionEvent(long id, String username, String nodeId) {}
+
+  /**
+   * 无状态 Token 的吊销记录。
+   *
+   * @param id 记录 id，自增
+   * @param subject 吊销对象，即用户或角色，见 {@link TokenRevocationList}
+   * @param revokedAt 吊销时间，单位：毫秒
+   */
+  record Revocation(long id, String subject, long revokedAt) {}
+}
@@ -0,0 +1,93 @@
+package net.wuxianjie.springbootweb.auth;
+
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * 登录会话存储，即 Token 身份验证缓存（{@code {username: LoginSession}}）。
+ *
+ * <p>除用户名外，还可按用户 id 及角色 id 查找会话，以便在用户或角色变更时仅处理受影响的会话。
+ *
+ * @author 吴仙杰
+ */
+public interface SessionStore {
+
+  /**
+   * 获取登录会话。
+   *
+   * @param username 用户名
+   * @return 登录会话，当不存在或已过期时返回空
+   */
+  Optional<LoginSession> get(String username);
+
+  /**
+   * 越过本地缓存重新获取登录会话，用于本地缓存可能落后于共享存储时确认会话的最新状态。
+   *
+   * <p>默认与 {@link #get(String)} 相同，即会话仅保存在当前进程中时无需重新加载。
+   *
+   * @param username 用户名
+   * @return 登录会话，当不存在或已过期时返回空
+   */
+  default Optional<LoginSession> reload(final String username) {
+    return get(username);
+  }
+
+  /**
+   * 添加或替换登录会话。
+   *
+   * @param username 用户名
+   * @param session 登录会话
+   */
+  void put(String username, LoginSession session);
+
+  /**
+   * 移除登录会话。
+   *
+   * @param username 用户名
+   */
+  void remove(String username);
+
+  /**
+   * 移除指定用户的登录会话。
+   *
+   * @param userId 用户 id
+   */
+  void removeByUserId(long userId);
+
+  /**
+   * 修改指定用户的登录会话。
+   *
+   * <p>登录会话不可变，故以修改后的新会话替换原会话，剩余有效时长不变。
+   *
+   * @param userId 用户 id
+   * @param patch 由原会话创建新会话的操作
+   */
+  void updateByUserId(long userId, UnaryOperator<LoginSession> patch);
+
+  /**
+   * 修改指定角色下所有用户的登录会话。
+   *
+   * @param roleId 角色 id
+   * @param patch 由原会话创建新会话的操作
+   */
+  void updateByRoleId(long roleId, UnaryOperator<LoginSession> patch);
+
+  /**
+   * 获取会话存储的统计数据。
+   *
+   * @return 统计数据
+   */
+  Stats getStats();
+
+  /**
+   * 会话存储的统计数据。
+   *
+   * @param size 当前会话数
+   * @param hits 命中次数
+   * @param misses 未命中次数
+   * @param evictions 因过期而被清除的会话数
+   */
+  record Stats(long size, long hits, long misses, long evictions) {}
+}
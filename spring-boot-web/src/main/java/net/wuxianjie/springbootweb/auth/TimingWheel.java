@@ -0,0 +1,163 @@
+package net.wuxianjie.springbootweb.auth;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮，以 O(1) 的代价登记及触发定时条目。
+ *
+ * <p>第 0 层每格代表 {@code tickMs}，第 n 层每格代表第 n - 1 层转一圈的时长。
+ * <br>高层格子到期时，其中的条目会按剩余时间重新落入低层，直至在第 0 层到期。
+ *
+ * <p>条目的到期时间允许在登记后被推迟（如滑动过期），到期时会重新计算位置，故无需从格子中删除。
+ *
+ * @param <T> 定时条目类型
+ * @author 吴仙杰
+ */
+class TimingWheel<T extends TimingWheel.Timed> {
+
+  /**
+   * 可被时间轮登记的定时条目。
+   */
+  interface Timed {
+
+    /**
+     * 获取到期时间。
+     *
+     * @return 到期时间，单位：毫秒
+     */
+    long getDeadlineMs();
+  }
+
+  private final long tickMs;
+  private final int wheelSize;
+  private final ArrayDeque<T>[][] buckets;
+
+  /**
+   * 当前时间，始终与 {@code tickMs} 对齐。
+   */
+  private long currentMs;
+
+  /**
+   * 时间轮中的条目数，含已被替换而尚未到期的条目。
+   */
+  private int size;
+
+  /**
+   * 构造时间轮。
+   *
+   * @param tickMs 第 0 层每格时长，单位：毫秒
+   * @param wheelSize 每层格数
+   * @param levels 层数
+   * @param startMs 起始时间，单位：毫秒
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  TimingWheel(final long tickMs, final int wheelSize, final int levels, final long startMs) {
+    this.tickMs = tickMs;
+    this.wheelSize = wheelSize;
+    this.buckets = new ArrayDeque[levels][wheelSize];
+    this.currentMs = startMs - startMs % tickMs;
+
+    for (int level = 0; level < levels; level++) {
+      for (int slot = 0; slot < wheelSize; slot++) {
+        buckets[level][slot] = new ArrayDeque<>();
+      }
+    }
+  }
+
+  /**
+   * 登记定时条目。
+   *
+   * @param timed 定时条目
+   */
+  synchronized void schedule(final T timed) {
+    place(timed, null);
+  }
+
+  /**
+   * 获取时间轮中的条目数，含已被替换而尚未到期的条目。
+   *
+   * @return 条目数
+   */
+  synchronized int size() {
+    return size;
+  }
+
+  /**
+   * 推进时间轮至指定时间，并返回已到期的条目。
+   *
+   * @param nowMs 当前时间，单位：毫秒
+   * @return 已到期的条目
+   */
+  synchronized List<T> advance(final long nowMs) {
+    final List<T> due = new ArrayList<>();
+
+    while (currentMs + tickMs <= nowMs) {
+      currentMs += tickMs;
+
+      // 先将对齐的高层格子降级，再触发第 0 层格子
+      for (int level = buckets.length - 1; level > 0; level--) {
+        final long levelTickMs = levelTickMs(level);
+
+        if (currentMs % levelTickMs == 0) {
+          drain(buckets[level][slotOf(currentMs, levelTickMs)], due);
+        }
+      }
+
+      drain(buckets[0][slotOf(currentMs, tickMs)], due);
+    }
+
+    return due;
+  }
+
+  private void drain(final ArrayDeque<T> bucket, final List<T> due) {
+    T timed;
+
+    while ((timed = bucket.poll()) != null) {
+      size--;
+      place(timed, due);
+    }
+  }
+
+  private void place(final T timed, final List<T> due) {
+    long deadlineMs = timed.getDeadlineMs();
+
+    if (deadlineMs <= currentMs && due != null) {
+      due.add(timed);
+
+      return;
+    }
+
+    // 不足一格的条目放入下一格
+    deadlineMs = Math.max(deadlineMs, currentMs + tickMs);
+
+    for (int level = 0; level < buckets.length; level++) {
+      final long levelTickMs = levelTickMs(level);
+
+      if (deadlineMs - currentMs < levelTickMs * wheelSize || level == buckets.length - 1) {
+        // 超出最高层范围的条目先放入最高层的最远格子，到期时再重新计算
+        final long clampedMs = Math.min(deadlineMs, currentMs + levelTickMs * (wheelSize - 1));
+
+        buckets[level][slotOf(clampedMs, levelTickMs)].add(timed);
+        size++;
+
+        return;
+      }
+    }
+  }
+
+  private long levelTickMs(final int level) {
+    long ms = tickMs;
+
+    for (int i = 0; i < level; i++) {
+      ms *= wheelSize;
+    }
+
+    return ms;
+  }
+
+  private int slotOf(final long ms, final long levelTickMs) {
+    return (int) ((ms / levelTickMs) % wheelSize);
+  }
+}
@@ -0,0 +1,442 @@
+package net.wuxianjie.springbootweb.auth;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import net.wuxianjie.springbootweb.shared.util.RateLimitedLog;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * 基于 {@link ConcurrentHashMap} 及分层时间轮实现的登录会话存储。
+ *
+ * <ul>
+ *   <li>读写会话无需全局锁</li>
+ *   <li>过期会话由时间轮按格触发清除，而非定时全量扫描</li>
+ *   <li>读取时也会检查到期时间，故过期会话不会在触发清除前被读取到</li>
+ *   <li>可选滑动过期，即每次读取会话时都会顺延到期时间</li>
+ *   <li>维护用户 id 及角色 id 索引，按用户或角色查找会话时只需访问受影响的会话</li>
+ *   <li>每 {@value #STATS_LOG_INTERVAL_MIN} 分钟最多输出一次会话数、命中数及时间轮中的条目数</li>
+ *   <li>同一用户名的会话及其索引只在 {@link ConcurrentHashMap#compute} 内一并修改，故并发替换时索引不会指向旧会话</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+public class TimingWheelSessionStore implements SessionStore, AutoCloseable {
+
+  /**
+   * 时间轮每格时长，单位：毫秒。
+   */
+  private static final long TICK_MS = 1000;
+  /**
+   * 时间轮每层格数。
+   */
+  private static final int WHEEL_SIZE = 64;
+  /**
+   * 时间轮层数，1 秒 * 64 * 64 * 64 约为 72 小时。
+   */
+  private static final int WHEEL_LEVELS = 3;
+  /**
+   * 输出统计日志的最小间隔，单位：分钟。
+   */
+  private static final long STATS_LOG_INTERVAL_MIN = 5;
+
+  private final ConcurrentHashMap<String, Entry> sessions = new ConcurrentHashMap<>();
+
+  /**
+   * 用户 id 索引，每个用户至多有一个会话。
+   */
+  private final ConcurrentHashMap<Long, Entry> sessionsByUserId = new ConcurrentHashMap<>();
+
+  /**
+   * 角色 id 索引。
+   */
+  private final ConcurrentHashMap<Long, Set<Entry>> sessionsByRoleId = new ConcurrentHashMap<>();
+  private final TimingWheel<Entry> wheel;
+  private final ScheduledExecutorService ticker;
+
+  private final long ttlMs;
+  private final boolean slidingExpiry;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private final RateLimitedLog statsLog = new RateLimitedLog(STATS_LOG_INTERVAL_MIN, TimeUnit.MINUTES);
+
+  /**
+   * 构造会话存储，并启动时间轮。
+   *
+   * @param ttlMs 会话有效时长，单位：毫秒
+   * @param slidingExpiry 是否启用滑动过期
+   */
+  public TimingWheelSessionStore(final long ttlMs, final boolean slidingExpiry) {
+    this.ttlMs = ttlMs;
+    this.slidingExpiry = slidingExpiry;
+    this.wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, WHEEL_LEVELS, nowMs());
+
+    this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "session-expiry");
+      thread.setDaemon(true);
+
+      return thread;
+    });
+
+    ticker.scheduleAtFixedRate(this::expire, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public Optional<LoginSession> get(final String username) {
+    final Entry entry = sessions.get(username);
+
+    if (entry == null) {
+      misses.increment();
+
+      return Optional.empty();
+    }
+
+    final long now = nowMs();
+
+    if (entry.deadlineMs <= now) {
+      // 已过期但时间轮尚未触发
+      if (removeIfSame(entry)) {
+        evictions.increment();
+      }
+
+      misses.increment();
+
+      return Optional.empty();
+    }
+
+    if (slidingExpiry) {
+      entry.deadlineMs = now + ttlMs;
+    }
+
+    hits.increment();
+
+    return Optional.of(entry.session);
+  }
+
+  @Override
+  public void put(final String username, final LoginSession session) {
+    put(username, session, ttlMs);
+  }
+
+  /**
+   * 以指定的剩余有效时长添加或替换登录会话，用于恢复持久化的会话。
+   *
+   * @param username 用户名
+   * @param session 登录会话
+   * @param remainingMs 剩余有效时长，单位：毫秒
+   */
+  public void put(final String username, final LoginSession session, final long remainingMs) {
+    final Entry entry = new Entry(username, session, nowMs() + remainingMs);
+
+    // 被替换的旧条目仍留在时间轮中，到期时因不再与 Map 中的条目一致而被忽略
+    sessions.compute(username, (k, old) -> {
+      if (old != null) {
+        unindex(old);
+      }
+
+      index(entry);
+
+      return entry;
+    });
+
+    wheel.schedule(entry);
+  }
+
+  @Override
+  public void remove(final String username) {
+    sessions.computeIfPresent(username, (k, entry) -> {
+      unindex(entry);
+
+      return null;
+    });
+  }
+
+  @Override
+  public void removeByUserId(final long userId) {
+    final Entry indexed = sessionsByUserId.get(userId);
+
+    if (indexed == null) {
+      return;
+    }
+
+    // 按用户名移除当前会话，而非索引中的条目本身，以免索引中的条目刚被替换时漏删
+    sessions.computeIfPresent(indexed.username, (k, entry) -> {
+      if (entry.session.getUserId() != userId) {
+        return entry;
+      }
+
+      unindex(entry);
+
+      return null;
+    });
+  }
+
+  @Override
+  public void updateByUserId(final long userId, final UnaryOperator<LoginSession> patch) {
+    updateByUserId(userId, patch, null);
+  }
+
+  @Override
+  public void updateByRoleId(final long roleId, final UnaryOperator<LoginSession> patch) {
+    updateByRoleId(roleId, patch, null);
+  }
+
+  /**
+   * 修改指定用户的登录会话，并在替换成功后回调。
+   *
+   * @param userId 用户 id
+   * @param patch 由原会话创建新会话的操作
+   * @param onReplaced 替换成功后的回调，可为 {@code null}
+   */
+  public void updateByUserId(final long userId, final UnaryOperator<LoginSession> patch, final Visitor onReplaced) {
+    final Entry entry = sessionsByUserId.get(userId);
+
+    if (entry != null) {
+      replaceIfLive(entry, nowMs(), patch, onReplaced);
+    }
+  }
+
+  /**
+   * 修改指定角色下所有用户的登录会话，并在每次替换成功后回调。
+   *
+   * @param roleId 角色 id
+   * @param patch 由原会话创建新会话的操作
+   * @param onReplaced 替换成功后的回调，可为 {@code null}
+   */
+  public void updateByRoleId(final long roleId, final UnaryOperator<LoginSession> patch, final Visitor onReplaced) {
+    final Set<Entry> entries = sessionsByRoleId.get(roleId);
+
+    if (entries == null) {
+      return;
+    }
+
+    final long now = nowMs();
+
+    // 替换时会修改该集合，故先复制
+    for (final Entry entry : List.copyOf(entries)) {
+      replaceIfLive(entry, now, patch, onReplaced);
+    }
+  }
+
+  /**
+   * 遍历指定用户未过期的登录会话。
+   *
+   * @param userId 用户 id
+   * @param visitor 会话访问者
+   */
+  public void forEachByUserId(final long userId, final Visitor visitor) {
+    final Entry entry = sessionsByUserId.get(userId);
+
+    if (entry != null) {
+      visitIfLive(entry, nowMs(), visitor);
+    }
+  }
+
+  /**
+   * 遍历指定角色下所有未过期的登录会话。
+   *
+   * @param roleId 角色 id
+   * @param visitor 会话访问者
+   */
+  public void forEachByRoleId(final long roleId, final Visitor visitor) {
+    final Set<Entry> entries = sessionsByRoleId.get(roleId);
+
+    if (entries == null) {
+      return;
+    }
+
+    final long now = nowMs();
+
+    for (final Entry entry : entries) {
+      visitIfLive(entry, now, visitor);
+    }
+  }
+
+  /**
+   * 遍历所有未过期的登录会话。
+   *
+   * @param visitor 会话访问者
+   */
+  public void forEach(final Visitor visitor) {
+    final long now = nowMs();
+
+    sessions.forEach((username, entry) -> {
+      final long remainingMs = entry.deadlineMs - now;
+
+      if (remainingMs > 0) {
+        visitor.visit(username, entry.session, remainingMs);
+      }
+    });
+  }
+
+  @Override
+  public Stats getStats() {
+    return new Stats(sessions.size(), hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  @Override
+  public void close() {
+    ticker.shutdownNow();
+  }
+
+  private void expire() {
+    try {
+      final long now = nowMs();
+
+      for (final Entry entry : wheel.advance(now)) {
+        if (entry.deadlineMs > now) {
+          // 期间被滑动过期顺延了，重新登记
+          if (sessions.get(entry.username) == entry) {
+            wheel.schedule(entry);
+          }
+
+          continue;
+        }
+
+        if (removeIfSame(entry)) {
+          evictions.increment();
+        }
+      }
+
+      if (statsLog.tryAcquire("stats") >= 0) {
+        log.info("登录会话存储统计 [stats={};wheelEntries={}]", getStats(), wheel.size());
+      }
+    } catch (Exception e) {
+      log.error("清除过期会话失败", e);
+    }
+  }
+
+  private void visitIfLive(final Entry entry, final long now, final Visitor visitor) {
+    final long remainingMs = entry.deadlineMs - now;
+
+    // 索引中可能残留刚被替换的旧条目，需以 Map 中的条目为准
+    if (remainingMs > 0 && sessions.get(entry.username) == entry) {
+      visitor.visit(entry.username, entry.session, remainingMs);
+    }
+  }
+
+  private void replaceIfLive(
+    final Entry entry,
+    final long now,
+    final UnaryOperator<LoginSession> patch,
+    final Visitor onReplaced
+  ) {
+    final long remainingMs = entry.deadlineMs - now;
+
+    if (remainingMs <= 0 || sessions.get(entry.username) != entry) {
+      return;
+    }
+
+    final Entry replacement = new Entry(entry.username, patch.apply(entry.session), entry.deadlineMs);
+
+    // 期间会话被替换或移除时放弃修改，以新会话为准
+    final Entry current = sessions.computeIfPresent(entry.username, (k, cur) -> {
+      if (cur != entry) {
+        return cur;
+      }
+
+      unindex(entry);
+      index(replacement);
+
+      return replacement;
+    });
+
+    if (current != replacement) {
+      return;
+    }
+
+    wheel.schedule(replacement);
+
+    if (onReplaced != null) {
+      onReplaced.visit(entry.username, replacement.session, remainingMs);
+    }
+  }
+
+  // 仅当 Map 中仍是该条目时才移除
+  private boolean removeIfSame(final Entry entry) {
+    final boolean[] removed = {false};
+
+    sessions.computeIfPresent(entry.username, (k, cur) -> {
+      if (cur != entry) {
+        return cur;
+      }
+
+      unindex(entry);
+      removed[0] = true;
+
+      return null;
+    });
+
+    return removed[0];
+  }
+
+  // 以下两个方法仅在持有该用户名的 compute 锁时调用
+  private void index(final Entry entry) {
+    sessionsByUserId.put(entry.session.getUserId(), entry);
+
+    sessionsByRoleId.compute(entry.session.getRoleId(), (roleId, entries) -> {
+      final Set<Entry> result = entries == null ? ConcurrentHashMap.newKeySet() : entries;
+      result.add(entry);
+
+      return result;
+    });
+  }
+
+  private void unindex(final Entry entry) {
+    sessionsByUserId.remove(entry.session.getUserId(), entry);
+
+    // 集合为空时移除，避免索引无限增长
+    sessionsByRoleId.computeIfPresent(entry.session.getRoleId(), (roleId, entries) -> {
+      entries.remove(entry);
+
+      return entries.isEmpty() ? null : entries;
+    });
+  }
+
+  private static long nowMs() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+  }
+
+  /**
+   * 登录会话访问者。
+   */
+  @FunctionalInterface
+  public interface Visitor {
+
+    /**
+     * 访问登录会话。
+     *
+     * @param username 用户名
+     * @param session 登录会话
+     * @param remainingMs 剩余有效时长，单位：毫秒
+     */
+    void visit(String username, LoginSession session, long remainingMs);
+  }
+
+  @Getter
+  private static class Entry implements TimingWheel.Timed {
+
+    private final String username;
+    private final LoginSession session;
+    private volatile long deadlineMs;
+
+    Entry(final String username, final LoginSession session, final long deadlineMs) {
+      this.username = username;
+      this.session = session;
+      this.deadlineMs = deadlineMs;
+    }
+  }
+}
@@ -1,12 +1,8 @@
 package net.wuxianjie.springbootweb.auth;
 
 import jakarta.servlet.http.HttpServletRequest;
-import net.wuxianjie.springbootweb.auth.dto.AuthData;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-
-import java.util.ArrayList;
 
 /**
  * Token 身份验证接口，用于 {@link TokenAuthFilter}。
@@ -21,33 +17,27 @@ public interface TokenAuth {
    * <p>需要实现的逻辑：
    *
    * <ol>
-   *   <li>验证 JWT Token 本身（格式）是否合法</li>
-   *   <li>解析 JWT Token 获取载荷</li>
+   *   <li>验证 JWT Token 本身（签名及过期时间）是否合法，并获取载荷</li>
    *   <li>Token 类型必须为 {@link AuthProps#TOKEN_TYPE_ACCESS}</li>
    *   <li>通过用户名获取用户数据，并检查账号是否启用等信息</li>
    * </ol>
    *
+   * <p>身份验证失败时不抛出异常，而是返回 {@link AuthResult.Failure}。
+   *
    * @param accessToken 需要进行身份验证的 Access Token
-   * @return 身份验证通过后的用户信息
-   * @throws Exception 当身份验证失败时抛出
+   * @return 身份验证结果，通过时包含用户信息
    */
-  AuthData authenticate(String accessToken) throws Exception;
+  AuthResult authenticate(String accessToken);
 
   /**
    * 将登录信息写入 Spring Security Context 以便后续其他代码可从上下文中获取登录数据。
    *
-   * @param auth 登录成功后的数据
+   * <p>身份验证数据随会话缓存，此处仅包装后写入上下文，请求详情在首次读取时才创建。
+   *
+   * @param session 登录会话
    * @param req 当前 HTTP 请求
    */
-  default void setAuthenticatedContext(final AuthData auth, final HttpServletRequest req) {
-    final UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
-      auth,
-      null,
-      auth == null ? new ArrayList<>() : auth.getSpringSecurityAuthorities()
-    );
-
-    token.setDetails(new WebAuthenticationDetailsSource().buildDetails(req));
-
-    SecurityContextHolder.getContext().setAuthentication(token);
+  default void setAuthenticatedContext(final LoginSession session, final HttpServletRequest req) {
+    SecurityContextHolder.getContext().setAuthentication(new RequestAuthentication(session.getAuthentication(), req));
   }
 }
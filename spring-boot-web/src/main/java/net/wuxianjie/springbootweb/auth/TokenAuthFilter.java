@@ -2,31 +2,37 @@ package net.wuxianjie.springbootweb.auth;
 
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.extra.servlet.JakartaServletUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import net.wuxianjie.springbootweb.auth.dto.AuthData;
-import net.wuxianjie.springbootweb.shared.restapi.ApiException;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.shared.restapi.ErrorResponse;
+import net.wuxianjie.springbootweb.shared.util.RateLimitedLog;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 自定义 Spring Security Token 身份验证过滤器。
  *
  * <ul>
  *   <li>实现自定义的 {@link TokenAuth} 接口，定义对 Access Token 的身份验证，即登录逻辑</li>
+ *   <li>身份验证失败时直接返回 401，并以限流的方式记录日志</li>
+ *   <li>{@link SecurityPathRouter} 判定无需身份验证的请求直接放行，不解析请求头及 Token</li>
  * </ul>
  *
  * @author 吴仙杰
  */
+@Slf4j
 @RequiredArgsConstructor
 public class TokenAuthFilter extends OncePerRequestFilter {
 
@@ -39,8 +45,17 @@ public class TokenAuthFilter extends OncePerRequestFilter {
    */
   public static final String BEARER_PREFIX = "Bearer ";
 
-  private final HandlerExceptionResolver handlerExceptionResolver;
+  /**
+   * 身份验证失败日志的时间窗口，同一原因在窗口内至多记录一次。
+   */
+  private static final long FAILURE_LOG_INTERVAL_SEC = 10;
+
+  private static final RateLimitedLog FAILURE_LOG = new RateLimitedLog(FAILURE_LOG_INTERVAL_SEC, TimeUnit.SECONDS);
+
+  private final ObjectMapper objectMapper;
   private final TokenAuth tokenAuth;
+  private final RejectedTokenCache rejectedTokenCache;
+  private final SecurityPathRouter router;
 
   @Override
   protected void doFilterInternal(
@@ -48,44 +63,81 @@ public class TokenAuthFilter extends OncePerRequestFilter {
     @NonNull final HttpServletResponse resp,
     @NonNull final FilterChain chain
   ) throws ServletException, IOException {
+    // 公开的 API 无需解析 Token
+    if (router.route(req) != SecurityPathRouter.Route.AUTHENTICATED) {
+      chain.doFilter(req, resp);
+
+      return;
+    }
+
     // 从请求头中获取 Access Token
-    final Optional<String> bearerOpt = Optional.ofNullable(
-      JakartaServletUtil.getHeaderIgnoreCase(req, HttpHeaders.AUTHORIZATION)
-    );
+    final String bearer = JakartaServletUtil.getHeaderIgnoreCase(req, HttpHeaders.AUTHORIZATION);
 
-    if (bearerOpt.isEmpty()) {
+    if (bearer == null) {
       chain.doFilter(req, resp);
 
       return;
     }
 
-    if (!StrUtil.startWith(bearerOpt.get(), BEARER_PREFIX)) {
-      resolveUnauthorizedError(req, resp, "授权信息格式有误");
+    if (!StrUtil.startWith(bearer, BEARER_PREFIX)) {
+      writeUnauthorized(req, resp, AuthResult.Failure.MALFORMED_HEADER);
 
       return;
     }
 
-    final String token = StrUtil.removePrefix(bearerOpt.get(), BEARER_PREFIX);
+    final String token = StrUtil.removePrefix(bearer, BEARER_PREFIX);
+
+    // 近期已被拒绝或已被替代的 Token 直接拒绝，无需验证签名
+    final AuthResult.Failure rejected = rejectedTokenCache.get(token);
+
+    if (rejected != null) {
+      writeUnauthorized(req, resp, rejected);
+
+      return;
+    }
 
     // 执行 Access Token 身份验证，并获取用户数据
-    final AuthData auth;
+    final AuthResult result = tokenAuth.authenticate(token);
 
-    try {
-      auth = tokenAuth.authenticate(token);
-    } catch (Exception e) {
-      resolveUnauthorizedError(req, resp, e.getMessage());
+    if (result instanceof AuthResult.Failure failure) {
+      if (failure.isPermanent()) {
+        rejectedTokenCache.put(token, failure);
+      }
+
+      writeUnauthorized(req, resp, failure);
 
       return;
     }
 
     // 将登录信息写入 Spring Security Context 中
-    tokenAuth.setAuthenticatedContext(auth, req);
+    tokenAuth.setAuthenticatedContext(((AuthResult.Success) result).session(), req);
 
     // 继续执行下一个过滤器
     chain.doFilter(req, resp);
   }
 
-  private void resolveUnauthorizedError(final HttpServletRequest req, final HttpServletResponse resp, final String err) {
-    handlerExceptionResolver.resolveException(req, resp, null, new ApiException(HttpStatus.UNAUTHORIZED, err));
+  // 直接写入 401 响应，而不经过异常处理流程
+  private void writeUnauthorized(
+    final HttpServletRequest req,
+    final HttpServletResponse resp,
+    final AuthResult.Failure failure
+  ) throws IOException {
+    final long suppressed = FAILURE_LOG.tryAcquire(failure.name());
+
+    if (suppressed >= 0) {
+      log.warn("api=[{} {}];client={} -> Token 身份验证失败 [reason={};suppressed={}]",
+        req.getMethod(), req.getRequestURI(),
+        JakartaServletUtil.getClientIP(req),
+        failure.getMessage(), suppressed);
+    }
+
+    resp.setStatus(HttpStatus.UNAUTHORIZED.value());
+    resp.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+    objectMapper.writeValue(
+      resp.getOutputStream(),
+      new ErrorResponse(HttpStatus.UNAUTHORIZED, failure.getMessage(), req.getRequestURI())
+    );
   }
 }
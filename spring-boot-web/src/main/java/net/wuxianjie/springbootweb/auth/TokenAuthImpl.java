@@ -1,14 +1,11 @@
 package net.wuxianjie.springbootweb.auth;
 
-import cn.hutool.cache.impl.TimedCache;
 import cn.hutool.core.util.StrUtil;
 import lombok.RequiredArgsConstructor;
-import net.wuxianjie.springbootweb.auth.dto.AuthData;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
 import net.wuxianjie.springbootweb.auth.dto.TokenPayload;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
-
 /**
  * 实现 Token 身份验证。
  *
@@ -19,39 +16,79 @@ import java.util.Optional;
 public class TokenAuthImpl implements TokenAuth {
 
   private final TokenService tokenService;
-  private final TimedCache<String, AuthData> accessTokenCache;
+  private final SessionStore sessionStore;
+  private final TokenRevocationList revocationList;
+  private final AuthProps authProps;
 
   @Override
-  public AuthData authenticate(final String accessToken) {
-    // 检验 JWT Token 本身（格式）是否合法
-    final boolean legalToken = tokenService.isLegal(accessToken);
+  public AuthResult authenticate(final String accessToken) {
+    // 验证 JWT Token 并获取载荷
+    final TokenPayload payload = tokenService.verify(accessToken).orElse(null);
 
-    if (!legalToken) {
-      throw new IllegalArgumentException("Token 不合法");
+    if (payload == null) {
+      return AuthResult.Failure.ILLEGAL_TOKEN;
     }
 
-    // 解析 JWT Token 获取载荷
-    final TokenPayload payload = tokenService.parse(accessToken);
-
     // 检验 Token 类型是否为 Access Token
     if (!StrUtil.equals(payload.getType(), AuthProps.TOKEN_TYPE_ACCESS)) {
-      throw new IllegalArgumentException("API 鉴权请使用 Access Token");
+      return AuthResult.Failure.WRONG_TYPE;
+    }
+
+    // 无状态模式下直接由 Token 载荷构造身份验证数据
+    if (authProps.getTokenMode() == AuthProps.TokenMode.STATELESS) {
+      return authenticateStateless(payload);
     }
 
     // 检索登录缓存，获取用户
-    final AuthData cachedAuth = Optional.ofNullable(accessTokenCache.get(payload.getUsername()))
-      .orElseThrow(() -> new RuntimeException("Token 已失效"));
+    LoginSession session = sessionStore.get(payload.getUsername()).orElse(null);
+
+    if (session == null) {
+      return AuthResult.Failure.SESSION_EXPIRED;
+    }
+
+    // 检验 Access Token 是否与登录缓存中的一致，不一致时先确认不是本地缓存落后于共享存储，
+    // 因为已废弃的判定会被缓存至 Token 过期
+    if (!session.matchesAccessToken(accessToken)) {
+      session = sessionStore.reload(payload.getUsername()).orElse(null);
+
+      if (session == null) {
+        return AuthResult.Failure.SESSION_EXPIRED;
+      }
 
-    // 检验 Access Token 是否与登录缓存中的一致
-    if (!StrUtil.equals(cachedAuth.getAccessToken(), accessToken)) {
-      throw new RuntimeException("Token 已废弃");
+      if (!session.matchesAccessToken(accessToken)) {
+        return AuthResult.Failure.REVOKED;
+      }
     }
 
     // 检验账号是否已被禁用
-    if (cachedAuth.getStatus() == AccountStatus.DISABLED) {
-      throw new RuntimeException("账号已禁用");
+    if (session.getStatus() == AccountStatus.DISABLED) {
+      return AuthResult.Failure.ACCOUNT_DISABLED;
     }
 
-    return cachedAuth;
+    return new AuthResult.Success(session);
+  }
+
+  private AuthResult authenticateStateless(final TokenPayload payload) {
+    final TokenPayload.Claims claims = payload.getClaims();
+
+    // 会话模式签发的 Token 不含身份验证数据
+    if (claims == null) {
+      return AuthResult.Failure.ILLEGAL_TOKEN;
+    }
+
+    // 检验 Token 是否已被注销、禁用账号或变更角色权限而吊销
+    if (revocationList.isRevoked(claims)) {
+      return AuthResult.Failure.REVOKED;
+    }
+
+    // 检验账号是否已被禁用
+    if (claims.status() == AccountStatus.DISABLED) {
+      return AuthResult.Failure.ACCOUNT_DISABLED;
+    }
+
+    // 同一角色的 Token 所携带的权限位相同，故解码后驻留的权限集合也相同
+    final AuthoritySet authorities = AuthoritySet.of(AuthorityLattice.codesOf(claims.authorityBits()));
+
+    return new AuthResult.Success(LoginSession.ofClaims(payload.getUsername(), claims, authorities));
   }
 }
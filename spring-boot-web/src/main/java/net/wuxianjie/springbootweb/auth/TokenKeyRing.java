@@ -0,0 +1,237 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.jwt.signers.JWTSigner;
+import lombok.Getter;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JWT HS256 签名密钥环，支持不停机轮换密钥。
+ *
+ * <ul>
+ *   <li>仅有一个签名密钥，签发的 Token 在 {@code kid} 请求头中写入其密钥 id</li>
+ *   <li>签名密钥及所有验签密钥均可用于验签，按 {@code kid} 直接选择密钥</li>
+ *   <li>不含 {@code kid} 的 Token（即启用密钥环前签发的 Token）依次尝试所有密钥</li>
+ *   <li>每个密钥在每个线程中各有一个预先初始化的 {@link Mac}，签名及验签时无需重新构造密钥或 {@link Mac}</li>
+ * </ul>
+ *
+ * <p>轮换步骤：
+ *
+ * <ol>
+ *   <li>将新密钥加入所有节点的验签密钥（{@code auth.verification-keys}）</li>
+ *   <li>将新密钥设为签名密钥，旧密钥移入验签密钥</li>
+ *   <li>超过 Token 有效期后，移除旧密钥</li>
+ * </ol>
+ *
+ * @author 吴仙杰
+ */
+public class TokenKeyRing {
+
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+  /**
+   * 验签时线程内复用的缓冲区。
+   */
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+  @Getter
+  private final HmacKey signingKey;
+
+  private final Map<String, HmacKey> keys;
+
+  /**
+   * 构造密钥环。
+   *
+   * @param signingKeyId 签名密钥 id
+   * @param signingSecret 签名密钥
+   * @param verificationKeys 仅用于验签的密钥，键为密钥 id，值为密钥
+   * @throws IllegalArgumentException 当密钥 id 重复时抛出
+   */
+  public TokenKeyRing(
+    final String signingKeyId,
+    final String signingSecret,
+    final Map<String, String> verificationKeys
+  ) {
+    final Map<String, HmacKey> all = new LinkedHashMap<>();
+
+    this.signingKey = new HmacKey(signingKeyId, signingSecret);
+    all.put(signingKeyId, signingKey);
+
+    verificationKeys.forEach((keyId, secret) -> {
+      if (all.putIfAbsent(keyId, new HmacKey(keyId, secret)) != null) {
+        throw new IllegalArgumentException("Token 密钥 id 重复 [kid=" + keyId + "]");
+      }
+    });
+
+    this.keys = Collections.unmodifiableMap(all);
+  }
+
+  /**
+   * 根据 AuthProps 构造密钥环。
+   *
+   * @param authProps 身份验证相关配置
+   * @return 密钥环
+   */
+  public static TokenKeyRing of(final AuthProps authProps) {
+    return new TokenKeyRing(authProps.getTokenKeyId(), authProps.getTokenKey(), authProps.getVerificationKeys());
+  }
+
+  /**
+   * 获取用于验签的候选密钥。
+   *
+   * @param keyId Token 中的 {@code kid}，可为 {@code null}
+   * @return 候选密钥，当 {@code kid} 不存在时返回空列表
+   */
+  public List<HmacKey> getVerificationKeys(final String keyId) {
+    if (keyId == null) {
+      return new ArrayList<>(keys.values());
+    }
+
+    final HmacKey key = keys.get(keyId);
+
+    return key == null ? List.of() : List.of(key);
+  }
+
+  /**
+   * HS256 密钥，实现 Hutool 的 JWT 签名器接口。
+   */
+  public static class HmacKey implements JWTSigner {
+
+    @Getter
+    private final String keyId;
+
+    private final ThreadLocal<Mac> macs;
+
+    HmacKey(final String keyId, final String secret) {
+      final SecretKeySpec keySpec = new SecretKeySpec(secret.getBytes(), HMAC_ALGORITHM);
+
+      this.keyId = keyId;
+      this.macs = ThreadLocal.withInitial(() -> newMac(keySpec));
+
+      // 启动时即检查密钥是否可用
+      macs.get();
+    }
+
+    @Override
+    public String sign(final String headerBase64, final String payloadBase64) {
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(mac(headerBase64, payloadBase64));
+    }
+
+    @Override
+    public boolean verify(final String headerBase64, final String payloadBase64, final String signBase64) {
+      final byte[] actual;
+
+      try {
+        actual = Base64.getUrlDecoder().decode(signBase64);
+      } catch (IllegalArgumentException e) {
+        return false;
+      }
+
+      // 常量时间比较，防止计时攻击
+      return MessageDigest.isEqual(mac(headerBase64, payloadBase64), actual);
+    }
+
+    /**
+     * 直接以 Token 原文验签，无需先拆分为各部分的字符串。
+     *
+     * @param token JWT Token
+     * @param signingInputEnd 第二个 {@code .} 的位置，即签名内容的结束位置
+     * @return 签名是否正确
+     */
+    public boolean verify(final String token, final int signingInputEnd) {
+      final Scratch scratch = SCRATCH.get();
+      final byte[] input = scratch.input(signingInputEnd);
+
+      // 合法的 Token 仅含 ASCII 字符
+      for (int i = 0; i < signingInputEnd; i++) {
+        final char c = token.charAt(i);
+
+        if (c >= 0x80) {
+          return false;
+        }
+
+        input[i] = (byte) c;
+      }
+
+      final int signatureLength = JwtClaimDecoder.decodeBase64Url(
+        token, signingInputEnd + 1, token.length(), scratch.signature);
+
+      final Mac mac = macs.get();
+
+      if (signatureLength != mac.getMacLength()) {
+        return false;
+      }
+
+      mac.update(input, 0, signingInputEnd);
+
+      try {
+        mac.doFinal(scratch.expected, 0);
+      } catch (ShortBufferException e) {
+        throw new IllegalStateException(e);
+      }
+
+      // 常量时间比较，防止计时攻击
+      int diff = 0;
+
+      for (int i = 0; i < signatureLength; i++) {
+        diff |= scratch.expected[i] ^ scratch.signature[i];
+      }
+
+      return diff == 0;
+    }
+
+    @Override
+    public String getAlgorithm() {
+      return HMAC_ALGORITHM;
+    }
+
+    // `doFinal` 会重置 Mac，故同一线程可直接复用
+    private byte[] mac(final String headerBase64, final String payloadBase64) {
+      final Mac mac = macs.get();
+
+      mac.update(headerBase64.getBytes(StandardCharsets.US_ASCII));
+      mac.update((byte) '.');
+      mac.update(payloadBase64.getBytes(StandardCharsets.US_ASCII));
+
+      return mac.doFinal();
+    }
+
+    private static Mac newMac(final SecretKeySpec keySpec) {
+      try {
+        final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+
+        mac.init(keySpec);
+
+        return mac;
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException("无法初始化 Token 签名密钥", e);
+      }
+    }
+  }
+
+  private static class Scratch {
+
+    private byte[] input = new byte[1024];
+    private final byte[] signature = new byte[64];
+    private final byte[] expected = new byte[64];
+
+    byte[] input(final int length) {
+      if (input.length < length) {
+        input = new byte[Math.max(length, input.length * 2)];
+      }
+
+      return input;
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package net.wuxianjie.springbootweb.auth;
+
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.auth.dto.TokenPayload;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 无状态 Token 的吊销列表，用于注销、禁用账号或变更角色权限后使已签发的 Token 失效。
+ *
+ * <ul>
+ *   <li>按用户或角色吊销，记录吊销时间，签发时间早于吊销时间的 Token 即视为已吊销</li>
+ *   <li>超过 Token 有效期后，此前签发的 Token 均已过期，故吊销记录随之删除，列表始终很小</li>
+ *   <li>集群模式下吊销记录同时写入 {@code token_revocation} 表，其他节点定时拉取，
+ *   启动时也会先加载仍有效的吊销记录</li>
+ *   <li>会话模式下不使用吊销列表，由 {@link #disabled()} 创建，不启动拉取及清理线程</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+public class TokenRevocationList implements AutoCloseable {
+
+  /**
+   * 吊销记录的保留时长，即 Token 的有效期，单位：毫秒。
+   */
+  private static final long ENTRY_TTL_MS = AuthProps.TOKEN_EXP_SEC * 1000L;
+
+  /**
+   * 每次拉取的最大吊销记录数。
+   */
+  private static final int BATCH_SIZE = 1000;
+
+  /**
+   * 清理过期吊销记录的间隔，单位：秒。
+   */
+  private static final long CLEANUP_INTERVAL_SEC = 60;
+
+  private static final String USER_PREFIX = "u:";
+  private static final String ROLE_PREFIX = "r:";
+
+  /**
+   * {@code {subject: revokedAtEpochMs}}。
+   */
+  private final Map<String, Long> revokedAt = new ConcurrentHashMap<>();
+
+  /**
+   * 集群模式下吊销记录相关的 SQL 语句，单机模式下为 {@code null}。
+   */
+  private final SessionMapper sessionMapper;
+
+  /**
+   * 拉取及清理吊销记录的线程，未启用时为 {@code null}。
+   */
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * 已拉取的最后一条吊销记录 id，仅由拉取线程读写。
+   */
+  private long lastId;
+
+  /**
+   * 构造吊销列表。
+   *
+   * @param sessionMapper 吊销记录相关的 SQL 语句，为 {@code null} 时仅在当前进程中生效
+   * @param pollIntervalMs 拉取其他节点吊销记录的间隔，单位：毫秒，单机模式下忽略
+   */
+  public TokenRevocationList(final SessionMapper sessionMapper, final long pollIntervalMs) {
+    this.sessionMapper = sessionMapper;
+
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread thread = new Thread(r, "token-revocation");
+      thread.setDaemon(true);
+
+      return thread;
+    });
+
+    if (sessionMapper != null) {
+      // 与近端缓存不同，吊销记录不可遗漏，故启动时先加载仍有效的记录
+      poll();
+
+      scheduler.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    scheduler.scheduleWithFixedDelay(this::cleanup, CLEANUP_INTERVAL_SEC, CLEANUP_INTERVAL_SEC, TimeUnit.SECONDS);
+  }
+
+  private TokenRevocationList() {
+    this.sessionMapper = null;
+    this.scheduler = null;
+  }
+
+  /**
+   * 创建未启用的吊销列表，用于会话模式，吊销操作不生效，也不会有 Token 被视为已吊销。
+   *
+   * @return 未启用的吊销列表
+   */
+  public static TokenRevocationList disabled() {
+    return new TokenRevocationList();
+  }
+
+  /**
+   * 吊销用户此前签发的所有 Token。
+   *
+   * @param userId 用户 id
+   */
+  public void revokeUser(final long userId) {
+    revoke(USER_PREFIX + userId);
+  }
+
+  /**
+   * 吊销角色下所有用户此前签发的所有 Token。
+   *
+   * @param roleId 角色 id
+   */
+  public void revokeRole(final long roleId) {
+    revoke(ROLE_PREFIX + roleId);
+  }
+
+  /**
+   * 检查 Token 是否已被吊销。
+   *
+   * @param claims 无状态 Token 所携带的身份验证数据
+   * @return 是否已被吊销
+   */
+  public boolean isRevoked(final TokenPayload.Claims claims) {
+    // 绝大多数情况下列表为空，直接返回
+    if (revokedAt.isEmpty()) {
+      return false;
+    }
+
+    return isRevokedAfter(USER_PREFIX + claims.userId(), claims.issuedAtMs()) ||
+      isRevokedAfter(ROLE_PREFIX + claims.roleId(), claims.issuedAtMs());
+  }
+
+  /**
+   * 获取当前的吊销记录数。
+   *
+   * @return 吊销记录数
+   */
+  public int size() {
+    return revokedAt.size();
+  }
+
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  private void revoke(final String subject) {
+    // 未启用时没有清理线程，不记录以免列表无限增长
+    if (scheduler == null) {
+      return;
+    }
+
+    final long now = System.currentTimeMillis();
+
+    revokedAt.merge(subject, now, Math::max);
+
+    if (sessionMapper != null) {
+      sessionMapper.insertRevocation(subject, now, now + ENTRY_TTL_MS);
+    }
+
+    log.info("已吊销 Token [subject={}]", subject);
+  }
+
+  private boolean isRevokedAfter(final String subject, final long issuedAtMs) {
+    final Long revoked = revokedAt.get(subject);
+
+    return revoked != null && issuedAtMs < revoked;
+  }
+
+  private void poll() {
+    try {
+      List<SessionMapper.Revocation> revocations;
+
+      do {
+        revocations = sessionMapper.selectRevocationsAfterLimit(lastId, System.currentTimeMillis(), BATCH_SIZE);
+
+        for (final SessionMapper.Revocation revocation : revocations) {
+          revokedAt.merge(revocation.subject(), revocation.revokedAt(), Math::max);
+
+          lastId = revocation.id();
+        }
+      } while (revocations.size() == BATCH_SIZE);
+    } catch (Exception e) {
+      log.error("拉取 Token 吊销记录失败", e);
+    }
+  }
+
+  private void cleanup() {
+    try {
+      final long now = System.currentTimeMillis();
+
+      revokedAt.values().removeIf(revoked -> revoked + ENTRY_TTL_MS <= now);
+
+      if (sessionMapper != null) {
+        sessionMapper.deleteRevocationsExpired(now);
+      }
+    } catch (Exception e) {
+      log.error("清理过期 Token 吊销记录失败", e);
+    }
+  }
+}
@@ -1,11 +1,9 @@
 package net.wuxianjie.springbootweb.auth;
 
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.jwt.JWT;
+import cn.hutool.jwt.JWTHeader;
 import cn.hutool.jwt.JWTPayload;
-import cn.hutool.jwt.JWTUtil;
-import cn.hutool.jwt.JWTValidator;
-import cn.hutool.jwt.signers.JWTSignerUtil;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.wuxianjie.springbootweb.auth.dto.TokenPayload;
 import org.springframework.stereotype.Service;
@@ -19,30 +17,16 @@ import java.util.Optional;
  * @author 吴仙杰
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class TokenService {
 
-  private final AuthProps authProps;
-
   /**
-   * 检查 Token 是否合法。
-   *
-   * @param token 需要检查的 Token
-   * @return Token 是否合法
+   * 签名及验签密钥，每个密钥在每个线程中各有一个预先初始化的 Mac，且支持不停机轮换。
    */
-  public boolean isLegal(final String token) {
-    try {
-      JWTValidator.of(token)
-        .validateAlgorithm(JWTSignerUtil.hs256(authProps.getTokenKey().getBytes()))
-        .validateDate();
-    } catch (Exception e) {
-      log.warn("Token 不合法 [token={};error={}]", token, e.getMessage());
-
-      return false;
-    }
+  private final TokenKeyRing keyRing;
 
-    return true;
+  public TokenService(final AuthProps authProps) {
+    this.keyRing = TokenKeyRing.of(authProps);
   }
 
   /**
@@ -52,58 +36,190 @@ public class TokenService {
    * @return JWT Token
    */
   public String createToken(final TokenPayload payload) {
-    return JWTUtil.createToken(
-      Map.ofEntries(
+    final JWT jwt = JWT.create()
+      .addPayloads(Map.ofEntries(
         Map.entry(AuthProps.JWT_PAYLOAD_USERNAME, payload.getUsername()),
         Map.entry(AuthProps.JWT_PAYLOAD_TYPE, payload.getType()),
         Map.entry(JWTPayload.ISSUER, payload.getIss()),
         Map.entry(JWTPayload.EXPIRES_AT, payload.getExp())
-      ),
-      authProps.getTokenKey().getBytes()
-    );
+      ));
+
+    final TokenPayload.Claims claims = payload.getClaims();
+
+    if (claims != null) {
+      // 功能权限位以十六进制字符串保存，避免超出 JSON 数字的安全整数范围
+      jwt.setPayload(AuthProps.JWT_PAYLOAD_USER_ID, claims.userId())
+        .setPayload(AuthProps.JWT_PAYLOAD_STATUS, claims.status().getCode())
+        .setPayload(AuthProps.JWT_PAYLOAD_ROLE_ID, claims.roleId())
+        .setPayload(AuthProps.JWT_PAYLOAD_AUTHORITIES, Long.toHexString(claims.authorityBits()))
+        .setPayload(AuthProps.JWT_PAYLOAD_ISSUED_AT_MS, claims.issuedAtMs());
+    }
+
+    final TokenKeyRing.HmacKey signingKey = keyRing.getSigningKey();
+
+    return jwt.setHeader(JWTHeader.KEY_ID, signingKey.getKeyId()).sign(signingKey);
   }
 
   /**
-   * 解析 JWT Token，并获取载荷。
+   * 验证 JWT Token 并获取载荷。
+   *
+   * <p>仅解析一次 Token，依次检验签名算法、签名、必要载荷及过期时间。
    *
-   * @param token 需要解析的 Token
-   * @return Token 载荷
+   * <p>优先使用 {@link JwtClaimDecoder} 直接从 Token 字节中提取所需字段，
+   * <br>其无法处理的 Token 再交由 Hutool 的通用 JSON 解析器处理，两者的结果完全一致。
+   *
+   * <p>失败原因仅以 DEBUG 级别记录，由 {@link TokenAuthFilter} 以限流的方式统一记录 WARN 日志。
+   *
+   * @param token 需要验证的 Token
+   * @return Token 载荷，当 Token 不合法时返回空
    */
-  public TokenPayload parse(final String token) {
-    final JWT jwt = JWTUtil.parseToken(token);
+  public Optional<TokenPayload> verify(final String token) {
+    final int firstDot = token.indexOf('.');
+    final int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
 
-    final String username = Optional.ofNullable(jwt.getPayload(AuthProps.JWT_PAYLOAD_USERNAME))
-      .map(Object::toString)
-      .orElseThrow(() -> {
-        log.warn("JWT 缺少必要载荷 [{}]", AuthProps.JWT_PAYLOAD_USERNAME);
+    if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+      log.debug("Token 格式错误 [error=The token was expected 3 parts]");
 
-        return new IllegalArgumentException("错误的 Token");
-      });
+      return Optional.empty();
+    }
 
-    final String type = Optional.ofNullable(jwt.getPayload(AuthProps.JWT_PAYLOAD_TYPE))
-      .map(Object::toString)
-      .orElseThrow(() -> {
-        log.warn("JWT 缺少必要载荷 [{}]", AuthProps.JWT_PAYLOAD_TYPE);
+    JwtClaimDecoder.Decoded decoded = JwtClaimDecoder.decode(token, firstDot, secondDot);
 
-        return new IllegalArgumentException("错误的 Token");
-      });
+    if (decoded == null) {
+      try {
+        decoded = decodeGeneral(token);
+      } catch (Exception e) {
+        log.debug("Token 格式错误 [error={}]", e.getMessage());
 
-    final String iss = Optional.ofNullable(jwt.getPayload(JWTPayload.ISSUER))
-      .map(Object::toString)
-      .orElseThrow(() -> {
-        log.warn("JWT 缺少必要载荷 [{}]", JWTPayload.ISSUER);
+        return Optional.empty();
+      }
+    }
+
+    // 检验签名算法，防止使用 `none` 等非预期算法绕过验签
+    if (!StrUtil.equals(decoded.algorithm(), keyRing.getSigningKey().getAlgorithmId())) {
+      log.debug("Token 签名算法不符 [alg={}]", decoded.algorithm());
+
+      return Optional.empty();
+    }
+
+    // 按 `kid` 选择密钥并检验签名
+    if (!isSignatureValid(token, secondDot, decoded.keyId())) {
+      log.debug("Token 签名错误 [kid={}]", decoded.keyId());
+
+      return Optional.empty();
+    }
+
+    // 获取必要载荷
+    final String username = decoded.username();
+    final Long exp = decoded.expiresAt();
+
+    if (username == null || decoded.type() == null || decoded.issuer() == null || exp == null) {
+      log.debug("JWT 缺少必要载荷 [username={};type={};iss={};exp={}]",
+        username, decoded.type(), decoded.issuer(), exp);
+
+      return Optional.empty();
+    }
+
+    // 检验过期时间
+    if (exp <= System.currentTimeMillis() / 1000) {
+      log.debug("Token 已过期 [username={};exp={}]", username, exp);
+
+      return Optional.empty();
+    }
 
-        return new IllegalArgumentException("错误的 Token");
-      });
+    final TokenPayload payload = new TokenPayload(username, decoded.type(), decoded.issuer(), exp);
 
-    final long exp = Optional.ofNullable(jwt.getPayload(JWTPayload.EXPIRES_AT))
-      .map(o -> Long.parseLong(o.toString()))
-      .orElseThrow(() -> {
-        log.warn("JWT 缺少必要载荷 [{}]", JWTPayload.EXPIRES_AT);
+    // 会话模式的 Token 不含用户 id
+    if (decoded.hasUserId()) {
+      final TokenPayload.Claims claims = toClaims(decoded);
 
-        return new IllegalArgumentException("错误的 Token");
-      });
+      if (claims == null) {
+        log.debug("无状态 Token 缺少必要载荷 [username={}]", username);
+
+        return Optional.empty();
+      }
+
+      payload.setClaims(claims);
+    }
+
+    return Optional.of(payload);
+  }
+
+  /**
+   * 以 Hutool 的通用 JSON 解析器解码 Token，字段的取值规则与原先直接读取 {@link JWT} 载荷时一致。
+   *
+   * @param token JWT Token
+   * @return 解码结果
+   * @throws RuntimeException 当 Token 格式错误时抛出
+   */
+  static JwtClaimDecoder.Decoded decodeGeneral(final String token) {
+    final JWT jwt = JWT.of(token);
+
+    final Object keyId = jwt.getHeader(JWTHeader.KEY_ID);
+    final Object userId = jwt.getPayload(AuthProps.JWT_PAYLOAD_USER_ID);
+
+    return new JwtClaimDecoder.Decoded(
+      jwt.getAlgorithm(),
+      keyId == null ? null : keyId.toString(),
+      toStr(jwt.getPayload(AuthProps.JWT_PAYLOAD_USERNAME)),
+      toStr(jwt.getPayload(AuthProps.JWT_PAYLOAD_TYPE)),
+      toStr(jwt.getPayload(JWTPayload.ISSUER)),
+      toLong(jwt.getPayload(JWTPayload.EXPIRES_AT)),
+      userId != null,
+      toLong(userId),
+      toLong(jwt.getPayload(AuthProps.JWT_PAYLOAD_STATUS)),
+      toLong(jwt.getPayload(AuthProps.JWT_PAYLOAD_ROLE_ID)),
+      toStr(jwt.getPayload(AuthProps.JWT_PAYLOAD_AUTHORITIES)),
+      toLong(jwt.getPayload(AuthProps.JWT_PAYLOAD_ISSUED_AT_MS))
+    );
+  }
+
+  private boolean isSignatureValid(final String token, final int signingInputEnd, final String keyId) {
+    for (final TokenKeyRing.HmacKey key : keyRing.getVerificationKeys(keyId)) {
+      if (key.verify(token, signingInputEnd)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static TokenPayload.Claims toClaims(final JwtClaimDecoder.Decoded decoded) {
+    if (decoded.userId() == null ||
+      decoded.status() == null ||
+      decoded.roleId() == null ||
+      decoded.issuedAtMs() == null ||
+      decoded.authorities() == null) {
+      return null;
+    }
+
+    final AccountStatus accountStatus = AccountStatus.resolve(decoded.status().intValue()).orElse(null);
+    final long authorityBits;
+
+    try {
+      authorityBits = Long.parseUnsignedLong(decoded.authorities(), 16);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+
+    if (accountStatus == null) {
+      return null;
+    }
+
+    return new TokenPayload.Claims(
+      decoded.userId(),
+      accountStatus,
+      decoded.roleId(),
+      authorityBits,
+      decoded.issuedAtMs()
+    );
+  }
+
+  private static String toStr(final Object value) {
+    return value == null ? null : value.toString();
+  }
 
-    return new TokenPayload(username, type, iss, exp);
+  private static Long toLong(final Object value) {
+    return value instanceof Number number ? number.longValue() : null;
   }
 }
@@ -1,6 +1,9 @@
 package net.wuxianjie.springbootweb.auth;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import net.wuxianjie.springbootweb.shared.ratelimit.RateLimitFilter;
+import net.wuxianjie.springbootweb.shared.ratelimit.RateLimiter;
 import net.wuxianjie.springbootweb.shared.restapi.ApiException;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,7 +15,6 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -33,7 +35,11 @@ import org.springframework.web.servlet.HandlerExceptionResolver;
 public class WebSecurityConfig {
 
   private final HandlerExceptionResolver handlerExceptionResolver;
+  private final ObjectMapper objectMapper;
   private final TokenAuth tokenAuth;
+  private final RejectedTokenCache rejectedTokenCache;
+  private final AuthProps authProps;
+  private final RateLimiter rateLimiter;
 
   // ========== Spring Security 测试配置 ==========
 
@@ -102,54 +108,78 @@ public class WebSecurityConfig {
    *   <li>bcrypt：BCrypt 哈希密码</li>
    * </ul>
    *
+   * <p>BCrypt 的 cost 并非固定值，而是在启动时根据当前机器性能及目标耗时选择，见 {@link CalibratedPasswordEncoder}。
+   *
    * @return Bcrypt 密码编码器
    */
   @Bean
   public PasswordEncoder passwordEncoder() {
     // 固定使用 BCrypt 作为项目的密码编码器
-    return new BCryptPasswordEncoder();
+    final AuthProps.Login login = authProps.getLogin();
+
+    return CalibratedPasswordEncoder.calibrate(login.getHashTargetMs(), login.getHashMinCost(), login.getHashMaxCost());
 
     // 使用 Spring Security 默认的密码编码器
 //    return PasswordEncoderFactories.createDelegatingPasswordEncoder();
   }
 
+  /**
+   * 预编译的安全路径路由，决定请求是否需要 Token 身份验证、是否公开访问，或不经过 Spring Security。
+   *
+   * <p>按顺序比较，符合则退出后续比较。
+   *
+   * @return 安全路径路由
+   */
+  @Bean
+  public SecurityPathRouter securityPathRouter() {
+    return SecurityPathRouter.builder()
+      // 开放获取鉴权信息相关 API
+      .permitAll("/api/v1/token/**")
+      // 开放获取项目版本号 API
+      .permitAll("/api/v1/version")
+      // 开放测试相关 API
+      .permitAll("/api/v1/test/**")
+      // 默认所有 API 都需要登录才能访问
+      .authenticated("/api/**")
+      // 其他请求（如 SPA 前端资源）不经过 Spring Security
+      .build();
+  }
+
   /**
    * 配置 Spring Security 的过滤器链。
    *
    * <p>若不注入此 Bean，则使用 Spring Security 默认配置。
    *
    * @param http HTTP 安全配置器
+   * @param router 安全路径路由
    * @return 配置后的过滤器链
    * @throws Exception 当配置失败时抛出
    */
   @Bean
-  public SecurityFilterChain securityFilterChain(final HttpSecurity http) throws Exception {
-    // 以下配置仅对 API 请求（即以 `/api/` 为前缀的 Path）生效
+  public SecurityFilterChain securityFilterChain(
+    final HttpSecurity http,
+    final SecurityPathRouter router
+  ) throws Exception {
+    // 以下配置仅对 API 请求（即以 `/api/` 为前缀的 Path）生效，由安全路径路由一次判断
     http
-      .securityMatcher("/api/**")
-      // 按顺序比较，符合则退出后续比较
+      .securityMatcher(req -> router.route(req) != SecurityPathRouter.Route.OUTSIDE)
       .authorizeHttpRequests()
-      // 开放获取鉴权信息相关 API
-      .requestMatchers("/api/v1/token/**").permitAll()
-      // 开放获取项目版本号 API
-      .requestMatchers("/api/v1/version").permitAll()
-      // 开放测试相关 API
-      .requestMatchers("/api/v1/test/**").permitAll()
-      // 默认所有 API 都需要登录才能访问
-      .requestMatchers("/**").authenticated().and()
+      // 公开的 API 无需登录即可访问
+      .requestMatchers(req -> router.route(req) == SecurityPathRouter.Route.PUBLIC).permitAll()
+      // 其余 API 都需要登录才能访问
+      .anyRequest().authenticated().and()
       // 在进入 Spring Security 身份验证过滤器前添加自定义的 Token 身份验证过滤器
-      // 注意：哪怕是 `permitAll` 的 URI 也会进入过滤器
+      // 注意：公开的 API 虽也会进入过滤器，但会直接跳过 Token 解析及验证
       .addFilterBefore(
-        new TokenAuthFilter(handlerExceptionResolver, tokenAuth),
+        new TokenAuthFilter(objectMapper, tokenAuth, rejectedTokenCache, router),
         UsernamePasswordAuthenticationFilter.class
-      );
+      )
+      // 在 Token 身份验证之后限流，以便已登录的请求按用户而非 IP 限流
+      .addFilterAfter(new RateLimitFilter(rateLimiter, handlerExceptionResolver), TokenAuthFilter.class);
 
-    // 以下配置对所有请求生效
+    // 以下配置对所有经过 Spring Security 的请求生效
+    // SPA 前端资源等非 API 请求由安全路径路由判定为不经过 Spring Security，故所有人都可访问
     http
-      // 按顺序比较，符合则退出后续比较
-      .authorizeHttpRequests()
-      // 默认所有请求所有人都可访问（保证 SPA 前端资源可用）
-      .requestMatchers("/**").permitAll().and()
       // 允许前端使用 iFrame
       .headers().frameOptions().disable().and()
       // 启用 CORS 并禁用 CSRF
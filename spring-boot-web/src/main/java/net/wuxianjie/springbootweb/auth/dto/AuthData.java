@@ -1,24 +1,20 @@
 package net.wuxianjie.springbootweb.auth.dto;
 
-import cn.hutool.core.util.ArrayUtil;
 import cn.hutool.core.util.StrUtil;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import net.wuxianjie.springbootweb.auth.AccountStatus;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.AuthorityUtils;
 
-import java.util.Collection;
 import java.util.List;
 
 /**
- * 通过身份验证后的详细数据。
+ * 登录时从数据库中获取的用户数据。
+ *
+ * <p>仅用于登录及刷新 Token，通过身份验证后保存的是不含哈希密码的 {@link LoginSession}。
  *
  * @author 吴仙杰
  */
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class AuthData {
 
@@ -43,17 +39,13 @@ public class AuthData {
    */
   private AccountStatus status;
   /**
-   * 功能权限列表。
-   */
-  private List<String> authorities;
-  /**
-   * 用于接口访问的 Access Token。
+   * 角色 id。
    */
-  private String accessToken;
+  private long roleId;
   /**
-   * 用于刷新的 Refresh Token。
+   * 功能权限列表。
    */
-  private String refreshToken;
+  private List<String> authorities;
 
   // 用于 MyBatis 的 ResultMap
   public AuthData(
@@ -69,12 +61,6 @@ public class AuthData {
     this.hashedPassword = hashedPassword;
     this.nickname = nickname;
     this.status = status;
-
     this.authorities = StrUtil.split(authorities, StrUtil.COMMA, true, true);
   }
-
-  // 用于 Spring Security 的权限集合
-  public Collection<? extends GrantedAuthority> getSpringSecurityAuthorities() {
-    return AuthorityUtils.createAuthorityList(ArrayUtil.toArray(authorities, String.class));
-  }
 }
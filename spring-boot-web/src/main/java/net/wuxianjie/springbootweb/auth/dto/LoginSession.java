@@ -0,0 +1,277 @@
+package net.wuxianjie.springbootweb.auth.dto;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import net.wuxianjie.springbootweb.auth.AccountStatus;
+import net.wuxianjie.springbootweb.auth.AuthoritySet;
+import net.wuxianjie.springbootweb.auth.SessionAuthentication;
+
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * 登录会话，即通过身份验证后的用户数据，不可变。
+ *
+ * <p>与 {@link AuthData} 相比：
+ *
+ * <ul>
+ *   <li>不含哈希密码，哈希密码只在登录时使用，不随会话常驻内存</li>
+ *   <li>仅保存 Token 的 SHA-256 摘要，用于比对请求中的 Token 是否为当前会话签发的 Token</li>
+ *   <li>功能权限为驻留的 {@link AuthoritySet}，同一角色下的所有会话共享同一实例</li>
+ * </ul>
+ *
+ * <p>修改会话时需创建新实例，如 {@link #withNickname(String)}。
+ *
+ * @author 吴仙杰
+ */
+public final class LoginSession {
+
+  private final long userId;
+  private final String username;
+  private final String nickname;
+  private final AccountStatus status;
+  private final long roleId;
+  private final AuthoritySet authorities;
+  private final byte[] accessTokenDigest;
+  private final byte[] refreshTokenDigest;
+
+  /**
+   * 与会话一同缓存的身份验证数据，见 {@link #getAuthentication()}。
+   */
+  private volatile SessionAuthentication authentication;
+
+  private LoginSession(
+    final long userId,
+    final String username,
+    final String nickname,
+    final AccountStatus status,
+    final long roleId,
+    final AuthoritySet authorities,
+    final byte[] accessTokenDigest,
+    final byte[] refreshTokenDigest
+  ) {
+    this.userId = userId;
+    this.username = username;
+    this.nickname = nickname;
+    this.status = status;
+    this.roleId = roleId;
+    this.authorities = authorities;
+    this.accessTokenDigest = accessTokenDigest;
+    this.refreshTokenDigest = refreshTokenDigest;
+  }
+
+  // 用于 MyBatis 的 ResultMap 及会话日志
+  public LoginSession(
+    final long userId,
+    final String username,
+    final String nickname,
+    final AccountStatus status,
+    final long roleId,
+    final String authorities,
+    final byte[] accessTokenDigest,
+    final byte[] refreshTokenDigest
+  ) {
+    this(
+      userId,
+      username,
+      nickname,
+      status,
+      roleId,
+      AuthoritySet.of(StrUtil.split(authorities, StrUtil.COMMA, true, true)),
+      accessTokenDigest,
+      refreshTokenDigest
+    );
+  }
+
+  /**
+   * 由登录用户数据及新签发的 Token 创建登录会话。
+   *
+   * @param auth 登录用户数据
+   * @param accessToken Access Token
+   * @param refreshToken Refresh Token
+   * @return 登录会话
+   */
+  public static LoginSession of(final AuthData auth, final String accessToken, final String refreshToken) {
+    return new LoginSession(
+      auth.getUserId(),
+      auth.getUsername(),
+      auth.getNickname(),
+      auth.getStatus(),
+      auth.getRoleId(),
+      AuthoritySet.of(auth.getAuthorities()),
+      digest(accessToken),
+      digest(refreshToken)
+    );
+  }
+
+  /**
+   * 由无状态 Token 的载荷创建登录会话，不含 Token 摘要。
+   *
+   * @param username 用户名
+   * @param claims 无状态 Token 所携带的身份验证数据
+   * @param authorities 功能权限
+   * @return 登录会话
+   */
+  public static LoginSession ofClaims(
+    final String username,
+    final TokenPayload.Claims claims,
+    final AuthoritySet authorities
+  ) {
+    return new LoginSession(
+      claims.userId(),
+      username,
+      null,
+      claims.status(),
+      claims.roleId(),
+      authorities,
+      null,
+      null
+    );
+  }
+
+  /**
+   * 创建仅昵称不同的登录会话。
+   *
+   * @param nickname 新昵称
+   * @return 新的登录会话
+   */
+  public LoginSession withNickname(final String nickname) {
+    return new LoginSession(
+      userId,
+      username,
+      nickname,
+      status,
+      roleId,
+      authorities,
+      accessTokenDigest,
+      refreshTokenDigest
+    );
+  }
+
+  /**
+   * 创建仅功能权限不同的登录会话。
+   *
+   * @param authorities 新的权限代码列表
+   * @return 新的登录会话
+   */
+  public LoginSession withAuthorities(final List<String> authorities) {
+    return new LoginSession(
+      userId,
+      username,
+      nickname,
+      status,
+      roleId,
+      AuthoritySet.of(authorities),
+      accessTokenDigest,
+      refreshTokenDigest
+    );
+  }
+
+  /**
+   * 检查 Access Token 是否为当前会话签发的 Token。
+   *
+   * @param accessToken 需要检查的 Access Token
+   * @return 是否一致
+   */
+  public boolean matchesAccessToken(final String accessToken) {
+    return matches(accessTokenDigest, accessToken);
+  }
+
+  /**
+   * 检查 Refresh Token 是否为当前会话签发的 Token。
+   *
+   * @param refreshToken 需要检查的 Refresh Token
+   * @return 是否一致
+   */
+  public boolean matchesRefreshToken(final String refreshToken) {
+    return matches(refreshTokenDigest, refreshToken);
+  }
+
+  /**
+   * 获取与会话一同缓存的身份验证数据，首次调用时创建。
+   *
+   * @return 身份验证数据
+   */
+  public SessionAuthentication getAuthentication() {
+    SessionAuthentication result = authentication;
+
+    if (result == null) {
+      // 并发时可能重复创建，但结果一致，无需加锁
+      result = new SessionAuthentication(this);
+      authentication = result;
+    }
+
+    return result;
+  }
+
+  public long getUserId() {
+    return userId;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getNickname() {
+    return nickname;
+  }
+
+  public AccountStatus getStatus() {
+    return status;
+  }
+
+  public long getRoleId() {
+    return roleId;
+  }
+
+  /**
+   * 获取功能权限代码列表。
+   *
+   * @return 不可变的权限代码列表
+   */
+  public List<String> getAuthorities() {
+    return authorities.getCodes();
+  }
+
+  /**
+   * 获取所拥有的全部功能权限（含下级权限）的位掩码。
+   *
+   * @return 位掩码
+   */
+  public long getAuthorityMask() {
+    return authorities.getMask();
+  }
+
+  public AuthoritySet getAuthoritySet() {
+    return authorities;
+  }
+
+  // 用于持久化会话，返回副本
+  public byte[] getAccessTokenDigest() {
+    return accessTokenDigest == null ? null : accessTokenDigest.clone();
+  }
+
+  // 用于持久化会话，返回副本
+  public byte[] getRefreshTokenDigest() {
+    return refreshTokenDigest == null ? null : refreshTokenDigest.clone();
+  }
+
+  @Override
+  public String toString() {
+    return "LoginSession(userId=" + userId +
+      ", username=" + username +
+      ", nickname=" + nickname +
+      ", status=" + status +
+      ", roleId=" + roleId +
+      ", authorities=" + authorities + ")";
+  }
+
+  private static byte[] digest(final String token) {
+    return token == null ? null : DigestUtil.sha256(token);
+  }
+
+  // 固定时间比较，避免通过响应时间推测摘要
+  private static boolean matches(final byte[] expected, final String token) {
+    return expected != null && token != null && MessageDigest.isEqual(expected, DigestUtil.sha256(token));
+  }
+}
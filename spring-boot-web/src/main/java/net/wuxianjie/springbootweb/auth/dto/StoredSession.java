@@ -0,0 +1,21 @@
+package net.wuxianjie.springbootweb.auth.dto;
+
+import lombok.Data;
+
+/**
+ * 保存在数据库中的登录会话，用于集群模式。
+ *
+ * @author 吴仙杰
+ */
+@Data
+public class StoredSession {
+
+  /**
+   * 登录会话。
+   */
+  private LoginSession session;
+  /**
+   * 会话过期时间戳，单位：毫秒。
+   */
+  private long expiresAt;
+}
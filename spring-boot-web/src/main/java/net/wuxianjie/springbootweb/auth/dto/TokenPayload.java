@@ -4,6 +4,7 @@ import cn.hutool.jwt.JWTPayload;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import net.wuxianjie.springbootweb.auth.AccountStatus;
 
 /**
  * JWT Token 的载荷。
@@ -32,4 +33,30 @@ public class TokenPayload {
    * JWT Token 的过期时间，单位：秒。参考 {@link JWTPayload#EXPIRES_AT}
    */
   private long exp;
+
+  /**
+   * 身份验证所需数据，仅用于无状态 Token，会话模式下为 {@code null}。
+   */
+  private Claims claims;
+
+  public TokenPayload(final String username, final String type, final String iss, final long exp) {
+    this(username, type, iss, exp, null);
+  }
+
+  /**
+   * 无状态 Token 所携带的身份验证数据。
+   *
+   * @param userId 用户 id
+   * @param status 账号状态
+   * @param roleId 角色 id
+   * @param authorityBits 功能权限本身（不含下级权限）的位
+   * @param issuedAtMs 签发时间，单位：毫秒，用于判断是否已被吊销
+   */
+  public record Claims(
+    long userId,
+    AccountStatus status,
+    long roleId,
+    long authorityBits,
+    long issuedAtMs
+  ) {}
 }
@@ -5,12 +5,14 @@ import cn.hutool.extra.servlet.JakartaServletUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import net.wuxianjie.springbootweb.auth.AuthUtils;
-import net.wuxianjie.springbootweb.auth.dto.AuthData;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import net.wuxianjie.springbootweb.auth.dto.TokenResponse;
 import net.wuxianjie.springbootweb.shared.util.ServletUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
@@ -19,6 +21,8 @@ import java.util.Date;
 /**
  * 记录操作日志 AOP。
  *
+ * <p>请求相关的数据在请求线程中收集，数据库写入则交由 {@link OpLogWriter} 在后台完成，不占用响应时间。
+ *
  * @author 吴仙杰
  */
 @Aspect
@@ -26,7 +30,7 @@ import java.util.Date;
 @RequiredArgsConstructor
 public class OpLogAspect {
 
-  private final OpLogMapper opLogMapper;
+  private final OpLogWriter opLogWriter;
 
   /**
    * 仅记录操作成功的日志。
@@ -53,8 +57,10 @@ public class OpLogAspect {
     final String clientIP = JakartaServletUtil.getClientIP(req);
     opLog.setClientIp(clientIP);
 
-    // 用户名
-    final String username = AuthUtils.getCurrentUser().map(AuthData::getUsername).orElse(null);
+    // 用户名，登录请求尚未写入 Security Context，故从登录结果中获取
+    final String username = AuthUtils.getCurrentUser()
+      .map(LoginSession::getUsername)
+      .orElseGet(() -> getLoginUsername(result));
     opLog.setUsername(username);
 
     // 操作描述
@@ -65,9 +71,17 @@ public class OpLogAspect {
     final String message = annotation.value();
     opLog.setMessage(message);
 
-    // 插入数据库
-    opLogMapper.insert(opLog);
+    // 提交至后台写入
+    opLogWriter.submit(opLog);
 
     return result;
   }
+
+  private static String getLoginUsername(final Object result) {
+    if (result instanceof ResponseEntity<?> entity && entity.getBody() instanceof TokenResponse token) {
+      return token.getUsername();
+    }
+
+    return null;
+  }
 }
@@ -23,4 +23,6 @@ public interface OpLogMapper {
   long countByQuery(@Param("q") GetOpLogRequest query);
 
   int insert(OpLog opLog);
+
+  int insertBatch(@Param("opLogs") List<OpLog> opLogs);
 }
@@ -0,0 +1,48 @@
+package net.wuxianjie.springbootweb.oplog;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 操作日志相关的配置项。
+ *
+ * @author 吴仙杰
+ **/
+@Configuration
+@ConfigurationProperties(prefix = "op-log")
+@Data
+@Validated
+public class OpLogProps {
+
+  /**
+   * 是否在后台线程中写入操作日志，默认启用；禁用时在请求线程中同步写入。
+   */
+  private boolean async = true;
+
+  /**
+   * 待写入队列的容量，已满时在请求线程中同步写入，不会丢弃日志。
+   */
+  @Min(value = 1, message = "操作日志队列容量不能小于 1")
+  private int queueCapacity = 10_000;
+
+  /**
+   * 每次批量写入的最大日志数。
+   */
+  @Min(value = 1, message = "操作日志批量写入数不能小于 1")
+  private int batchSize = 200;
+
+  /**
+   * 批量写入失败后的重试次数，全部失败后逐条写入，仍失败的记录错误日志。
+   */
+  @Min(value = 0, message = "操作日志重试次数不能小于 0")
+  private int maxRetries = 3;
+
+  /**
+   * 输出队列长度、写入延迟及同步写入数的间隔，单位：秒，0 表示不输出。
+   */
+  @Min(value = 0, message = "操作日志统计输出间隔不能小于 0")
+  private int reportIntervalSec = 60;
+}
@@ -0,0 +1,307 @@
+package net.wuxianjie.springbootweb.oplog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 操作日志写入管道，将操作日志的数据库写入移出请求线程。
+ *
+ * <ul>
+ *   <li>单个后台线程按提交顺序批量写入，同一节点上的日志不会乱序</li>
+ *   <li>队列已满时由请求线程同步写入一次作为背压，不丢弃日志；该条日志可能早于队列中的日志写入，且不重试、不等待</li>
+ *   <li>批量写入失败时按指数退避重试，仍失败则逐条写入，以免一条异常数据导致整批丢失</li>
+ *   <li>关闭时等待后台线程写完当前批次，再写完队列中剩余的日志（同样会重试），
+ *   <br>与关闭并发的提交要么进入队列被写完，要么在关闭后直接写入</li>
+ *   <li>后台线程每隔 {@code op-log.report-interval-sec} 输出一次队列长度、写入延迟及同步写入数</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+@Component
+public class OpLogWriter implements AutoCloseable {
+
+  /**
+   * 首次重试前的等待时长，单位：毫秒，之后每次翻倍。
+   */
+  private static final long RETRY_BACKOFF_MS = 100;
+
+  /**
+   * 队列已满时等待空位的时长，单位：毫秒，超时后在请求线程中同步写入。
+   */
+  private static final long OFFER_TIMEOUT_MS = 10;
+
+  private final OpLogMapper opLogMapper;
+  private final OpLogProps props;
+  private final BlockingQueue<Pending> queue;
+  private final Thread worker;
+
+  /**
+   * 提交时持有读锁，关闭时持有写锁，保证关闭后队列中不会再出现新的日志。
+   */
+  private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+  private volatile boolean running = true;
+
+  /**
+   * 最近一次写入的日志从提交到写入的耗时，单位：毫秒。
+   */
+  private final AtomicLong lastLagMs = new AtomicLong();
+  private final AtomicLong maxLagMs = new AtomicLong();
+
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder syncFallbacks = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+
+  private long lastReportNanos = System.nanoTime();
+  private long lastReportedSubmitted;
+
+  public OpLogWriter(final OpLogMapper opLogMapper, final OpLogProps props) {
+    this.opLogMapper = opLogMapper;
+    this.props = props;
+    this.queue = new ArrayBlockingQueue<>(props.getQueueCapacity());
+
+    this.worker = new Thread(this::drainLoop, "op-log-writer");
+    this.worker.setDaemon(true);
+
+    if (props.isAsync()) {
+      worker.start();
+    }
+  }
+
+  /**
+   * 提交操作日志，仅在队列已满时才在请求线程中写入数据库。
+   *
+   * @param opLog 操作日志
+   */
+  public void submit(final OpLog opLog) {
+    submitted.increment();
+
+    final Pending pending = new Pending(opLog, System.nanoTime());
+
+    if (!props.isAsync()) {
+      writeOnce(pending);
+
+      return;
+    }
+
+    closeLock.readLock().lock();
+
+    try {
+      if (running && queue.offer(pending, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      closeLock.readLock().unlock();
+    }
+
+    // 队列已满，或已关闭而后台线程不再消费队列
+    if (running) {
+      syncFallbacks.increment();
+    }
+
+    writeOnce(pending);
+  }
+
+  /**
+   * 获取写入管道的统计数据。
+   *
+   * @return 统计数据
+   */
+  public Stats getStats() {
+    final Pending head = queue.peek();
+    final long oldestPendingMs = head == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - head.submittedAtNanos());
+
+    return new Stats(
+      queue.size(),
+      oldestPendingMs,
+      lastLagMs.get(),
+      maxLagMs.get(),
+      submitted.sum(),
+      written.sum(),
+      syncFallbacks.sum(),
+      failed.sum()
+    );
+  }
+
+  @Override
+  public void close() {
+    closeLock.writeLock().lock();
+
+    try {
+      running = false;
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+
+    // 不中断后台线程，以免其放弃重试；其最多空闲等待 1 秒即可发现已关闭
+    try {
+      worker.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    // 后台线程退出后，写完其未来得及处理的日志
+    final List<Pending> rest = new ArrayList<>();
+
+    queue.drainTo(rest);
+
+    if (!rest.isEmpty()) {
+      write(rest);
+    }
+  }
+
+  private void drainLoop() {
+    final List<Pending> batch = new ArrayList<>(props.getBatchSize());
+
+    final long reportIntervalNanos = TimeUnit.SECONDS.toNanos(props.getReportIntervalSec());
+
+    while (running) {
+      if (reportIntervalNanos > 0 && System.nanoTime() - lastReportNanos >= reportIntervalNanos) {
+        report();
+      }
+
+      final Pending head;
+
+      try {
+        head = queue.poll(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      if (head == null) {
+        continue;
+      }
+
+      batch.add(head);
+      queue.drainTo(batch, props.getBatchSize() - 1);
+
+      write(batch);
+
+      batch.clear();
+    }
+  }
+
+  private void write(final List<Pending> batch) {
+    final List<OpLog> opLogs = batch.stream().map(Pending::opLog).toList();
+
+    for (int attempt = 0; ; attempt++) {
+      try {
+        opLogMapper.insertBatch(opLogs);
+
+        onWritten(batch);
+
+        return;
+      } catch (Exception e) {
+        if (attempt >= props.getMaxRetries() || !sleep(RETRY_BACKOFF_MS << attempt)) {
+          log.warn("批量写入操作日志失败，改为逐条写入 [size={}]", batch.size(), e);
+
+          break;
+        }
+      }
+    }
+
+    for (final Pending pending : batch) {
+      try {
+        opLogMapper.insert(pending.opLog());
+
+        onWritten(List.of(pending));
+      } catch (Exception e) {
+        failed.increment();
+
+        log.error("写入操作日志失败 [{}]", pending.opLog(), e);
+      }
+    }
+  }
+
+  // 请求线程中仅尝试一次，失败即计数，不重试也不等待
+  private void writeOnce(final Pending pending) {
+    try {
+      opLogMapper.insert(pending.opLog());
+
+      onWritten(List.of(pending));
+    } catch (Exception e) {
+      failed.increment();
+
+      log.error("写入操作日志失败 [{}]", pending.opLog(), e);
+    }
+  }
+
+  // 仅由后台线程调用，自上次输出后无新日志时不输出
+  private void report() {
+    lastReportNanos = System.nanoTime();
+
+    final Stats stats = getStats();
+
+    if (stats.submitted() == lastReportedSubmitted && stats.queued() == 0) {
+      return;
+    }
+
+    lastReportedSubmitted = stats.submitted();
+
+    if (stats.syncFallbacks() > 0 || stats.failed() > 0) {
+      log.warn("操作日志写入统计 {}", stats);
+    } else {
+      log.info("操作日志写入统计 {}", stats);
+    }
+  }
+
+  private void onWritten(final List<Pending> batch) {
+    final long lagMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batch.get(0).submittedAtNanos());
+
+    lastLagMs.set(lagMs);
+    maxLagMs.accumulateAndGet(lagMs, Math::max);
+    written.add(batch.size());
+  }
+
+  // 线程被中断时不再等待，立即改为逐条写入
+  private static boolean sleep(final long ms) {
+    try {
+      Thread.sleep(ms);
+
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+      return false;
+    }
+  }
+
+  /**
+   * 写入管道的统计数据。
+   *
+   * @param queued 队列中待写入的日志数
+   * @param oldestPendingMs 队列中最早一条日志已等待的时长，单位：毫秒，即当前的写入延迟
+   * @param lastLagMs 最近一次写入的日志从提交到写入的耗时，单位：毫秒
+   * @param maxLagMs 启动以来最大的写入耗时，单位：毫秒
+   * @param submitted 已提交的日志数
+   * @param written 已写入的日志数
+   * @param syncFallbacks 因队列已满而在请求线程中同步写入的日志数
+   * @param failed 重试后仍写入失败的日志数
+   */
+  public record Stats(
+    long queued,
+    long oldestPendingMs,
+    long lastLagMs,
+    long maxLagMs,
+    long submitted,
+    long written,
+    long syncFallbacks,
+    long failed
+  ) {}
+
+  private record Pending(OpLog opLog, long submittedAtNanos) {}
+}
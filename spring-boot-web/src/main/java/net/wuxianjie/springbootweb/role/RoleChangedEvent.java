@@ -0,0 +1,9 @@
+package net.wuxianjie.springbootweb.role;
+
+/**
+ * 角色功能权限已变更事件，用于同步更新该角色下所有用户的登录会话。
+ *
+ * @param roleId 角色 id
+ * @author 吴仙杰
+ */
+public record RoleChangedEvent(long roleId) {}
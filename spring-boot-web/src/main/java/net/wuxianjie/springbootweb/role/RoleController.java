@@ -5,14 +5,12 @@ import lombok.RequiredArgsConstructor;
 import net.wuxianjie.springbootweb.oplog.Log;
 import net.wuxianjie.springbootweb.role.dto.AddRoleRequest;
 import net.wuxianjie.springbootweb.role.dto.RoleBaseInfo;
-import net.wuxianjie.springbootweb.role.dto.RoleItemResponse;
 import net.wuxianjie.springbootweb.role.dto.UpdateRoleRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 /**
  * 角色管理 REST API。
  *
@@ -30,12 +28,20 @@ public class RoleController {
    *
    * <p>用户仅可查看自己及其下级角色。
    *
-   * @return 角色列表
+   * <p>响应携带强 ETag 及 {@code Cache-Control: no-cache, private}，客户端携带的 ETag 与当前内容一致时返回 304。
+   * 单机模式下角色及用户变更提交后立即生效；集群模式下其他节点的变更最多延迟
+   * {@code auth.session.cluster.near-cache-ttl-sec}（默认 60 秒）才会反映到本节点的响应及 ETag 中，
+   * 在此期间可能返回旧内容或 304。
+   *
+   * @param ifNoneMatch 客户端缓存的 ETag
+   * @return 角色列表 JSON，或 304 HTTP 状态码
    */
   @GetMapping("/roles")
   @PreAuthorize("hasAuthority('role_view')")
-  public ResponseEntity<List<RoleItemResponse>> getRoles() {
-    return roleService.getRoles();
+  public ResponseEntity<byte[]> getRoles(
+    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch
+  ) {
+    return roleService.getRoles(ifNoneMatch);
   }
 
   /**
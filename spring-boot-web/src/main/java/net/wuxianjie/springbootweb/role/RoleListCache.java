@@ -0,0 +1,141 @@
+package net.wuxianjie.springbootweb.role;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.wuxianjie.springbootweb.role.dto.RoleItemResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 角色列表响应的缓存，按请求用户的角色（即其可见的角色子树）缓存已序列化的 JSON 及其 ETag。
+ *
+ * <ul>
+ *   <li>缓存项记录生成时的角色树快照版本号及用户数版本号，任一版本号变化即视为失效</li>
+ *   <li>ETag 为 JSON 内容的摘要，与版本号无关，故内容相同时在多个节点间及重启后仍保持一致</li>
+ *   <li>版本号仅在本节点内递增，集群模式下其他节点的角色或用户变更须待角色树快照或用户数过期
+ *   <br>（最多 {@code auth.session.cluster.near-cache-ttl-sec}）后才会反映到本节点的内容及 ETag 中，
+ *   <br>在此期间本节点仍可能以旧的 ETag 返回 304 HTTP 状态码</li>
+ *   <li>缓存项数上限为 {@value #MAX_ENTRIES}，即最多缓存这么多个角色子树，超出时淘汰最久未使用的</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Component
+public class RoleListCache {
+
+  /**
+   * 最多缓存的角色子树数。
+   */
+  static final int MAX_ENTRIES = 1000;
+
+  private final RoleTreeCache roleTreeCache;
+  private final RoleUserCounter roleUserCounter;
+  private final ObjectMapper objectMapper;
+  private final LRUCache<Long, Entry> cache = CacheUtil.newLRUCache(MAX_ENTRIES);
+
+  public RoleListCache(
+    final RoleTreeCache roleTreeCache,
+    final RoleUserCounter roleUserCounter,
+    final ObjectMapper objectMapper
+  ) {
+    this.roleTreeCache = roleTreeCache;
+    this.roleUserCounter = roleUserCounter;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * 获取角色子树的角色列表响应。
+   *
+   * @param roleId 请求用户的角色 id
+   * @param loader 缓存失效时用于生成角色列表
+   * @return 已序列化的角色列表及其 ETag
+   */
+  public Entry get(final long roleId, final Supplier<List<RoleItemResponse>> loader) {
+    // 须在生成列表前读取版本号，保证缓存项中的数据不会旧于其版本号
+    final long treeVersion = roleTreeCache.getVersion();
+    final long countsVersion = roleUserCounter.getVersion();
+
+    final Entry cached = cache.get(roleId, false);
+
+    if (cached != null && cached.treeVersion == treeVersion && cached.countsVersion == countsVersion) {
+      return cached;
+    }
+
+    final byte[] json;
+
+    try {
+      json = objectMapper.writeValueAsBytes(loader.get());
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("角色列表序列化失败", e);
+    }
+
+    final Entry entry = new Entry(treeVersion, countsVersion, json, "\"" + DigestUtil.sha256Hex(json).substring(0, 32) + "\"");
+
+    cache.put(roleId, entry);
+
+    return entry;
+  }
+
+  /**
+   * 已序列化的角色列表。
+   */
+  public static final class Entry {
+
+    private final long treeVersion;
+    private final long countsVersion;
+    private final byte[] json;
+    private final String etag;
+
+    private Entry(final long treeVersion, final long countsVersion, final byte[] json, final String etag) {
+      this.treeVersion = treeVersion;
+      this.countsVersion = countsVersion;
+      this.json = json;
+      this.etag = etag;
+    }
+
+    /**
+     * 获取 JSON 字节，调用方不可修改。
+     *
+     * @return JSON 字节
+     */
+    public byte[] getJson() {
+      return json;
+    }
+
+    /**
+     * 获取强 ETag，含双引号。
+     *
+     * @return 强 ETag
+     */
+    public String getEtag() {
+      return etag;
+    }
+
+    /**
+     * 判断客户端缓存的版本是否仍有效。
+     *
+     * @param ifNoneMatch {@code If-None-Match} 请求头，可为 {@code null}
+     * @return 是否匹配任一 ETag，或为 {@code *}
+     */
+    public boolean matches(final String ifNoneMatch) {
+      if (StrUtil.isBlank(ifNoneMatch)) {
+        return false;
+      }
+
+      for (final String tag : StrUtil.splitTrim(ifNoneMatch, StrUtil.C_COMMA)) {
+        // 弱比较，即忽略 `W/` 前缀，见 RFC 9110 13.1.2
+        if ("*".equals(tag) || etag.equals(StrUtil.removePrefix(tag, "W/"))) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+}
@@ -1,7 +1,6 @@
 package net.wuxianjie.springbootweb.role;
 
 import net.wuxianjie.springbootweb.role.dto.RoleBaseInfo;
-import net.wuxianjie.springbootweb.role.dto.RoleItemResponse;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
@@ -17,13 +16,17 @@ public interface RoleMapper {
 
   RoleBaseInfo selectBaseById(long roleId);
 
+  String selectFullPathByIdForUpdate(long roleId);
+
   boolean existsRoleByName(String name);
 
-  boolean existsRoleByFullPathLike(String fullPath);
+  boolean existsSubordinateByRoleId(long roleId);
 
   boolean existsUserByRoleId(long roleId);
 
-  List<RoleItemResponse> selectByFullPathEqOrLikeOrderByFullPath(String fullPath);
+  List<UserCount> selectUserCountGroupByRoleId();
+
+  List<RoleBaseInfo> selectAllBase();
 
   int insert(Role role);
 
@@ -34,10 +37,33 @@ public interface RoleMapper {
     @Param("parentId") long parentId
   );
 
-  int updateFullPathByFullPathLike(
+  int updateSubordinateFullPath(
+    @Param("roleId") long roleId,
     @Param("newFullPath") String newFullPath,
     @Param("oldFullPath") String oldFullPath
   );
 
   int deleteById(long roleId);
+
+  int insertClosure(
+    @Param("roleId") long roleId,
+    @Param("parentId") long parentId
+  );
+
+  int deleteSubtreeClosureFromAncestors(long roleId);
+
+  int insertSubtreeClosureToParent(
+    @Param("roleId") long roleId,
+    @Param("parentId") long parentId
+  );
+
+  int deleteClosureByDescendant(long roleId);
+
+  /**
+   * 角色直属的用户数。
+   *
+   * @param roleId 角色 id
+   * @param count 用户数
+   */
+  record UserCount(long roleId, long count) {}
 }
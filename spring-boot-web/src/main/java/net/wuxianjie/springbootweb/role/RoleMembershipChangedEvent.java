@@ -0,0 +1,10 @@
+package net.wuxianjie.springbootweb.role;
+
+/**
+ * 用户所属角色已变更事件，即新增、删除用户或更换用户的角色，用于同步更新角色的用户数。
+ *
+ * @param oldRoleId 原角色 id，新增用户时为 {@code null}
+ * @param newRoleId 新角色 id，删除用户时为 {@code null}
+ * @author 吴仙杰
+ */
+public record RoleMembershipChangedEvent(Long oldRoleId, Long newRoleId) {}
@@ -0,0 +1,211 @@
+package net.wuxianjie.springbootweb.role;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.shared.restapi.ApiException;
+import net.wuxianjie.springbootweb.shared.util.RateLimitedLog;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 角色变更的写入执行器。
+ *
+ * <ul>
+ *   <li>调用方在事务外基于角色树快照完成权限等校验，并生成变更计划（{@link UpdatePlan}）</li>
+ *   <li>执行器自行开启事务，事务中的所有语句均经由 {@link ExecutorType#BATCH} 的会话发送，
+ *   <br>故调用方不能在已访问过数据库的事务中调用（MyBatis 不允许在同一事务中切换执行器类型）</li>
+ *   <li>先按 id 升序锁定角色自身及新父角色的行，若其全路径与快照不一致（如集群中其他节点已修改），则放弃变更，
+ *   <br>再于数据库中检验角色名是否重复，最后将所有写语句一次性发送</li>
+ *   <li>每 {@value #STATS_LOG_INTERVAL_MIN} 分钟最多输出一次统计数据，其中耗时为整个事务的耗时，行锁持有时长不会超过该值</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+@Component
+public class RoleMutationPlanner {
+
+  /**
+   * 输出统计日志的最小间隔，单位：分钟。
+   */
+  private static final long STATS_LOG_INTERVAL_MIN = 5;
+
+  private final SqlSessionTemplate batchSession;
+  private final RoleMapper batchMapper;
+  private final TransactionTemplate transactionTemplate;
+
+  private final LongAdder mutations = new LongAdder();
+  private final LongAdder statements = new LongAdder();
+  private final LongAdder conflicts = new LongAdder();
+  private final AtomicLong lastTxMicros = new AtomicLong();
+  private final AtomicLong maxTxMicros = new AtomicLong();
+
+  private final RateLimitedLog statsLog = new RateLimitedLog(STATS_LOG_INTERVAL_MIN, TimeUnit.MINUTES);
+
+  public RoleMutationPlanner(
+    final SqlSessionFactory sqlSessionFactory,
+    final PlatformTransactionManager transactionManager
+  ) {
+    this.batchSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+    this.batchMapper = batchSession.getMapper(RoleMapper.class);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * 在新事务中批量执行更新角色的变更计划。
+   *
+   * @param plan 变更计划
+   * @throws ApiException 当角色或新父角色已被修改，或存在同名角色时
+   * @throws IllegalStateException 当已处于事务中时
+   */
+  public void execute(final UpdatePlan plan) {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      throw new IllegalStateException("批量更新角色须在独立的事务中执行");
+    }
+
+    final long startedAt = System.nanoTime();
+
+    try {
+      final int count = transactionTemplate.execute(status -> write(plan));
+
+      mutations.increment();
+      statements.add(count);
+
+      log.debug("已批量更新角色 [roleId={};statements={}]", plan.role().getId(), count);
+    } finally {
+      final long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt);
+
+      lastTxMicros.set(micros);
+      maxTxMicros.accumulateAndGet(micros, Math::max);
+
+      if (statsLog.tryAcquire("stats") >= 0) {
+        final Stats stats = getStats();
+
+        log.info("批量更新角色统计 [stats={};statementsPerMutation={}]", stats, String.format("%.2f", stats.statementsPerMutation()));
+      }
+    }
+  }
+
+  /**
+   * 获取统计数据。
+   *
+   * @return 统计数据
+   */
+  public Stats getStats() {
+    return new Stats(
+      mutations.sum(),
+      statements.sum(),
+      conflicts.sum(),
+      lastTxMicros.get(),
+      maxTxMicros.get()
+    );
+  }
+
+  private int write(final UpdatePlan plan) {
+    final Role role = plan.role();
+    final long roleId = role.getId();
+    final boolean move = role.getFullPath() != null;
+
+    // 按 id 升序加锁，避免两个互相移动的请求因加锁顺序相反而死锁
+    if (move && role.getParentId() < roleId) {
+      checkLockedFullPath(role.getParentId(), plan.expectedParentFullPath());
+      checkLockedFullPath(roleId, plan.expectedFullPath());
+    } else {
+      checkLockedFullPath(roleId, plan.expectedFullPath());
+
+      if (move) {
+        checkLockedFullPath(role.getParentId(), plan.expectedParentFullPath());
+      }
+    }
+
+    // 检索数据库，检验是否存在同名角色
+    if (role.getName() != null && batchMapper.existsRoleByName(role.getName())) {
+      throw new ApiException(HttpStatus.CONFLICT, "已存在相同角色名");
+    }
+
+    int count = 1;
+
+    batchMapper.update(role);
+
+    // 更新其子角色的父角色名
+    if (role.getName() != null) {
+      batchMapper.updateParentNameByParentId(role.getName(), roleId);
+      count++;
+    }
+
+    if (move) {
+      // 更新其所有下级角色的全路径，经由闭包表仅访问该子树
+      batchMapper.updateSubordinateFullPath(
+        roleId,
+        role.getFullPath() + StrUtil.DOT,
+        plan.expectedFullPath() + StrUtil.DOT
+      );
+
+      // 将该子树从原祖先移至新父角色下，子树内部的闭包关系保持不变
+      batchMapper.deleteSubtreeClosureFromAncestors(roleId);
+      batchMapper.insertSubtreeClosureToParent(roleId, role.getParentId());
+      count += 3;
+    }
+
+    batchSession.flushStatements();
+
+    return count;
+  }
+
+  private void checkLockedFullPath(final long roleId, final String expectedFullPath) {
+    final String fullPath = batchMapper.selectFullPathByIdForUpdate(roleId);
+
+    if (!StrUtil.equals(fullPath, expectedFullPath)) {
+      conflicts.increment();
+
+      throw new ApiException(HttpStatus.CONFLICT, "角色数据已被修改，请刷新后重试");
+    }
+  }
+
+  /**
+   * 更新角色的变更计划。
+   *
+   * @param role 需要更新的角色字段，{@code name} 不为 {@code null} 时检验角色名唯一性并同步更新子角色的父角色名，
+   *             {@code fullPath} 不为 {@code null} 时将整个子树移至 {@code parentId} 下
+   * @param expectedFullPath 校验时快照中该角色的全路径
+   * @param expectedParentFullPath 校验时快照中新父角色的全路径，不移动时为 {@code null}
+   */
+  public record UpdatePlan(Role role, String expectedFullPath, String expectedParentFullPath) {}
+
+  /**
+   * 批量更新角色的统计数据。
+   *
+   * @param mutations 已执行的变更计划数
+   * @param statements 已发送的写语句数，除以 {@code mutations} 即每次变更的语句数
+   * @param conflicts 因快照过时而放弃的变更数
+   * @param lastTxMicros 最近一次变更的事务耗时（含开启与提交事务，行锁持有时长不超过该值），单位：微秒
+   * @param maxTxMicros 启动以来最长的事务耗时，单位：微秒
+   */
+  public record Stats(
+    long mutations,
+    long statements,
+    long conflicts,
+    long lastTxMicros,
+    long maxTxMicros
+  ) {
+
+    /**
+     * 获取平均每次变更发送的写语句数。
+     *
+     * @return 平均语句数，尚未执行过变更时为 {@code 0}
+     */
+    public double statementsPerMutation() {
+      return mutations == 0 ? 0 : (double) statements / mutations;
+    }
+  }
+}
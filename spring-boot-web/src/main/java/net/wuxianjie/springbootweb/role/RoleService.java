@@ -12,8 +12,10 @@ import net.wuxianjie.springbootweb.role.dto.RoleBaseInfo;
 import net.wuxianjie.springbootweb.role.dto.RoleItemResponse;
 import net.wuxianjie.springbootweb.role.dto.UpdateRoleRequest;
 import net.wuxianjie.springbootweb.shared.restapi.ApiException;
-import net.wuxianjie.springbootweb.user.UserMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,22 +33,41 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class RoleService {
 
-  private final UserMapper userMapper;
   private final RoleMapper roleMapper;
+  private final RoleTreeCache roleTreeCache;
+  private final RoleUserCounter roleUserCounter;
+  private final RoleMutationPlanner roleMutationPlanner;
+  private final RoleListCache roleListCache;
+  private final ApplicationEventPublisher eventPublisher;
 
   /**
    * 获取角色列表。
    *
    * <p>用户仅可查看自己及其下级角色。
    *
-   * @return 角色列表
+   * <p>同一角色的用户共享已序列化的响应，客户端携带的 ETag 仍有效时返回 304 HTTP 状态码。
+   * 集群模式下，其他节点的变更最多延迟 {@code auth.session.cluster.near-cache-ttl-sec} 才会反映到本节点的响应中，见 {@link RoleListCache}。
+   *
+   * @param ifNoneMatch {@code If-None-Match} 请求头，可为 {@code null}
+   * @return 角色列表，含各角色的直属用户数及子树用户数
    */
-  public ResponseEntity<List<RoleItemResponse>> getRoles() {
-    // 获取当前用户的角色全路径
-    final String roleFullPath = getCurrentUserRoleFullPath();
+  public ResponseEntity<byte[]> getRoles(final String ifNoneMatch) {
+    final long roleId = getCurrentUserRoleId();
+    final RoleListCache.Entry entry = roleListCache.get(roleId, () -> listSelfAndSubordinates(roleId));
+    final CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+
+    if (entry.matches(ifNoneMatch)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+        .eTag(entry.getEtag())
+        .cacheControl(cacheControl)
+        .build();
+    }
 
-    // 检索数据库，获取当前用户的角色及其所有下级角色，并按节点全路径升序排列
-    return ResponseEntity.ok(roleMapper.selectByFullPathEqOrLikeOrderByFullPath(roleFullPath));
+    return ResponseEntity.ok()
+      .contentType(MediaType.APPLICATION_JSON)
+      .eTag(entry.getEtag())
+      .cacheControl(cacheControl)
+      .body(entry.getJson());
   }
 
   /**
@@ -58,12 +79,13 @@ public class RoleService {
    * @return 角色详情数据
    */
   public ResponseEntity<RoleBaseInfo> getRoleDetail(final long roleId) {
-    // 检索数据库，获取角色数据
-    final RoleBaseInfo roleInfo = Optional.ofNullable(roleMapper.selectBaseById(roleId))
+    // 从角色树快照中获取角色数据
+    final RoleTree tree = roleTreeCache.get();
+    final RoleBaseInfo roleInfo = tree.find(roleId)
       .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到角色数据"));
 
     // 检验是否为当前用户的下级角色
-    if (isNotSubordinateRole(roleInfo.getFullPath())) {
+    if (!tree.isSubordinate(getCurrentUserRoleId(), roleId)) {
       throw new ApiException(HttpStatus.FORBIDDEN, "只允许查看下级角色");
     }
 
@@ -87,7 +109,7 @@ public class RoleService {
     final RoleBaseInfo parent = Optional.ofNullable(roleMapper.selectBaseById(req.getParentId()))
       .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到父角色数据"));
 
-    if (isNotSelfAndSubordinateRole(parent.getFullPath())) {
+    if (isNotSelfAndSubordinateRole(parent.getId())) {
       throw new ApiException(HttpStatus.FORBIDDEN, "只允许创建下级角色");
     }
 
@@ -114,6 +136,12 @@ public class RoleService {
 
     roleMapper.update(roleToSave);
 
+    // 维护角色闭包表
+    roleMapper.insertClosure(roleToSave.getId(), parent.getId());
+
+    // 事务提交后重建角色树快照
+    eventPublisher.publishEvent(new RoleTreeChangedEvent());
+
     return ResponseEntity.status(HttpStatus.CREATED).build();
   }
 
@@ -122,18 +150,24 @@ public class RoleService {
    *
    * <p>用户仅可更新其下级角色。
    *
+   * <p>先在事务外基于角色树快照完成权限校验，再由 {@link RoleMutationPlanner} 在独立的事务中加锁复核并批量写入。
+   *
    * @param roleId 需要更新的角色 id
    * @param req 请求参数
    * @return 204 HTTP 状态码
    */
-  @Transactional(rollbackFor = Exception.class)
   public ResponseEntity<Void> updateRole(final long roleId, final UpdateRoleRequest req) {
-    // 检索数据库，获取旧角色数据
-    final RoleBaseInfo oldRole = Optional.ofNullable(roleMapper.selectBaseById(roleId))
+    // 在事务外获取角色树快照，快照可能需要经由非批量的会话从数据库重新加载
+    final RoleTree tree = roleTreeCache.get();
+
+    // 获取旧角色数据
+    final RoleBaseInfo oldRole = tree.find(roleId)
       .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到角色数据"));
 
     // 检验是否为当前用户的下级角色
-    if (isNotSubordinateRole(oldRole.getFullPath())) {
+    final long currentRoleId = getCurrentUserRoleId();
+
+    if (!tree.isSubordinate(currentRoleId, roleId)) {
       throw new ApiException(HttpStatus.FORBIDDEN, "只允许更新下级角色");
     }
 
@@ -142,18 +176,14 @@ public class RoleService {
     roleToUpdate.setId(roleId);
     roleToUpdate.setRemark(req.getRemark());
 
-    // 若需要更新角色名，则检索数据库，检验是否存在同名角色
+    // 若需要更新角色名，则由变更计划在事务中检验是否存在同名角色，并同步更新其子角色的父角色名
     if (!StrUtil.equals(oldRole.getName(), req.getName())) {
       roleToUpdate.setName(req.getName());
-
-      // 检索数据库，检验是否存在同名角色
-      checkNameUniqueness(req.getName());
-
-      // 更新其子角色的父角色名
-      roleMapper.updateParentNameByParentId(req.getName(), roleId);
     }
 
-    // 若需要更新父角色，则检验父角色是否合法
+    String parentFullPath = null;
+
+    // 若需要更新父角色，则检验父角色是否合法，并将整个子树移至新父角色下
     if (!NumberUtil.equals(oldRole.getParentId(), req.getParentId())) {
       roleToUpdate.setParentId(req.getParentId());
 
@@ -163,27 +193,23 @@ public class RoleService {
       }
 
       // 检验父角色是否存在
-      final RoleBaseInfo parent = Optional.ofNullable(roleMapper.selectBaseById(req.getParentId()))
+      final RoleBaseInfo parent = tree.find(req.getParentId())
         .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到父角色数据"));
 
       roleToUpdate.setParentName(parent.getName());
 
       // 检验父角色是否为当前用户自己或其下级角色
-      if (isNotSelfAndSubordinateRole(parent.getFullPath())) {
+      if (!tree.isSelfOrSubordinate(currentRoleId, parent.getId())) {
         throw new ApiException(HttpStatus.FORBIDDEN, "父角色不能是当前用户的上级角色");
       }
 
       // 检验父角色是否为需要更新角色的下级角色
-      final String oldFullPathPrefix = oldRole.getFullPath() + StrUtil.DOT;
-
-      if (StrUtil.startWith(parent.getFullPath(), oldFullPathPrefix)) {
+      if (tree.isSubordinate(roleId, parent.getId())) {
         throw new ApiException(HttpStatus.BAD_REQUEST, "下级角色不能作为父角色");
       }
 
-      // 更新其所有下级角色的全路径
-      roleToUpdate.setFullPath(parent.getFullPath() + StrUtil.DOT + roleId);
-
-      roleMapper.updateFullPathByFullPathLike(roleToUpdate.getFullPath() + StrUtil.DOT, oldFullPathPrefix);
+      parentFullPath = parent.getFullPath();
+      roleToUpdate.setFullPath(parentFullPath + StrUtil.DOT + roleId);
     }
 
     // 若需要更新功能权限，则检验功能权限是否合法
@@ -194,8 +220,16 @@ public class RoleService {
       roleToUpdate.setAuthorities(sanitizedAuthorities);
     }
 
-    // 更新数据库中的角色
-    roleMapper.update(roleToUpdate);
+    // 批量更新数据库中的角色，若角色或新父角色已被修改则回滚
+    roleMutationPlanner.execute(new RoleMutationPlanner.UpdatePlan(roleToUpdate, oldRole.getFullPath(), parentFullPath));
+
+    // 事务提交后重建角色树快照
+    eventPublisher.publishEvent(new RoleTreeChangedEvent());
+
+    // 同步更新该角色下所有用户登录会话中的功能权限
+    if (roleToUpdate.getAuthorities() != null) {
+      eventPublisher.publishEvent(new RoleChangedEvent(roleId));
+    }
 
     return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
   }
@@ -208,62 +242,74 @@ public class RoleService {
    * @param roleId 需要删除的角色 id
    * @return 204 HTTP 状态码
    */
+  @Transactional(rollbackFor = Exception.class)
   public ResponseEntity<Void> deleteRole(final long roleId) {
     // 检索数据库，获取角色
     final RoleBaseInfo roleToDel = Optional.ofNullable(roleMapper.selectBaseById(roleId))
       .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到角色数据"));
 
     // 检验是否为当前用户的下级角色
-    if (isNotSubordinateRole(roleToDel.getFullPath())) {
+    if (isNotSubordinateRole(roleId)) {
       throw new ApiException(HttpStatus.FORBIDDEN, "只允许删除下级角色");
     }
 
     // 检验需要删除角色是否还存在下级角色
-    checkNotExistsSubordinateRole(roleToDel.getFullPath());
+    checkNotExistsSubordinateRole(roleId);
 
     // 检验需要删除的角色是否还关联着用户
     checkNotExistsUser(roleId);
 
-    // 删除数据库中的用色
+    // 删除数据库中的用色，无下级角色故只需删除以其为后代的闭包关系
     roleMapper.deleteById(roleId);
+    roleMapper.deleteClosureByDescendant(roleId);
+
+    // 事务提交后重建角色树快照
+    eventPublisher.publishEvent(new RoleTreeChangedEvent());
 
     return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
   }
 
   /**
-   * 获取当前用户的角色全路径前缀。
+   * 检查角色是否存在。
    *
-   * @return full_path + {@value StrUtil#DOT}
+   * @param roleId 需要检查的角色 id
+   * @return 角色是否存在
    */
-  public String getCurrentUserRoleFullPathPrefix() {
-    return getCurrentUserRoleFullPath() + StrUtil.DOT;
+  public boolean existsRole(final long roleId) {
+    return roleTreeCache.get().getFullPath(roleId).isPresent();
   }
 
   /**
-   * 检查角色全路径是否不是为当前用户的下级角色。
+   * 检查角色是否不是为当前用户的下级角色。
    *
-   * @param checkedFullPath 需要检查的角色全路径
+   * @param roleId 需要检查的角色 id
    * @return 是否不是为当前用户的下级角色
    */
-  public boolean isNotSubordinateRole(final String checkedFullPath) {
-    final String currentFullPathPrefix = getCurrentUserRoleFullPathPrefix();
+  public boolean isNotSubordinateRole(final long roleId) {
+    return !roleTreeCache.get().isSubordinate(getCurrentUserRoleId(), roleId);
+  }
 
-    return !StrUtil.startWith(checkedFullPath, currentFullPathPrefix);
+  private boolean isNotSelfAndSubordinateRole(final long roleId) {
+    return !roleTreeCache.get().isSelfOrSubordinate(getCurrentUserRoleId(), roleId);
   }
 
-  private boolean isNotSelfAndSubordinateRole(final String checkedFullPath) {
-    final String currentFullPathPrefix = getCurrentUserRoleFullPathPrefix();
+  private List<RoleItemResponse> listSelfAndSubordinates(final long roleId) {
+    // 从角色树快照中获取角色及其所有下级角色，并按节点全路径升序排列
+    final List<RoleItemResponse> roles = roleTreeCache.get().getSelfAndSubordinates(roleId);
 
-    return !StrUtil.equals(checkedFullPath + StrUtil.DOT, currentFullPathPrefix) &&
-      !StrUtil.startWith(checkedFullPath, currentFullPathPrefix);
-  }
+    // 填充各角色的用户数
+    roles.forEach(role -> {
+      final RoleUserCounter.Counts counts = roleUserCounter.get(role.getId());
+
+      role.setUserCount(counts.direct());
+      role.setSubtreeUserCount(counts.subtree());
+    });
 
-  private String getCurrentUserRoleFullPath() {
-    return Optional.ofNullable(userMapper.selectRoleFullPathById(getCurrentUserId())).orElseThrow();
+    return roles;
   }
 
-  private long getCurrentUserId() {
-    return AuthUtils.getCurrentUser().orElseThrow().getUserId();
+  private long getCurrentUserRoleId() {
+    return AuthUtils.getCurrentUser().orElseThrow().getRoleId();
   }
 
   private void checkNameUniqueness(final String roleName) {
@@ -329,8 +375,8 @@ public class RoleService {
     }
   }
 
-  private void checkNotExistsSubordinateRole(final String fullPath) {
-    final boolean existsSub = roleMapper.existsRoleByFullPathLike(fullPath + ".%");
+  private void checkNotExistsSubordinateRole(final long roleId) {
+    final boolean existsSub = roleMapper.existsSubordinateByRoleId(roleId);
 
     if (existsSub) {
       throw new ApiException(HttpStatus.FORBIDDEN, "不可删除还存在下级的角色");
@@ -0,0 +1,227 @@
+package net.wuxianjie.springbootweb.role;
+
+import cn.hutool.core.util.StrUtil;
+import net.wuxianjie.springbootweb.role.dto.RoleBaseInfo;
+import net.wuxianjie.springbootweb.role.dto.RoleItemResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 角色树的不可变快照，由 {@code role} 表中的全部角色构建。
+ *
+ * <ul>
+ *   <li>按角色 id 索引节点，每个节点预先计算由根至自身的角色 id 数组，判断上下级只需一次数组访问</li>
+ *   <li>所有节点按全路径升序排列，任一角色及其所有下级在其中是连续的一段，获取子树无需遍历</li>
+ *   <li>快照构建后不再修改，角色变更时整体替换，见 {@link RoleTreeCache}</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+public final class RoleTree {
+
+  private final Node[] sorted;
+  private final Map<Long, Node> byId;
+
+  private RoleTree(final Node[] sorted, final Map<Long, Node> byId) {
+    this.sorted = sorted;
+    this.byId = byId;
+  }
+
+  /**
+   * 由全部角色构建快照。
+   *
+   * @param roles 全部角色
+   * @return 角色树快照
+   */
+  public static RoleTree of(final List<RoleBaseInfo> roles) {
+    final Node[] sorted = roles.stream()
+      .map(Node::new)
+      .sorted(Comparator.comparing(n -> n.fullPath))
+      .toArray(Node[]::new);
+
+    final Map<Long, Node> byId = new HashMap<>(sorted.length * 2);
+
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i].index = i;
+      byId.put(sorted[i].id, sorted[i]);
+    }
+
+    // 全路径以 `.` 分隔，故前缀相同的全路径在排序后连续，子树的结束位置即第一个不以 `fullPath.` 为前缀的节点
+    for (final Node node : sorted) {
+      final String prefix = node.fullPath + StrUtil.DOT;
+      int end = node.index + 1;
+
+      while (end < sorted.length && sorted[end].fullPath.startsWith(prefix)) {
+        end++;
+      }
+
+      node.subtreeEnd = end;
+    }
+
+    return new RoleTree(sorted, byId);
+  }
+
+  /**
+   * 获取角色数。
+   *
+   * @return 角色数
+   */
+  public int size() {
+    return sorted.length;
+  }
+
+  /**
+   * 获取角色的基础数据。
+   *
+   * @param roleId 角色 id
+   * @return 角色基础数据的副本，当角色不存在时返回空
+   */
+  public Optional<RoleBaseInfo> find(final long roleId) {
+    return Optional.ofNullable(byId.get(roleId)).map(Node::toBaseInfo);
+  }
+
+  /**
+   * 获取角色的全路径。
+   *
+   * @param roleId 角色 id
+   * @return 角色全路径，当角色不存在时返回空
+   */
+  public Optional<String> getFullPath(final long roleId) {
+    return Optional.ofNullable(byId.get(roleId)).map(n -> n.fullPath);
+  }
+
+  /**
+   * 获取由根至角色自身的角色 id。
+   *
+   * @param roleId 角色 id
+   * @return 角色 id 数组的副本，当角色不存在时返回空数组
+   */
+  public long[] getPath(final long roleId) {
+    final Node node = byId.get(roleId);
+
+    return node == null ? new long[0] : node.path.clone();
+  }
+
+  /**
+   * 判断角色是否为另一角色的下级（不含自身）。
+   *
+   * @param ancestorId 上级角色 id
+   * @param roleId 需要检查的角色 id
+   * @return 是否为下级角色，任一角色不存在时返回 {@code false}
+   */
+  public boolean isSubordinate(final long ancestorId, final long roleId) {
+    final Node ancestor = byId.get(ancestorId);
+    final Node node = byId.get(roleId);
+
+    if (ancestor == null || node == null) {
+      return false;
+    }
+
+    final int depth = ancestor.path.length;
+
+    return node.path.length > depth && node.path[depth - 1] == ancestorId;
+  }
+
+  /**
+   * 判断角色是否为另一角色自身或其下级。
+   *
+   * @param ancestorId 上级角色 id
+   * @param roleId 需要检查的角色 id
+   * @return 是否为自身或下级角色，任一角色不存在时返回 {@code false}
+   */
+  public boolean isSelfOrSubordinate(final long ancestorId, final long roleId) {
+    return (ancestorId == roleId && byId.containsKey(roleId)) || isSubordinate(ancestorId, roleId);
+  }
+
+  /**
+   * 获取角色自身及其所有下级角色，按全路径升序排列。
+   *
+   * @param roleId 角色 id
+   * @return 角色列表，当角色不存在时返回空列表
+   */
+  public List<RoleItemResponse> getSelfAndSubordinates(final long roleId) {
+    final Node node = byId.get(roleId);
+
+    if (node == null) {
+      return List.of();
+    }
+
+    final List<RoleItemResponse> list = new ArrayList<>(node.subtreeEnd - node.index);
+
+    for (int i = node.index; i < node.subtreeEnd; i++) {
+      list.add(sorted[i].toItem());
+    }
+
+    return list;
+  }
+
+  private static class Node {
+
+    private final long id;
+    private final String name;
+    private final List<String> authorities;
+    private final Long parentId;
+    private final String parentName;
+    private final String fullPath;
+    private final Date updatedAt;
+    private final String remark;
+
+    /**
+     * 由根至自身的角色 id。
+     */
+    private final long[] path;
+
+    /**
+     * 在按全路径排序后数组中的位置。
+     */
+    private int index;
+
+    /**
+     * 子树在按全路径排序后数组中的结束位置（不含）。
+     */
+    private int subtreeEnd;
+
+    Node(final RoleBaseInfo role) {
+      this.id = role.getId();
+      this.name = role.getName();
+      this.authorities = List.copyOf(role.getAuthorities());
+      this.parentId = role.getParentId();
+      this.parentName = role.getParentName();
+      this.fullPath = role.getFullPath();
+      this.updatedAt = role.getUpdatedAt();
+      this.remark = role.getRemark();
+      this.path = StrUtil.split(fullPath, StrUtil.C_DOT).stream().mapToLong(Long::parseLong).toArray();
+    }
+
+    RoleBaseInfo toBaseInfo() {
+      return new RoleBaseInfo(
+        id,
+        name,
+        new ArrayList<>(authorities),
+        parentId,
+        parentName,
+        fullPath,
+        updatedAt == null ? null : new Date(updatedAt.getTime()),
+        remark
+      );
+    }
+
+    RoleItemResponse toItem() {
+      return new RoleItemResponse(
+        id,
+        name,
+        parentId,
+        parentName,
+        updatedAt == null ? null : new Date(updatedAt.getTime()),
+        0,
+        0
+      );
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package net.wuxianjie.springbootweb.role;
+
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.auth.AuthProps;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 角色树快照的持有者，以写时复制的方式更新。
+ *
+ * <ul>
+ *   <li>首次使用时加载 {@code role} 表构建快照，读取时无需加锁，也无需访问数据库</li>
+ *   <li>本节点的角色变更在事务提交后（{@link RoleTreeChangedEvent}）重新构建快照并整体替换</li>
+ *   <li>集群模式下，其他节点的角色变更无法及时通知，故快照最多保留 {@code auth.session.cluster.near-cache-ttl-sec}，
+ *   <br>过期后由一个读取线程重建，其他线程在此期间继续使用旧快照</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+@Component
+public class RoleTreeCache {
+
+  private final RoleMapper roleMapper;
+
+  /**
+   * 快照的最长保留时长，单位：纳秒，单机模式下不过期。
+   */
+  private final long maxAgeNanos;
+
+  private final AtomicBoolean reloading = new AtomicBoolean();
+
+  /**
+   * 快照版本号，每次重建快照时递增。
+   */
+  private final AtomicLong versions = new AtomicLong();
+
+  private volatile Snapshot snapshot;
+
+  public RoleTreeCache(final RoleMapper roleMapper, final AuthProps authProps) {
+    this.roleMapper = roleMapper;
+
+    final AuthProps.Session session = authProps.getSession();
+
+    this.maxAgeNanos = session.getMode() == AuthProps.SessionMode.CLUSTER
+      ? TimeUnit.SECONDS.toNanos(session.getCluster().getNearCacheTtlSec())
+      : Long.MAX_VALUE;
+  }
+
+  /**
+   * 获取当前的角色树快照。
+   *
+   * @return 角色树快照
+   */
+  public RoleTree get() {
+    final Snapshot current = snapshot;
+
+    if (current == null) {
+      return loadIfAbsent();
+    }
+
+    if (System.nanoTime() - current.loadedAtNanos() > maxAgeNanos && reloading.compareAndSet(false, true)) {
+      try {
+        return reload();
+      } finally {
+        reloading.set(false);
+      }
+    }
+
+    return current.tree();
+  }
+
+  /**
+   * 获取当前快照的版本号，版本号不同即代表角色数据可能已变更。
+   *
+   * @return 快照版本号，仅在当前进程内有效
+   */
+  public long getVersion() {
+    get();
+
+    return snapshot.version();
+  }
+
+  /**
+   * 角色变更的事务提交后重建快照。
+   *
+   * @param event 角色变更事件
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onRoleTreeChanged(final RoleTreeChangedEvent event) {
+    reload();
+  }
+
+  private synchronized RoleTree loadIfAbsent() {
+    final Snapshot current = snapshot;
+
+    return current == null ? reload() : current.tree();
+  }
+
+  private synchronized RoleTree reload() {
+    final RoleTree tree = RoleTree.of(roleMapper.selectAllBase());
+
+    snapshot = new Snapshot(tree, System.nanoTime(), versions.incrementAndGet());
+
+    log.debug("已重建角色树快照 [size={}]", tree.size());
+
+    return tree;
+  }
+
+  private record Snapshot(RoleTree tree, long loadedAtNanos, long version) {}
+}
@@ -0,0 +1,8 @@
+package net.wuxianjie.springbootweb.role;
+
+/**
+ * 角色已新增、更新或删除事件，用于在事务提交后重建角色树快照。
+ *
+ * @author 吴仙杰
+ */
+public record RoleTreeChangedEvent() {}
@@ -0,0 +1,187 @@
+package net.wuxianjie.springbootweb.role;
+
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.auth.AuthProps;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各角色的用户数，含直属用户数及子树（自身及所有下级角色）用户数。
+ *
+ * <ul>
+ *   <li>首次使用时按角色分组统计 {@code user} 表，此后仅在内存中增量维护</li>
+ *   <li>新增、删除用户或更换用户的角色（{@link RoleMembershipChangedEvent}）时，沿角色树快照中的祖先路径更新子树用户数，复杂度为 O(depth)</li>
+ *   <li>角色树快照被替换（如移动角色）时，由直属用户数在内存中重新汇总子树用户数，无需访问数据库</li>
+ *   <li>集群模式下，其他节点的用户变更无法及时通知，故直属用户数最多保留 {@code auth.session.cluster.near-cache-ttl-sec}，过期后重新统计</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+@Component
+public class RoleUserCounter {
+
+  private static final Counts ZERO = new Counts(0, 0);
+
+  private final RoleMapper roleMapper;
+  private final RoleTreeCache roleTreeCache;
+
+  /**
+   * 直属用户数的最长保留时长，单位：纳秒，单机模式下不过期。
+   */
+  private final long maxAgeNanos;
+
+  /**
+   * 角色 id 与用户数的映射，仅在持有锁时替换或修改。
+   */
+  private volatile Map<Long, Counts> counts;
+
+  /**
+   * 子树用户数汇总时所依据的角色树快照。
+   */
+  private volatile RoleTree aggregatedFor;
+
+  private volatile long loadedAtNanos;
+
+  /**
+   * 用户数的版本号，每次变更或重新汇总时递增。
+   */
+  private volatile long version;
+
+  public RoleUserCounter(final RoleMapper roleMapper, final RoleTreeCache roleTreeCache, final AuthProps authProps) {
+    this.roleMapper = roleMapper;
+    this.roleTreeCache = roleTreeCache;
+
+    final AuthProps.Session session = authProps.getSession();
+
+    this.maxAgeNanos = session.getMode() == AuthProps.SessionMode.CLUSTER
+      ? TimeUnit.SECONDS.toNanos(session.getCluster().getNearCacheTtlSec())
+      : Long.MAX_VALUE;
+  }
+
+  /**
+   * 获取角色的用户数。
+   *
+   * @param roleId 角色 id
+   * @return 角色的用户数，当角色不存在或无用户时均为 0
+   */
+  public Counts get(final long roleId) {
+    ensureFresh();
+
+    return counts.getOrDefault(roleId, ZERO);
+  }
+
+  /**
+   * 获取用户数的版本号，版本号不同即代表用户数可能已变更。
+   *
+   * @return 版本号，仅在当前进程内有效
+   */
+  public long getVersion() {
+    ensureFresh();
+
+    return version;
+  }
+
+  /**
+   * 用户所属角色变更的事务提交后，更新相关角色及其所有祖先的用户数。
+   *
+   * @param event 用户所属角色变更事件
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onMembershipChanged(final RoleMembershipChangedEvent event) {
+    final RoleTree tree = roleTreeCache.get();
+
+    // 从数据库重新统计时，结果已包含本次变更；仅在内存中重新汇总时，仍需叠加本次变更
+    if (refresh(tree)) {
+      return;
+    }
+
+    if (event.oldRoleId() != null) {
+      add(tree, event.oldRoleId(), -1);
+    }
+
+    if (event.newRoleId() != null) {
+      add(tree, event.newRoleId(), 1);
+    }
+
+    version++;
+  }
+
+  private void ensureFresh() {
+    final RoleTree tree = roleTreeCache.get();
+
+    if (tree != aggregatedFor || System.nanoTime() - loadedAtNanos > maxAgeNanos) {
+      synchronized (this) {
+        refresh(tree);
+      }
+    }
+  }
+
+  private void add(final RoleTree tree, final long roleId, final long delta) {
+    final Map<Long, Counts> current = counts;
+
+    for (final long id : tree.getPath(roleId)) {
+      final Counts c = current.getOrDefault(id, ZERO);
+
+      current.put(id, new Counts(id == roleId ? c.direct() + delta : c.direct(), c.subtree() + delta));
+    }
+  }
+
+  /**
+   * 按需重新统计或重新汇总用户数。
+   *
+   * @param tree 当前的角色树快照
+   * @return 是否从数据库重新统计了直属用户数
+   */
+  private boolean refresh(final RoleTree tree) {
+    final boolean expired = counts == null || System.nanoTime() - loadedAtNanos > maxAgeNanos;
+
+    if (!expired && tree == aggregatedFor) {
+      return false;
+    }
+
+    final Map<Long, Long> direct = new HashMap<>();
+
+    if (expired) {
+      roleMapper.selectUserCountGroupByRoleId().forEach(uc -> direct.put(uc.roleId(), uc.count()));
+      loadedAtNanos = System.nanoTime();
+    } else {
+      counts.forEach((id, c) -> direct.put(id, c.direct()));
+    }
+
+    counts = aggregate(tree, direct);
+    aggregatedFor = tree;
+    version++;
+
+    log.debug("已汇总角色用户数 [reload={};roles={}]", expired, tree.size());
+
+    return expired;
+  }
+
+  private static Map<Long, Counts> aggregate(final RoleTree tree, final Map<Long, Long> direct) {
+    final Map<Long, Counts> result = new ConcurrentHashMap<>(tree.size() * 2);
+
+    direct.forEach((roleId, count) -> {
+      for (final long id : tree.getPath(roleId)) {
+        final Counts c = result.getOrDefault(id, ZERO);
+
+        result.put(id, new Counts(id == roleId ? c.direct() + count : c.direct(), c.subtree() + count));
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * 角色的用户数。
+   *
+   * @param direct 直属于该角色的用户数
+   * @param subtree 该角色及其所有下级角色的用户数
+   */
+  public record Counts(long direct, long subtree) {}
+}
@@ -36,4 +36,12 @@ public class RoleItemResponse {
    * 更新时间。
    */
   private Date updatedAt;
+  /**
+   * 直属于该角色的用户数。
+   */
+  private long userCount;
+  /**
+   * 该角色及其所有下级角色的用户数。
+   */
+  private long subtreeUserCount;
 }
@@ -0,0 +1,64 @@
+package net.wuxianjie.springbootweb.shared.ratelimit;
+
+import cn.hutool.extra.servlet.JakartaServletUtil;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import net.wuxianjie.springbootweb.auth.AuthUtils;
+import net.wuxianjie.springbootweb.shared.restapi.ApiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API 限流过滤器，需位于 Token 身份验证过滤器之后。
+ *
+ * <ul>
+ *   <li>已登录的请求按用户 id 限流，同一用户在多个客户端上共享配额</li>
+ *   <li>未登录的请求按客户端 IP 限流</li>
+ *   <li>超出配额时返回 429，并通过 {@code Retry-After} 告知客户端需等待的秒数</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+  private final RateLimiter rateLimiter;
+  private final HandlerExceptionResolver handlerExceptionResolver;
+
+  @Override
+  protected void doFilterInternal(
+    @NonNull final HttpServletRequest req,
+    @NonNull final HttpServletResponse resp,
+    @NonNull final FilterChain chain
+  ) throws ServletException, IOException {
+    final String caller = AuthUtils.getCurrentUser()
+      .map(user -> "u:" + user.getUserId())
+      .orElseGet(() -> "ip:" + JakartaServletUtil.getClientIP(req));
+
+    final long waitNanos = rateLimiter.tryAcquire(req.getRequestURI(), caller);
+
+    if (waitNanos == 0) {
+      chain.doFilter(req, resp);
+
+      return;
+    }
+
+    final ApiException e = new ApiException(HttpStatus.TOO_MANY_REQUESTS, "请求过于频繁，请稍后再试");
+
+    // 向上取整为秒
+    final long retryAfterSec = TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1);
+
+    e.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSec));
+
+    handlerExceptionResolver.resolveException(req, resp, null, e);
+  }
+}
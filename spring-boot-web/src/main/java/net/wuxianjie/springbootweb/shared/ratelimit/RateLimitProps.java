@@ -0,0 +1,67 @@
+package net.wuxianjie.springbootweb.shared.ratelimit;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * API 限流相关的配置项。
+ *
+ * @author 吴仙杰
+ **/
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit")
+@Data
+@Validated
+public class RateLimitProps {
+
+  /**
+   * 是否启用限流，默认启用。
+   */
+  private boolean enabled = true;
+
+  /**
+   * 同时保留的令牌桶数上限，超出后新的用户或 IP 共用一个溢出令牌桶。
+   */
+  @Min(value = 1, message = "令牌桶数上限不能小于 1")
+  private int maxKeys = 100_000;
+
+  /**
+   * 限流规则，按顺序匹配请求路径，匹配到第一条即停止；未匹配到任何规则的请求不限流。
+   */
+  @Valid
+  private List<Rule> rules = new ArrayList<>();
+
+  /**
+   * 限流规则。
+   */
+  @Data
+  public static class Rule {
+
+    /**
+     * 请求路径的 Ant 风格匹配模式，例如 {@code /api/v1/token/**}。
+     */
+    @NotBlank(message = "限流规则的路径模式不能为空")
+    private String pattern;
+
+    /**
+     * 令牌桶容量，即同一用户或 IP 允许的突发请求数。
+     */
+    @Min(value = 1, message = "令牌桶容量不能小于 1")
+    private int capacity = 50;
+
+    /**
+     * 每秒补充的令牌数，即同一用户或 IP 的持续请求速率。
+     */
+    @Positive(message = "令牌补充速率必须大于 0")
+    private double refillPerSec = 20;
+  }
+}
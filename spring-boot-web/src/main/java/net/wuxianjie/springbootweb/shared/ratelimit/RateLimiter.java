@@ -0,0 +1,169 @@
+package net.wuxianjie.springbootweb.shared.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import net.wuxianjie.springbootweb.shared.util.RateLimitedLog;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按请求路径及调用方（用户或客户端 IP）限流。
+ *
+ * <ul>
+ *   <li>按顺序匹配 {@link RateLimitProps#getRules()}，每条规则下每个调用方各有一个 {@link TokenBucket}</li>
+ *   <li>令牌桶数达到上限时，先淘汰已满（即空闲）的令牌桶，淘汰后仍无空间则由同一规则下的溢出令牌桶兜底，
+ *   <br>避免大量伪造 IP 耗尽内存或绕过限流</li>
+ *   <li>淘汰扫描至多每秒一次，平时的请求只需一次哈希查找及一次 CAS</li>
+ *   <li>每 {@value #STATS_LOG_INTERVAL_MIN} 分钟最多输出一次令牌桶数、拒绝数及溢出数</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+
+  /**
+   * 两次淘汰扫描的最小间隔，单位：纳秒。
+   */
+  private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * 输出统计日志的最小间隔，单位：分钟。
+   */
+  private static final long STATS_LOG_INTERVAL_MIN = 5;
+
+  private final AntPathMatcher pathMatcher = new AntPathMatcher();
+  private final ConcurrentHashMap<BucketKey, TokenBucket> buckets = new ConcurrentHashMap<>();
+  private final AtomicLong lastSweepNanos = new AtomicLong(System.nanoTime() - SWEEP_INTERVAL_NANOS);
+
+  private final boolean enabled;
+  private final int maxKeys;
+  private final List<RateLimitProps.Rule> rules;
+  private final TokenBucket[] overflowBuckets;
+
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder overflowed = new LongAdder();
+
+  private final RateLimitedLog statsLog = new RateLimitedLog(STATS_LOG_INTERVAL_MIN, TimeUnit.MINUTES);
+
+  public RateLimiter(final RateLimitProps props) {
+    this.enabled = props.isEnabled();
+    this.maxKeys = props.getMaxKeys();
+    this.rules = List.copyOf(props.getRules());
+    this.overflowBuckets = new TokenBucket[rules.size()];
+
+    final long now = System.nanoTime();
+
+    for (int i = 0; i < rules.size(); i++) {
+      final RateLimitProps.Rule rule = rules.get(i);
+
+      overflowBuckets[i] = new TokenBucket(rule.getCapacity(), rule.getRefillPerSec(), now);
+    }
+
+    if (enabled) {
+      log.info("已启用 API 限流 [rules={};maxKeys={}]", rules.size(), maxKeys);
+    }
+  }
+
+  /**
+   * 尝试放行请求。
+   *
+   * @param path 请求路径
+   * @param caller 调用方标识，例如 {@code u:1} 或 {@code ip:127.0.0.1}
+   * @return 放行时返回 0，否则返回需等待的时长，单位：纳秒
+   */
+  public long tryAcquire(final String path, final String caller) {
+    if (!enabled) {
+      return 0;
+    }
+
+    final int ruleIndex = matchRule(path);
+
+    if (ruleIndex < 0) {
+      return 0;
+    }
+
+    final long now = System.nanoTime();
+    final long waitNanos = getBucket(ruleIndex, caller, now).tryAcquire(now);
+
+    if (waitNanos > 0) {
+      rejected.increment();
+    }
+
+    if (statsLog.tryAcquire("stats") >= 0) {
+      log.info("API 限流统计 {}", getStats());
+    }
+
+    return waitNanos;
+  }
+
+  /**
+   * 获取限流的统计数据。
+   *
+   * @return 统计数据
+   */
+  public Stats getStats() {
+    return new Stats(buckets.size(), rejected.sum(), overflowed.sum());
+  }
+
+  private int matchRule(final String path) {
+    for (int i = 0; i < rules.size(); i++) {
+      if (pathMatcher.match(rules.get(i).getPattern(), path)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private TokenBucket getBucket(final int ruleIndex, final String caller, final long now) {
+    final BucketKey key = new BucketKey(ruleIndex, caller);
+    final TokenBucket bucket = buckets.get(key);
+
+    if (bucket != null) {
+      return bucket;
+    }
+
+    if (buckets.size() >= maxKeys) {
+      sweep(now);
+
+      if (buckets.size() >= maxKeys) {
+        overflowed.increment();
+
+        return overflowBuckets[ruleIndex];
+      }
+    }
+
+    final RateLimitProps.Rule rule = rules.get(ruleIndex);
+
+    return buckets.computeIfAbsent(key, k -> new TokenBucket(rule.getCapacity(), rule.getRefillPerSec(), now));
+  }
+
+  private void sweep(final long now) {
+    final long last = lastSweepNanos.get();
+
+    if (now - last < SWEEP_INTERVAL_NANOS || !lastSweepNanos.compareAndSet(last, now)) {
+      return;
+    }
+
+    // 已满的令牌桶与新建的令牌桶等价，移除后不影响限流结果
+    buckets.values().removeIf(bucket -> bucket.isFull(now));
+  }
+
+  /**
+   * 限流的统计数据。
+   *
+   * @param bucketCount 当前的令牌桶数
+   * @param rejected 被拒绝的请求数
+   * @param overflowed 因令牌桶数达到上限而使用溢出令牌桶的请求数
+   */
+  public record Stats(long bucketCount, long rejected, long overflowed) {}
+
+  private record BucketKey(int ruleIndex, String caller) {}
+}
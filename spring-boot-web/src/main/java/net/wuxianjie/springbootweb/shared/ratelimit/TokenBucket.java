@@ -0,0 +1,80 @@
+package net.wuxianjie.springbootweb.shared.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶。
+ *
+ * <p>以 GCRA（Generic Cell Rate Algorithm）实现，与令牌桶等价，但只需一个 {@code long} 状态：
+ * <br>即理论到达时间（TAT），每次请求将其推后一个发放间隔，推后的量超出桶容量时拒绝请求。
+ *
+ * <ul>
+ *   <li>无需定时补充令牌，每次请求时按单调时钟惰性计算</li>
+ *   <li>以 CAS 更新状态，无需加锁</li>
+ *   <li>TAT 不晚于当前时间即表示桶已满，此时丢弃该桶与新建的桶完全等价，故可安全淘汰</li>
+ * </ul>
+ *
+ * @author 吴仙杰
+ */
+final class TokenBucket {
+
+  /**
+   * 发放一个令牌的间隔，单位：纳秒。
+   */
+  private final long intervalNanos;
+
+  /**
+   * 桶容量所对应的时长，单位：纳秒。
+   */
+  private final long burstNanos;
+
+  /**
+   * 理论到达时间，单位：纳秒，见 {@link System#nanoTime()}。
+   */
+  private final AtomicLong tat;
+
+  /**
+   * 构造令牌桶，初始为满。
+   *
+   * @param capacity 桶容量，即允许的突发请求数
+   * @param refillPerSec 每秒补充的令牌数
+   * @param nowNanos 当前时间，单位：纳秒
+   */
+  TokenBucket(final int capacity, final double refillPerSec, final long nowNanos) {
+    this.intervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSec));
+    this.burstNanos = intervalNanos * capacity;
+    this.tat = new AtomicLong(nowNanos);
+  }
+
+  /**
+   * 尝试获取一个令牌。
+   *
+   * @param nowNanos 当前时间，单位：纳秒
+   * @return 获取成功时返回 0，否则返回需等待的时长，单位：纳秒
+   */
+  long tryAcquire(final long nowNanos) {
+    while (true) {
+      final long current = tat.get();
+      final long next = Math.max(current, nowNanos) + intervalNanos;
+      final long waitNanos = next - nowNanos - burstNanos;
+
+      if (waitNanos > 0) {
+        return waitNanos;
+      }
+
+      if (tat.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * 检查令牌桶是否已满，即可被淘汰而不影响限流结果。
+   *
+   * @param nowNanos 当前时间，单位：纳秒
+   * @return 是否已满
+   */
+  boolean isFull(final long nowNanos) {
+    return tat.get() - nowNanos <= 0;
+  }
+}
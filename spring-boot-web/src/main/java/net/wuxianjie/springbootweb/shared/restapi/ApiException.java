@@ -2,6 +2,7 @@ package net.wuxianjie.springbootweb.shared.restapi;
 
 import cn.hutool.core.util.StrUtil;
 import lombok.Getter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 
 import java.util.ArrayList;
@@ -29,6 +30,11 @@ public class ApiException extends RuntimeException {
    */
   @Getter
   private final boolean logStack;
+  /**
+   * 需要额外写入 HTTP 响应的响应头，例如 {@code Retry-After}。
+   */
+  @Getter
+  private final HttpHeaders headers = new HttpHeaders();
 
   /**
    * 构造异常对象。
@@ -251,6 +251,7 @@ public class RestExceptionHandler {
 
     return ResponseEntity
       .status(e.getStatus())
+      .headers(e.getHeaders())
       .body(new ErrorResponse(e.getStatus(), e.getReason()));
   }
 
@@ -0,0 +1,63 @@
+package net.wuxianjie.springbootweb.shared.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 限流日志，同一类日志在每个时间窗口内至多输出一次，其余的仅计数。
+ *
+ * <p>用于可能被客户端高频触发的日志（如 Token 校验失败），避免大量日志拖慢服务。
+ *
+ * <pre>{@code
+ *   final long suppressed = rateLimitedLog.tryAcquire("illegal_token");
+ *
+ *   if (suppressed >= 0) {
+ *     log.warn("Token 不合法 [suppressed={}]", suppressed);
+ *   }
+ * }</pre>
+ *
+ * @author 吴仙杰
+ */
+public class RateLimitedLog {
+
+  private final long intervalNanos;
+  private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+  /**
+   * 构造限流日志。
+   *
+   * @param interval 时间窗口
+   * @param unit 时间窗口单位
+   */
+  public RateLimitedLog(final long interval, final TimeUnit unit) {
+    this.intervalNanos = unit.toNanos(interval);
+  }
+
+  /**
+   * 尝试获取输出日志的许可。
+   *
+   * @param key 日志类别
+   * @return 上次输出后被忽略的日志数，若当前时间窗口内已输出过则返回 -1
+   */
+  public long tryAcquire(final String key) {
+    final Window window = windows.computeIfAbsent(key, k -> new Window());
+    final long now = System.nanoTime();
+    final long next = window.nextNanos.get();
+
+    if (now - next < 0 || !window.nextNanos.compareAndSet(next, now + intervalNanos)) {
+      window.suppressed.increment();
+
+      return -1;
+    }
+
+    return window.suppressed.sumThenReset();
+  }
+
+  private static class Window {
+
+    private final AtomicLong nextNanos = new AtomicLong(System.nanoTime());
+    private final LongAdder suppressed = new LongAdder();
+  }
+}
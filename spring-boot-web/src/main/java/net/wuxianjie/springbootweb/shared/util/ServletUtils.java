@@ -4,7 +4,7 @@ import cn.hutool.core.util.StrUtil;
 import cn.hutool.extra.servlet.JakartaServletUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import net.wuxianjie.springbootweb.auth.AuthUtils;
-import net.wuxianjie.springbootweb.auth.dto.AuthData;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
@@ -41,7 +41,7 @@ public class ServletUtils {
   public static String getClientInfo() {
     final HttpServletRequest request = ServletUtils.getCurrentRequest().orElseThrow();
 
-    final String username = AuthUtils.getCurrentUser().map(AuthData::getUsername).orElse(null);
+    final String username = AuthUtils.getCurrentUser().map(LoginSession::getUsername).orElse(null);
 
     return StrUtil.format("api=[{} {}];client={};user={}",
       request.getMethod(), request.getRequestURI(),
@@ -0,0 +1,116 @@
+package net.wuxianjie.springbootweb.user;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * 在后台以当前 cost 重新编码用户的哈希密码。
+ *
+ * <p>仅在用户登录成功，即已知明文密码时才能重新编码，故由登录接口在校验密码后调用。
+ *
+ * @author 吴仙杰
+ */
+@Component
+@Slf4j
+public class PasswordRehasher {
+
+  /**
+   * 等待重新编码的最大用户数，超出时直接丢弃，待下次登录时再重新编码。
+   */
+  private static final int QUEUE_CAPACITY = 256;
+
+  private final PasswordEncoder passwordEncoder;
+  private final UserMapper userMapper;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ThreadPoolExecutor executor;
+
+  private final Set<Long> pendingUserIds = ConcurrentHashMap.newKeySet();
+
+  public PasswordRehasher(
+    final PasswordEncoder passwordEncoder,
+    final UserMapper userMapper,
+    final ApplicationEventPublisher eventPublisher
+  ) {
+    this.passwordEncoder = passwordEncoder;
+    this.userMapper = userMapper;
+    this.eventPublisher = eventPublisher;
+
+    this.executor = new ThreadPoolExecutor(
+      1,
+      1,
+      0,
+      TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+      r -> {
+        final Thread thread = new Thread(r, "password-rehash");
+        thread.setDaemon(true);
+
+        return thread;
+      },
+      new ThreadPoolExecutor.DiscardPolicy()
+    );
+  }
+
+  /**
+   * 若哈希密码的 cost 与当前不一致，则在后台重新编码并保存。
+   *
+   * @param userId 用户 id
+   * @param rawPassword 已校验通过的明文密码
+   * @param hashedPassword 当前的哈希密码
+   */
+  public void rehashIfNeeded(final long userId, final String rawPassword, final String hashedPassword) {
+    if (!passwordEncoder.upgradeEncoding(hashedPassword)) {
+      return;
+    }
+
+    // 同一用户同时只需重新编码一次
+    if (!pendingUserIds.add(userId)) {
+      return;
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          rehash(userId, rawPassword, hashedPassword);
+        } finally {
+          pendingUserIds.remove(userId);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      pendingUserIds.remove(userId);
+    }
+
+    if (executor.getQueue().remainingCapacity() == 0) {
+      log.warn("密码重新编码队列已满，后续请求将被丢弃");
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void rehash(final long userId, final String rawPassword, final String hashedPassword) {
+    try {
+      final String newHashedPassword = passwordEncoder.encode(rawPassword);
+
+      // 仅当密码仍为编码前的哈希时才更新，编码期间密码已被修改或用户已删除时不能覆盖
+      if (userMapper.updateHashedPasswordByIdAndHashedPassword(userId, hashedPassword, newHashedPassword) == 0) {
+        return;
+      }
+
+      // 使缓存的哈希密码失效，密码未变，故无需注销登录会话
+      eventPublisher.publishEvent(new UserChangedEvent(userId, false));
+
+      log.info("已重新编码用户密码 [userId={}]", userId);
+    } catch (Exception e) {
+      log.error("重新编码用户密码失败 [userId={}]", userId, e);
+    }
+  }
+}
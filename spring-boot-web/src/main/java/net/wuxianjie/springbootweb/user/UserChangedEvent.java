@@ -0,0 +1,10 @@
+package net.wuxianjie.springbootweb.user;
+
+/**
+ * 用户已变更事件，用于同步更新该用户的登录会话。
+ *
+ * @param userId 用户 id
+ * @param forceLogout 是否强制注销该用户的登录会话，如更换角色、重置密码或删除用户
+ * @author 吴仙杰
+ */
+public record UserChangedEvent(long userId, boolean forceLogout) {}
@@ -22,26 +22,28 @@ public interface UserMapper {
 
   UserDetailResponse selectUserDetailById(long userId);
 
-  String selectRoleFullPathByRoleId(long roleId);
-
-  String selectRoleFullPathById(long userId);
-
   boolean existsByUsername(String username);
 
   List<UserItemResponse> selectByQueryOrderByUpdatedAtDescLimit(
     @Param("p") PaginationParam pag,
     @Param("q") GetUserRequest query,
-    @Param("fullPath") String fullPath
+    @Param("roleId") long roleId
   );
 
   long countByQuery(
     @Param("q") GetUserRequest query,
-    @Param("fullPath") String fullPath
+    @Param("roleId") long roleId
   );
 
   int insert(User user);
 
   int update(User user);
 
+  int updateHashedPasswordByIdAndHashedPassword(
+    @Param("userId") long userId,
+    @Param("oldHashedPassword") String oldHashedPassword,
+    @Param("newHashedPassword") String newHashedPassword
+  );
+
   int deleteById(long userId);
 }
@@ -6,12 +6,14 @@ import cn.hutool.core.util.StrUtil;
 import lombok.RequiredArgsConstructor;
 import net.wuxianjie.springbootweb.auth.AccountStatus;
 import net.wuxianjie.springbootweb.auth.AuthUtils;
+import net.wuxianjie.springbootweb.role.RoleMembershipChangedEvent;
 import net.wuxianjie.springbootweb.role.RoleService;
 import net.wuxianjie.springbootweb.shared.pagination.PaginationParam;
 import net.wuxianjie.springbootweb.shared.pagination.PaginationResult;
 import net.wuxianjie.springbootweb.shared.restapi.ApiException;
 import net.wuxianjie.springbootweb.shared.util.StrUtils;
 import net.wuxianjie.springbootweb.user.dto.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -32,6 +34,7 @@ public class UserService {
   private final UserMapper userMapper;
   private final PasswordEncoder passwordEncoder;
   private final RoleService roleService;
+  private final ApplicationEventPublisher eventPublisher;
 
   /**
    * 获取用户分页列表。
@@ -49,14 +52,14 @@ public class UserService {
     // 设置模糊查询参数
     setFuzzyQueryParams(query);
 
-    // 获取当前用户的角色全路径
-    final String roleFullPathPrefix = roleService.getCurrentUserRoleFullPathPrefix();
+    // 获取当前用户的角色 id
+    final long roleId = AuthUtils.getCurrentUser().orElseThrow().getRoleId();
 
     // 检索数据库，获取用户分页列表，并按更新时间降序排列
-    final List<UserItemResponse> list = userMapper.selectByQueryOrderByUpdatedAtDescLimit(pag, query, roleFullPathPrefix);
+    final List<UserItemResponse> list = userMapper.selectByQueryOrderByUpdatedAtDescLimit(pag, query, roleId);
 
     // 检索数据库，获取用户总条数
-    final long total = userMapper.countByQuery(query, roleFullPathPrefix);
+    final long total = userMapper.countByQuery(query, roleId);
 
     // 构造分页查询结果
     return ResponseEntity.ok(new PaginationResult<>(
@@ -81,7 +84,7 @@ public class UserService {
       .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到用户数据"));
 
     // 检验是否为当前用户的下级用户
-    if (roleService.isNotSubordinateRole(userInfo.getFullPath())) {
+    if (roleService.isNotSubordinateRole(userInfo.getRoleId())) {
       throw new ApiException(HttpStatus.FORBIDDEN, "只允许查看下级用户");
     }
 
@@ -101,10 +104,11 @@ public class UserService {
     checkNameUniqueness(req.getUsername());
 
     // 检验是否为当前用户的下级用户
-    final String oldRoleFullPath = Optional.ofNullable(userMapper.selectRoleFullPathByRoleId(req.getRoleId()))
-      .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到角色数据"));
+    if (!roleService.existsRole(req.getRoleId())) {
+      throw new ApiException(HttpStatus.NOT_FOUND, "未找到角色数据");
+    }
 
-    if (isNotSubordinateRole(oldRoleFullPath)) {
+    if (roleService.isNotSubordinateRole(req.getRoleId())) {
       throw new ApiException(HttpStatus.FORBIDDEN, "只允许创建下级用户");
     }
 
@@ -124,6 +128,9 @@ public class UserService {
 
     userMapper.insert(user);
 
+    // 同步更新角色的用户数
+    eventPublisher.publishEvent(new RoleMembershipChangedEvent(null, req.getRoleId()));
+
     return ResponseEntity.status(HttpStatus.CREATED).build();
   }
 
@@ -142,7 +149,7 @@ public class UserService {
       .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到用户数据"));
 
     // 检验是否为当前用户的下级用户
-    if (isNotSubordinateRole(oldUser.getRoleId())) {
+    if (roleService.isNotSubordinateRole(oldUser.getRoleId())) {
       throw new ApiException(HttpStatus.FORBIDDEN, "只允许更新下级用户");
     }
 
@@ -157,12 +164,11 @@ public class UserService {
     if (!NumberUtil.equals(oldUser.getRoleId(), req.getRoleId())) {
       userToUpdate.setRoleId(req.getRoleId());
 
-      final String roleFullPathToUpdate = Optional.ofNullable(
-          userMapper.selectRoleFullPathByRoleId(req.getRoleId())
-        )
-        .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到角色数据"));
+      if (!roleService.existsRole(req.getRoleId())) {
+        throw new ApiException(HttpStatus.NOT_FOUND, "未找到角色数据");
+      }
 
-      if (roleService.isNotSubordinateRole(roleFullPathToUpdate)) {
+      if (roleService.isNotSubordinateRole(req.getRoleId())) {
         throw new ApiException(HttpStatus.FORBIDDEN, "新角色不是当前用户的下级角色");
       }
     }
@@ -170,6 +176,14 @@ public class UserService {
     // 更新数据库中的用户
     userMapper.update(userToUpdate);
 
+    // 同步更新该用户的登录会话，更换角色时需重新登录
+    eventPublisher.publishEvent(new UserChangedEvent(userId, userToUpdate.getRoleId() != null));
+
+    // 同步更新角色的用户数
+    if (userToUpdate.getRoleId() != null) {
+      eventPublisher.publishEvent(new RoleMembershipChangedEvent(oldUser.getRoleId(), userToUpdate.getRoleId()));
+    }
+
     return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
   }
 
@@ -205,6 +219,9 @@ public class UserService {
     // 更新数据库中的用户
     userMapper.update(userToUpdate);
 
+    // 同步更新本账号的登录会话
+    eventPublisher.publishEvent(new UserChangedEvent(userId, false));
+
     return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
   }
 
@@ -223,7 +240,7 @@ public class UserService {
       .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到用户数据"));
 
     // 检验是否为当前用户的下级用户
-    if (isNotSubordinateRole(oldUser.getRoleId())) {
+    if (roleService.isNotSubordinateRole(oldUser.getRoleId())) {
       throw new ApiException(HttpStatus.FORBIDDEN, "只允许更新下级用户");
     }
 
@@ -239,6 +256,9 @@ public class UserService {
     // 更新至数据库
     userMapper.update(userToUpdate);
 
+    // 密码已重置，强制注销该用户的登录会话
+    eventPublisher.publishEvent(new UserChangedEvent(userId, true));
+
     return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
   }
 
@@ -256,13 +276,19 @@ public class UserService {
       .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "未找到用户数据"));
 
     // 检验是否为当前用户的下级用户
-    if (isNotSubordinateRole(oldUser.getRoleId())) {
+    if (roleService.isNotSubordinateRole(oldUser.getRoleId())) {
       throw new ApiException(HttpStatus.FORBIDDEN, "只允许删除下级用户");
     }
 
     // 更新数据库中的用户
     userMapper.deleteById(userId);
 
+    // 强制注销该用户的登录会话
+    eventPublisher.publishEvent(new UserChangedEvent(userId, true));
+
+    // 同步更新角色的用户数
+    eventPublisher.publishEvent(new RoleMembershipChangedEvent(oldUser.getRoleId(), null));
+
     return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
   }
 
@@ -279,14 +305,4 @@ public class UserService {
       throw new ApiException(HttpStatus.CONFLICT, "已存在相同用户名");
     }
   }
-
-  private boolean isNotSubordinateRole(final long roleId) {
-    final String oldRoleFullPath = Optional.ofNullable(userMapper.selectRoleFullPathByRoleId(roleId)).orElseThrow();
-
-    return roleService.isNotSubordinateRole(oldRoleFullPath);
-  }
-
-  private boolean isNotSubordinateRole(final String checkedFullPath) {
-    return roleService.isNotSubordinateRole(checkedFullPath);
-  }
 }
@@ -0,0 +1,74 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.core.util.StrUtil;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthorityLatticeTest {
+
+  @Test
+  void testIsSubNodeMatchesIdPrefix() {
+    for (final Authority parent : Authority.values()) {
+      for (final Authority checked : Authority.values()) {
+        final boolean expected = StrUtil.startWith(checked.getId(), parent.getId() + StrUtil.DOT);
+
+        assertEquals(expected, AuthorityLattice.isSubNode(parent, checked), parent + " > " + checked);
+      }
+    }
+  }
+
+  @Test
+  void testEffectiveMaskIncludesDescendants() {
+    final long mask = AuthorityLattice.effectiveMask(List.of("user", "role_view", "unknown"));
+
+    assertTrue(AuthorityLattice.implies(mask, "user"));
+    assertTrue(AuthorityLattice.implies(mask, "user_add"));
+    assertTrue(AuthorityLattice.implies(mask, "role_view"));
+    assertFalse(AuthorityLattice.implies(mask, "role"));
+    assertFalse(AuthorityLattice.implies(mask, "role_add"));
+    assertFalse(AuthorityLattice.implies(mask, "op_log_view"));
+    assertFalse(AuthorityLattice.implies(mask, "unknown"));
+
+    final long rootMask = AuthorityLattice.effectiveMask(List.of("root"));
+
+    for (final Authority authority : Authority.values()) {
+      assertTrue(AuthorityLattice.implies(rootMask, authority.getCode()));
+    }
+  }
+
+  @Test
+  void testExpressionHandlerHasAuthority() throws NoSuchMethodException {
+    final LoginSession session = new LoginSession(1, "wxj", "吴仙杰", AccountStatus.ENABLED, 1, "user", null, null);
+    final Authentication authentication = new UsernamePasswordAuthenticationToken(
+      session,
+      null,
+      session.getAuthoritySet().getGrantedAuthorities()
+    );
+
+    final AuthorityExpressionHandler handler = new AuthorityExpressionHandler();
+    final MethodInvocation mi = new SimpleMethodInvocation(this, Object.class.getMethod("toString"));
+    final EvaluationContext ctx = handler.createEvaluationContext(() -> authentication, mi);
+
+    assertTrue(evaluate(handler, ctx, "hasAuthority('user_add')"));
+    assertTrue(evaluate(handler, ctx, "hasAnyAuthority('role_view', 'user_del')"));
+    assertFalse(evaluate(handler, ctx, "hasAuthority('role_view')"));
+    assertTrue(evaluate(handler, ctx, "isAuthenticated()"));
+  }
+
+  private static boolean evaluate(
+    final AuthorityExpressionHandler handler,
+    final EvaluationContext ctx,
+    final String expression
+  ) {
+    return Boolean.TRUE.equals(handler.getExpressionParser().parseExpression(expression).getValue(ctx));
+  }
+}
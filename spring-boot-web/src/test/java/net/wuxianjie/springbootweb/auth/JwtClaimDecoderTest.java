@@ -0,0 +1,262 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.core.lang.Console;
+import net.wuxianjie.springbootweb.auth.dto.TokenPayload;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtClaimDecoderTest {
+
+  private static final int FUZZ_CASES = 20_000;
+
+  private static final int WARMUP_OPS = 20_000;
+  private static final int MEASURE_OPS = 50_000;
+
+  private static final String HEADER = base64("{\"typ\":\"JWT\",\"alg\":\"HS256\",\"kid\":\"k1\"}");
+
+  private final Random random = new Random(20231018);
+
+  @Test
+  void testDecodeTokenFromTokenService() {
+    final AuthProps authProps = new AuthProps();
+    authProps.setTokenKey("test#token_key");
+
+    final TokenService tokenService = new TokenService(authProps);
+    final String token = tokenService.createToken(new TokenPayload(
+      "wxj",
+      AuthProps.TOKEN_TYPE_ACCESS,
+      AuthProps.TOKEN_ISSUER,
+      System.currentTimeMillis() / 1000 + AuthProps.TOKEN_EXP_SEC,
+      new TokenPayload.Claims(1, AccountStatus.ENABLED, 2, 0xABCL, System.currentTimeMillis())
+    ));
+
+    final JwtClaimDecoder.Decoded fast = decode(token);
+
+    assertNotNull(fast);
+    assertEquals(TokenService.decodeGeneral(token), fast);
+    assertSame(AuthProps.TOKEN_ISSUER, fast.issuer());
+  }
+
+  /**
+   * 随机生成载荷：字段顺序、空白、转义、多余字段均随机，快速解码的结果须与通用解析器一致。
+   */
+  @Test
+  void fuzzWellFormedPayloads() {
+    int fastPath = 0;
+
+    for (int i = 0; i < FUZZ_CASES; i++) {
+      final String token = HEADER + "." + base64(randomPayload()) + ".sig";
+      final JwtClaimDecoder.Decoded fast = decode(token);
+
+      if (fast != null) {
+        fastPath++;
+        assertEquals(TokenService.decodeGeneral(token), fast, token);
+      }
+    }
+
+    // 绝大多数格式正确的载荷应由快速解码处理
+    assertTrue(fastPath > FUZZ_CASES * 0.9, "fastPath=" + fastPath);
+  }
+
+  /**
+   * 随机篡改载荷字节：快速解码要么放弃，要么与通用解析器一致，且通用解析器失败时快速解码必须放弃。
+   */
+  @Test
+  void fuzzMutatedPayloads() {
+    for (int i = 0; i < FUZZ_CASES; i++) {
+      final byte[] json = randomPayload().getBytes(StandardCharsets.UTF_8);
+      final int mutations = 1 + random.nextInt(3);
+
+      for (int m = 0; m < mutations; m++) {
+        final int index = random.nextInt(json.length);
+
+        json[index] = switch (random.nextInt(4)) {
+          case 0 -> (byte) random.nextInt(256);
+          case 1 -> (byte) "{}[]:,\"\\ -.0eE".charAt(random.nextInt(14));
+          case 2 -> (byte) (json[index] ^ (1 << random.nextInt(8)));
+          default -> (byte) (0x80 | random.nextInt(0x40));
+        };
+      }
+
+      final String token = HEADER + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(json) + ".sig";
+      final JwtClaimDecoder.Decoded fast = decode(token);
+
+      if (fast == null) {
+        continue;
+      }
+
+      final JwtClaimDecoder.Decoded general;
+
+      try {
+        general = TokenService.decodeGeneral(token);
+      } catch (Exception e) {
+        fail("通用解析器失败，但快速解码成功 [" + new String(json, StandardCharsets.UTF_8) + "]");
+
+        return;
+      }
+
+      assertEquals(general, fast, new String(json, StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void testRejectsNonCanonicalBase64() {
+    assertEquals(-1, JwtClaimDecoder.decodeBase64Url("QR", 0, 2, new byte[8]));
+    assertEquals(1, JwtClaimDecoder.decodeBase64Url("QQ", 0, 2, new byte[8]));
+    assertEquals(-1, JwtClaimDecoder.decodeBase64Url("QQ==", 0, 4, new byte[8]));
+    assertEquals(-1, JwtClaimDecoder.decodeBase64Url("Q+", 0, 2, new byte[8]));
+  }
+
+  /**
+   * 对比快速解码与通用解析器的每次操作分配的内存及耗时。
+   *
+   * <p>耗时较长，默认不运行，见 {@code pom.xml} 中的 {@code test.excluded-groups}。
+   */
+  @Tag("perf")
+  @Test
+  void benchmarkAllocationPerOp() {
+    final AuthProps authProps = new AuthProps();
+    authProps.setTokenKey("test#token_key");
+
+    final String token = new TokenService(authProps).createToken(new TokenPayload(
+      "wxj",
+      AuthProps.TOKEN_TYPE_ACCESS,
+      AuthProps.TOKEN_ISSUER,
+      System.currentTimeMillis() / 1000 + AuthProps.TOKEN_EXP_SEC
+    ));
+
+    for (int i = 0; i < WARMUP_OPS; i++) {
+      decode(token);
+      TokenService.decodeGeneral(token);
+    }
+
+    final com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long threadId = Thread.currentThread().getId();
+
+    long bytes = mx.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURE_OPS; i++) {
+      assertNotNull(decode(token));
+    }
+    final long fastNs = (System.nanoTime() - start) / MEASURE_OPS;
+    final long fastBytes = (mx.getThreadAllocatedBytes(threadId) - bytes) / MEASURE_OPS;
+
+    bytes = mx.getThreadAllocatedBytes(threadId);
+    start = System.nanoTime();
+    for (int i = 0; i < MEASURE_OPS; i++) {
+      assertNotNull(TokenService.decodeGeneral(token));
+    }
+    final long generalNs = (System.nanoTime() - start) / MEASURE_OPS;
+    final long generalBytes = (mx.getThreadAllocatedBytes(threadId) - bytes) / MEASURE_OPS;
+
+    Console.log("快速解码: {} ns/op, {} B/op\n通用解析: {} ns/op, {} B/op", fastNs, fastBytes, generalNs, generalBytes);
+
+    assertTrue(fastBytes < generalBytes);
+  }
+
+  private static JwtClaimDecoder.Decoded decode(final String token) {
+    final int firstDot = token.indexOf('.');
+    final int secondDot = token.indexOf('.', firstDot + 1);
+
+    return JwtClaimDecoder.decode(token, firstDot, secondDot);
+  }
+
+  private String randomPayload() {
+    final List<String> members = new ArrayList<>();
+
+    maybeAdd(members, AuthProps.JWT_PAYLOAD_USERNAME, randomJsonString());
+    maybeAdd(members, AuthProps.JWT_PAYLOAD_TYPE, random.nextBoolean() ? "\"access\"" : randomJsonString());
+    maybeAdd(members, "iss", random.nextBoolean() ? "\"" + AuthProps.TOKEN_ISSUER + "\"" : randomJsonString());
+    maybeAdd(members, "exp", randomJsonLong());
+
+    if (random.nextBoolean()) {
+      maybeAdd(members, AuthProps.JWT_PAYLOAD_USER_ID, randomJsonLong());
+      maybeAdd(members, AuthProps.JWT_PAYLOAD_STATUS, String.valueOf(random.nextInt(3)));
+      maybeAdd(members, AuthProps.JWT_PAYLOAD_ROLE_ID, randomJsonLong());
+      // 旧版本签发的 Token 仍携带的角色全路径
+      maybeAdd(members, "rfp", randomJsonString());
+      maybeAdd(members, AuthProps.JWT_PAYLOAD_AUTHORITIES, "\"" + Long.toHexString(random.nextLong()) + "\"");
+      maybeAdd(members, AuthProps.JWT_PAYLOAD_ISSUED_AT_MS, randomJsonLong());
+    }
+
+    // 多余的字段
+    final int extras = random.nextInt(4);
+
+    for (int i = 0; i < extras; i++) {
+      members.add("\"x" + i + "\"" + ws() + ":" + ws() + randomJsonValue(0));
+    }
+
+    Collections.shuffle(members, random);
+
+    return ws() + "{" + ws() + String.join(ws() + "," + ws(), members) + ws() + "}" + ws();
+  }
+
+  private void maybeAdd(final List<String> members, final String key, final String value) {
+    if (random.nextInt(10) > 0) {
+      members.add("\"" + key + "\"" + ws() + ":" + ws() + value);
+    }
+  }
+
+  private String randomJsonValue(final int depth) {
+    final int kind = random.nextInt(depth > 2 ? 5 : 7);
+
+    return switch (kind) {
+      case 0 -> randomJsonString();
+      case 1 -> randomJsonLong();
+      case 2 -> String.valueOf(random.nextDouble() * 1000);
+      case 3 -> random.nextBoolean() ? "true" : "false";
+      case 4 -> "null";
+      case 5 -> "[" + randomJsonValue(depth + 1) + "," + ws() + randomJsonValue(depth + 1) + "]";
+      default -> "{\"a\":" + randomJsonValue(depth + 1) + "}";
+    };
+  }
+
+  private String randomJsonLong() {
+    return switch (random.nextInt(4)) {
+      case 0 -> String.valueOf(random.nextInt(100));
+      case 1 -> String.valueOf(-random.nextInt(1000));
+      case 2 -> String.valueOf(1_700_000_000L + random.nextInt(100_000_000));
+      default -> String.valueOf(random.nextLong());
+    };
+  }
+
+  private String randomJsonString() {
+    final StringBuilder sb = new StringBuilder("\"");
+    final int length = random.nextInt(12);
+
+    for (int i = 0; i < length; i++) {
+      switch (random.nextInt(8)) {
+        case 0 -> sb.append("\\\"");
+        case 1 -> sb.append("\\\\");
+        case 2 -> sb.append("\\n");
+        case 3 -> sb.append(String.format("\\u%04x", random.nextInt(0xD800)));
+        case 4 -> sb.append((char) (0x4E00 + random.nextInt(0x5000)));
+        default -> sb.append((char) ('a' + random.nextInt(26)));
+      }
+    }
+
+    return sb.append('"').toString();
+  }
+
+  private String ws() {
+    return switch (random.nextInt(6)) {
+      case 0 -> " ";
+      case 1 -> "\n  ";
+      default -> "";
+    };
+  }
+
+  private static String base64(final String json) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,116 @@
+package net.wuxianjie.springbootweb.auth;
+
+import net.wuxianjie.springbootweb.auth.dto.AuthData;
+import net.wuxianjie.springbootweb.role.RoleChangedEvent;
+import net.wuxianjie.springbootweb.user.UserChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginPrincipalCacheTest {
+
+  private final AtomicInteger queries = new AtomicInteger();
+
+  private LoginPrincipalCache cache;
+
+  @BeforeEach
+  void setUp() {
+    cache = newCache(new AuthProps());
+  }
+
+  private LoginPrincipalCache newCache(final AuthProps authProps) {
+    return new LoginPrincipalCache(new AuthMapper() {
+
+      @Override
+      public AuthData selectByUsername(final String username) {
+        queries.incrementAndGet();
+
+        if (!username.startsWith("wxj")) {
+          return null;
+        }
+
+        final long userId = "wxj".equals(username) ? 1 : 100 + Long.parseLong(username.substring(3));
+        final AuthData auth = new AuthData(userId, username, "hash", "吴仙杰", AccountStatus.ENABLED, "user");
+        auth.setRoleId(2);
+
+        return auth;
+      }
+
+      @Override
+      public AuthData selectById(final long userId) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public String selectAuthoritiesByRoleId(final long roleId) {
+        throw new UnsupportedOperationException();
+      }
+    }, authProps);
+  }
+
+  @Test
+  void testReadThroughReturnsCopies() {
+    final AuthData first = cache.get("WXJ");
+    first.setNickname("changed");
+
+    final AuthData second = cache.get("wxj");
+
+    assertEquals(1, queries.get());
+    assertNotSame(first, second);
+    assertEquals("吴仙杰", second.getNickname());
+    assertEquals("hash", second.getHashedPassword());
+
+    assertNull(cache.get("unknown"));
+
+    final LoginPrincipalCache.Stats stats = cache.getStats();
+    assertEquals(1, stats.hits());
+    assertEquals(2, stats.misses());
+  }
+
+  @Test
+  void testInvalidateByUserAndRole() {
+    cache.get("wxj");
+
+    cache.onUserChanged(new UserChangedEvent(1, false));
+    cache.get("wxj");
+    assertEquals(2, queries.get());
+
+    cache.onRoleChanged(new RoleChangedEvent(3));
+    cache.get("wxj");
+    assertEquals(2, queries.get());
+
+    cache.onRoleChanged(new RoleChangedEvent(2));
+    cache.get("wxj");
+    assertEquals(3, queries.get());
+  }
+
+  @Test
+  void testEvictionPrunesUserIdIndex() {
+    for (int i = 0; i < 10_100; i++) {
+      cache.get("wxj" + i);
+    }
+
+    assertEquals(10_000, cache.getStats().size());
+    assertEquals(10_000, cache.indexSize());
+  }
+
+  @Test
+  void testClusterModeUsesShortTtl() throws InterruptedException {
+    final AuthProps authProps = new AuthProps();
+    authProps.getSession().setMode(AuthProps.SessionMode.CLUSTER);
+
+    final LoginPrincipalCache clustered = newCache(authProps);
+    clustered.get("wxj");
+    clustered.get("wxj");
+    assertEquals(1, queries.get());
+
+    Thread.sleep(5_100);
+
+    clustered.get("wxj");
+    assertEquals(2, queries.get());
+    assertEquals(1, clustered.indexSize());
+  }
+}
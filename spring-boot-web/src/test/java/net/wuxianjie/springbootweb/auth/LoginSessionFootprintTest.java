@@ -0,0 +1,241 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.core.util.ArrayUtil;
+import net.wuxianjie.springbootweb.auth.dto.AuthData;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import net.wuxianjie.springbootweb.auth.dto.TokenPayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对比以 {@link AuthData} 及 {@link LoginSession} 保存登录会话时的堆内存占用。
+ *
+ * <p>按字段及引用遍历对象图估算大小（64 位 JVM、压缩指针、8 字节对齐），多个会话共享的对象只计一次，结果与 GC 时机无关。
+ */
+public class LoginSessionFootprintTest {
+
+  private static final int SESSIONS = 1_000;
+
+  private static final int HEADER_BYTES = 12;
+  private static final int ARRAY_HEADER_BYTES = 16;
+  private static final int REFERENCE_BYTES = 4;
+  private static final int ROLES = 20;
+
+  private final TokenService tokenService;
+  private final String hashedPassword = new BCryptPasswordEncoder(4).encode("123456");
+
+  public LoginSessionFootprintTest() {
+    final AuthProps authProps = new AuthProps();
+    authProps.setTokenKey("test#token_key");
+
+    this.tokenService = new TokenService(authProps);
+  }
+
+  @Test
+  void benchmarkHeapFootprint() {
+    final long legacyBytes = measure(i -> {
+      final AuthData auth = load(i);
+
+      // 原先随会话保存的数据：AuthData（含哈希密码及两个 Token）、位掩码及权限集合副本
+      return new LegacySession(
+        auth,
+        token(auth, AuthProps.TOKEN_TYPE_ACCESS),
+        token(auth, AuthProps.TOKEN_TYPE_REFRESH),
+        AuthorityLattice.effectiveMask(auth.getAuthorities()),
+        List.copyOf(AuthorityUtils.createAuthorityList(ArrayUtil.toArray(auth.getAuthorities(), String.class)))
+      );
+    });
+
+    final long compactBytes = measure(i -> {
+      final AuthData auth = load(i);
+      final LoginSession session = LoginSession.of(
+        auth,
+        token(auth, AuthProps.TOKEN_TYPE_ACCESS),
+        token(auth, AuthProps.TOKEN_TYPE_REFRESH)
+      );
+      session.getAuthentication();
+
+      return session;
+    });
+
+    assertTrue(
+      compactBytes < legacyBytes,
+      "LoginSession 应比 AuthData 占用更少的内存 [AuthData=%d;LoginSession=%d]（字节/会话）"
+        .formatted(legacyBytes / SESSIONS, compactBytes / SESSIONS)
+    );
+  }
+
+  // 模拟从数据库中加载的用户，每个会话各自拆分权限字符串
+  private AuthData load(final int i) {
+    final AuthData auth = new AuthData(
+      i,
+      "user" + i,
+      new String(hashedPassword.toCharArray()),
+      "用户" + i,
+      AccountStatus.ENABLED,
+      "user_view,user_add,user_edit,role_view,op_log_view," + "role" + (i % ROLES)
+    );
+    auth.setRoleId(i % ROLES);
+
+    return auth;
+  }
+
+  private String token(final AuthData auth, final String type) {
+    return tokenService.createToken(new TokenPayload(
+      auth.getUsername(),
+      type,
+      AuthProps.TOKEN_ISSUER,
+      System.currentTimeMillis() / 1000 + AuthProps.TOKEN_EXP_SEC
+    ));
+  }
+
+  private static long measure(final IntFunction<Object> factory) {
+    final Object[] sessions = new Object[SESSIONS];
+
+    for (int i = 0; i < SESSIONS; i++) {
+      sessions[i] = factory.apply(i);
+    }
+
+    return new SizeEstimator().sizeOf(sessions);
+  }
+
+  private static long align(final long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
+  private static int sizeOfType(final Class<?> type) {
+    if (!type.isPrimitive()) {
+      return REFERENCE_BYTES;
+    }
+
+    if (type == long.class || type == double.class) {
+      return 8;
+    }
+
+    if (type == int.class || type == float.class) {
+      return 4;
+    }
+
+    if (type == short.class || type == char.class) {
+      return 2;
+    }
+
+    return 1;
+  }
+
+  /**
+   * 按字段及引用遍历对象图，JDK 内部类的字段无法反射访问时，字符串及集合按其布局估算。
+   */
+  private static class SizeEstimator {
+
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Deque<Object> pending = new ArrayDeque<>();
+
+    long sizeOf(final Object root) {
+      long total = 0;
+
+      pending.push(root);
+
+      while (!pending.isEmpty()) {
+        total += shallowSizeOf(pending.pop());
+      }
+
+      return total;
+    }
+
+    private void visit(final Object obj) {
+      if (obj != null && !(obj instanceof Enum<?>) && !(obj instanceof Class<?>) && visited.add(obj)) {
+        pending.push(obj);
+      }
+    }
+
+    private long shallowSizeOf(final Object obj) {
+      final Class<?> type = obj.getClass();
+
+      if (type.isArray()) {
+        final int length = Array.getLength(obj);
+        final Class<?> component = type.getComponentType();
+
+        if (!component.isPrimitive()) {
+          for (int i = 0; i < length; i++) {
+            visit(Array.get(obj, i));
+          }
+        }
+
+        return align(ARRAY_HEADER_BYTES + (long) length * sizeOfType(component));
+      }
+
+      // String：对象本身 24 字节，另加 Latin-1 或 UTF-16 编码的 byte[]
+      if (obj instanceof final String str) {
+        final boolean latin1 = str.chars().allMatch(c -> c < 256);
+
+        return 24 + align(ARRAY_HEADER_BYTES + (long) str.length() * (latin1 ? 1 : 2));
+      }
+
+      // JDK 集合：按每个元素一个引用槽（Map 为一个 Entry）估算
+      if (type.getName().startsWith("java.")) {
+        if (obj instanceof final Collection<?> collection) {
+          collection.forEach(this::visit);
+
+          return align(HEADER_BYTES + 8) + align(ARRAY_HEADER_BYTES + (long) collection.size() * REFERENCE_BYTES);
+        }
+
+        if (obj instanceof final Map<?, ?> map) {
+          map.forEach((k, v) -> {
+            visit(k);
+            visit(v);
+          });
+
+          return align(HEADER_BYTES + 24) + map.size() * align(HEADER_BYTES + 16L);
+        }
+      }
+
+      long size = HEADER_BYTES;
+
+      for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+        for (final Field field : c.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+
+          size += sizeOfType(field.getType());
+
+          if (!field.getType().isPrimitive() && field.trySetAccessible()) {
+            try {
+              visit(field.get(obj));
+            } catch (IllegalAccessException e) {
+              throw new IllegalStateException(e);
+            }
+          }
+        }
+      }
+
+      return align(size);
+    }
+  }
+
+  private record LegacySession(
+    AuthData auth,
+    String accessToken,
+    String refreshToken,
+    long authorityMask,
+    List<GrantedAuthority> authorities
+  ) {}
+}
@@ -0,0 +1,143 @@
+package net.wuxianjie.springbootweb.auth;
+
+import net.wuxianjie.springbootweb.auth.dto.TokenResponse;
+import net.wuxianjie.springbootweb.shared.restapi.ApiException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RefreshCoalescerTest {
+
+  @Test
+  void testConcurrentRefreshesShareOneResult() throws Exception {
+    final RefreshCoalescer coalescer = new RefreshCoalescer(new AuthProps());
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try {
+      final List<Future<TokenResponse>> futures = new ArrayList<>();
+
+      futures.add(executor.submit(() -> coalescer.refresh("r1", () -> {
+        calls.incrementAndGet();
+        started.countDown();
+        await(release);
+
+        return newResponse("a1");
+      })));
+
+      started.await();
+
+      for (int i = 0; i < 3; i++) {
+        futures.add(executor.submit(() -> coalescer.refresh("r1", () -> {
+          calls.incrementAndGet();
+
+          return newResponse("other");
+        })));
+      }
+
+      // 等待其余请求进入等待状态
+      while (coalescer.getStats().coalesced() < 3) {
+        Thread.onSpinWait();
+      }
+
+      release.countDown();
+
+      for (final Future<TokenResponse> future : futures) {
+        assertEquals("a1", future.get().getAccessToken());
+      }
+
+      assertEquals(1, calls.get());
+
+      // 宽限期内再次使用已被替代的 Refresh Token，返回同一结果
+      assertEquals("a1", coalescer.refresh("r1", () -> newResponse("a2")).getAccessToken());
+      assertEquals(1, coalescer.getStats().graceHits());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testFailureIsNotCached() {
+    final RefreshCoalescer coalescer = new RefreshCoalescer(new AuthProps());
+
+    assertThrows(ApiException.class, () -> coalescer.refresh("r1", () -> {
+      throw new ApiException(HttpStatus.UNAUTHORIZED, "Token 已废弃");
+    }));
+
+    assertEquals("a1", coalescer.refresh("r1", () -> newResponse("a1")).getAccessToken());
+  }
+
+  @Test
+  void testInvalidationDropsGraceResult() {
+    final RefreshCoalescer coalescer = new RefreshCoalescer(new AuthProps());
+
+    coalescer.refresh("r1", () -> newResponse("a1"));
+    coalescer.refresh("r2", () -> new RefreshCoalescer.Refreshed(2, 3, newResponse("b1").response()));
+
+    coalescer.invalidateUser(1);
+
+    assertEquals("a2", coalescer.refresh("r1", () -> newResponse("a2")).getAccessToken());
+    assertEquals("b1", coalescer.refresh("r2", () -> newResponse("b2")).getAccessToken());
+
+    coalescer.invalidateRole(3);
+
+    assertEquals("b3", coalescer.refresh("r2", () -> newResponse("b3")).getAccessToken());
+  }
+
+  @Test
+  void testWaitTimesOut() throws Exception {
+    final AuthProps authProps = new AuthProps();
+    authProps.getRefresh().setWaitTimeoutMs(50);
+
+    final RefreshCoalescer coalescer = new RefreshCoalescer(authProps);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      final Future<TokenResponse> first = executor.submit(() -> coalescer.refresh("r1", () -> {
+        started.countDown();
+        await(release);
+
+        return newResponse("a1");
+      }));
+
+      started.await();
+
+      final ApiException e = assertThrows(ApiException.class, () -> coalescer.refresh("r1", () -> newResponse("a2")));
+      assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+
+      release.countDown();
+      assertEquals("a1", first.get().getAccessToken());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static RefreshCoalescer.Refreshed newResponse(final String accessToken) {
+    return new RefreshCoalescer.Refreshed(
+      1,
+      2,
+      new TokenResponse(accessToken, "r", AuthProps.TOKEN_EXP_SEC, "wxj", "吴仙杰", List.of())
+    );
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
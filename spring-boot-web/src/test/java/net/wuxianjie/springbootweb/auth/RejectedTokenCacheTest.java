@@ -0,0 +1,47 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.core.lang.Console;
+import cn.hutool.crypto.digest.DigestUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RejectedTokenCacheTest {
+
+  private static final int TOKENS = 10_000;
+
+  @Test
+  void testPutAndGet() {
+    final RejectedTokenCache cache = new RejectedTokenCache();
+
+    for (int i = 0; i < TOKENS; i++) {
+      cache.put("rejected." + i, AuthResult.Failure.REVOKED);
+    }
+
+    for (int i = 0; i < TOKENS; i++) {
+      assertEquals(AuthResult.Failure.REVOKED, cache.get("rejected." + i));
+    }
+
+    // 布隆过滤器误判时会再查询 LRU 缓存确认，故正常 Token 一定不会被拒绝
+    for (int i = 0; i < TOKENS; i++) {
+      assertNull(cache.get("valid." + i));
+    }
+
+    final RejectedTokenCache.Stats stats = cache.getStats();
+    Console.log(stats);
+
+    assertEquals(TOKENS, stats.cacheSize());
+    assertEquals(TOKENS, stats.hits());
+    assertTrue(stats.bloomObservedFpp() < 0.01);
+  }
+
+  @Test
+  void testPutDigestMatchesToken() {
+    final RejectedTokenCache cache = new RejectedTokenCache();
+
+    cache.putDigest(DigestUtil.sha256("superseded"), AuthResult.Failure.REVOKED);
+
+    assertEquals(AuthResult.Failure.REVOKED, cache.get("superseded"));
+    assertNull(cache.get("current"));
+  }
+}
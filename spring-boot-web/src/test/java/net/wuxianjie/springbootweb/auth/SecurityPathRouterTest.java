@@ -0,0 +1,90 @@
+package net.wuxianjie.springbootweb.auth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityPathRouterTest {
+
+  private static final List<String> PUBLIC_PATTERNS = List.of(
+    "/api/v1/token/**",
+    "/api/v1/version",
+    "/api/v1/test/**",
+    "/api/v1/*/public"
+  );
+
+  private final SecurityPathRouter router = SecurityPathRouter.builder()
+    .permitAll(PUBLIC_PATTERNS.toArray(String[]::new))
+    .authenticated("/api/**")
+    .build();
+
+  @Test
+  void testRoutes() {
+    assertEquals(SecurityPathRouter.Route.PUBLIC, router.route("/api/v1/token"));
+    assertEquals(SecurityPathRouter.Route.PUBLIC, router.route("/api/v1/token/abc"));
+    assertEquals(SecurityPathRouter.Route.PUBLIC, router.route("/api/v1/version"));
+    assertEquals(SecurityPathRouter.Route.PUBLIC, router.route("/api/v1/user/public"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, router.route("/api/v1/version/"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, router.route("/api/v1/versions"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, router.route("/api/v1/user"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, router.route("/api"));
+    assertEquals(SecurityPathRouter.Route.OUTSIDE, router.route("/"));
+    assertEquals(SecurityPathRouter.Route.OUTSIDE, router.route("/index.html"));
+    assertEquals(SecurityPathRouter.Route.OUTSIDE, router.route("/apis/v1"));
+  }
+
+  @Test
+  void testAgreesWithOrderedAntMatching() {
+    final AntPathMatcher matcher = new AntPathMatcher();
+    final List<String> paths = List.of(
+      "/api/v1/token", "/api/v1/token/x/y", "/api/v1/version", "/api/v1/test", "/api/v1/test/a",
+      "/api/v1/user/public", "/api/v1/user/public/x", "/api/v1/role", "/api", "/api/", "/static/a.js", "/"
+    );
+
+    for (final String path : paths) {
+      final SecurityPathRouter.Route expected;
+
+      if (PUBLIC_PATTERNS.stream().anyMatch(p -> matcher.match(p, path))) {
+        expected = SecurityPathRouter.Route.PUBLIC;
+      } else if (matcher.match("/api/**", path)) {
+        expected = SecurityPathRouter.Route.AUTHENTICATED;
+      } else {
+        expected = SecurityPathRouter.Route.OUTSIDE;
+      }
+
+      assertEquals(expected, router.route(path), path);
+    }
+  }
+
+  @Test
+  void testRoutesDecodedAndNormalizedRequestPath() {
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, route("", "/%61pi/v1/self"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, route("", "/api/v1/%61uth-tree"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, route("", "/api;jsessionid=1/v1/self"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, route("", "/api/v1/self;x=y"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, route("", "/static/../api/v1/self"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, route("", "/static/%2e%2e/api/v1/self"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, route("", "/./api//v1/self"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, route("", "/../api/v1/self"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, route("/ctx", "/ctx/%61pi/v1/self"));
+    assertEquals(SecurityPathRouter.Route.AUTHENTICATED, route("", "/api/v1/token/../../v1/self"));
+    assertEquals(SecurityPathRouter.Route.PUBLIC, route("", "/api/v1/%74oken"));
+    assertEquals(SecurityPathRouter.Route.OUTSIDE, route("", "/api/../index.html"));
+  }
+
+  @Test
+  void testRejectsInnerMultiWildcard() {
+    assertThrows(IllegalArgumentException.class, () -> SecurityPathRouter.builder().permitAll("/api/**/x"));
+  }
+
+  private SecurityPathRouter.Route route(final String contextPath, final String requestUri) {
+    final MockHttpServletRequest req = new MockHttpServletRequest("GET", requestUri);
+    req.setContextPath(contextPath);
+
+    return router.route(req);
+  }
+}
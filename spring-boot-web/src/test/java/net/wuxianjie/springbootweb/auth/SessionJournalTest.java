@@ -0,0 +1,103 @@
+package net.wuxianjie.springbootweb.auth;
+
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionJournalTest {
+
+  private static final long INITIAL_SIZE = 256;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void testReplayAfterReopen() throws IOException {
+    final Path path = dir.resolve("sessions.journal");
+    final long now = System.currentTimeMillis();
+
+    try (final SessionJournal journal = new SessionJournal(path, INITIAL_SIZE)) {
+      // 超过初始映射大小，触发扩容
+      for (int i = 0; i < 20; i++) {
+        journal.appendPut("user" + i, session(i, "v1"), now + 60_000);
+      }
+
+      journal.appendPut("user1", session(1, "v2"), now + 60_000);
+      journal.appendRemove("user2");
+      journal.appendPut("expired", session(99, "v1"), now - 1);
+    }
+
+    try (final SessionJournal journal = new SessionJournal(path, INITIAL_SIZE)) {
+      final Map<String, SessionJournal.Replayed> sessions = journal.replay(now);
+
+      assertEquals(19, sessions.size());
+      assertEquals("v2", sessions.get("user1").session().getNickname());
+      assertFalse(sessions.containsKey("user2"));
+      assertFalse(sessions.containsKey("expired"));
+      assertArrayEquals(new byte[]{1, 2, 3}, sessions.get("user3").session().getAccessTokenDigest());
+    }
+  }
+
+  @Test
+  void testCompactThenAppend() throws IOException {
+    final Path path = dir.resolve("sessions.journal");
+    final long now = System.currentTimeMillis();
+
+    try (final SessionJournal journal = new SessionJournal(path, INITIAL_SIZE)) {
+      for (int i = 0; i < 20; i++) {
+        journal.appendPut("user" + i, session(i, "v1"), now + 60_000);
+      }
+
+      journal.compact(Map.of("user5", new SessionJournal.Replayed(session(5, "v1"), now + 60_000)));
+
+      // 压缩后继续追加，记录应写入新日志
+      journal.appendPut("user6", session(6, "v3"), now + 60_000);
+    }
+
+    assertFalse(Files.exists(dir.resolve("sessions.journal.tmp")));
+
+    try (final SessionJournal journal = new SessionJournal(path, INITIAL_SIZE)) {
+      final Map<String, SessionJournal.Replayed> sessions = journal.replay(now);
+
+      assertEquals(Map.of("user5", "v1", "user6", "v3"), Map.of(
+        "user5", sessions.get("user5").session().getNickname(),
+        "user6", sessions.get("user6").session().getNickname()
+      ));
+      assertEquals(2, sessions.size());
+    }
+  }
+
+  @Test
+  void testFailedCompactKeepsJournalWritable() throws IOException {
+    final Path path = dir.resolve("sessions.journal");
+    final long now = System.currentTimeMillis();
+
+    // 以非空目录占据临时文件路径，使写入临时文件失败
+    Files.createDirectories(dir.resolve("sessions.journal.tmp").resolve("blocker"));
+
+    try (final SessionJournal journal = new SessionJournal(path, INITIAL_SIZE)) {
+      journal.appendPut("user1", session(1, "v1"), now + 60_000);
+
+      assertThrows(IOException.class, () -> journal.compact(Map.of()));
+
+      journal.appendPut("user2", session(2, "v1"), now + 60_000);
+      journal.appendRemove("user1");
+    }
+
+    try (final SessionJournal journal = new SessionJournal(path, INITIAL_SIZE)) {
+      assertEquals(Set.of("user2"), journal.replay(now).keySet());
+    }
+  }
+
+  private static LoginSession session(final long userId, final String nickname) {
+    return new LoginSession(userId, "user" + userId, nickname, AccountStatus.ENABLED, 2, "user", new byte[]{1, 2, 3}, null);
+  }
+}
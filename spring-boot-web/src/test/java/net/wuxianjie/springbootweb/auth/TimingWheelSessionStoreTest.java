@@ -0,0 +1,80 @@
+package net.wuxianjie.springbootweb.auth;
+
+import net.wuxianjie.springbootweb.auth.dto.AuthData;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelSessionStoreTest {
+
+  private static final int THREADS = 4;
+  private static final int ROUNDS = 2_000;
+
+  @Test
+  void testRemoveByUserIdAfterConcurrentPuts() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    try (final TimingWheelSessionStore store = new TimingWheelSessionStore(TimeUnit.MINUTES.toMillis(30), false)) {
+      for (int round = 0; round < ROUNDS; round++) {
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // 同一用户并发登录，索引须始终指向最终留在存储中的会话
+        for (int i = 0; i < THREADS; i++) {
+          futures.add(executor.submit(() -> {
+            barrier.await();
+            store.put("wxj", session());
+
+            return null;
+          }));
+        }
+
+        for (final Future<?> future : futures) {
+          future.get();
+        }
+
+        store.removeByUserId(1);
+
+        assertTrue(store.get("wxj").isEmpty(), "round " + round);
+
+        final int[] visited = {0};
+        store.forEachByRoleId(2, (username, session, remainingMs) -> visited[0]++);
+        assertEquals(0, visited[0]);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testUpdateByUserIdReplacesIndexedSession() {
+    try (final TimingWheelSessionStore store = new TimingWheelSessionStore(TimeUnit.MINUTES.toMillis(30), false)) {
+      store.put("wxj", session());
+      store.updateByUserId(1, session -> session.withNickname("新昵称"));
+
+      assertEquals("新昵称", store.get("wxj").orElseThrow().getNickname());
+
+      store.updateByRoleId(2, session -> session.withNickname("角色内"));
+      assertEquals("角色内", store.get("wxj").orElseThrow().getNickname());
+
+      store.removeByUserId(1);
+      assertTrue(store.get("wxj").isEmpty());
+    }
+  }
+
+  private static LoginSession session() {
+    final AuthData auth = new AuthData(1, "wxj", "hash", "吴仙杰", AccountStatus.ENABLED, "user");
+    auth.setRoleId(2);
+
+    return LoginSession.of(auth, "access", "refresh");
+  }
+}
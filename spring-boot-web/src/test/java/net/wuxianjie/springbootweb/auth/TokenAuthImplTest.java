@@ -0,0 +1,115 @@
+package net.wuxianjie.springbootweb.auth;
+
+import net.wuxianjie.springbootweb.auth.dto.AuthData;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import net.wuxianjie.springbootweb.auth.dto.TokenPayload;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenAuthImplTest {
+
+  private final AuthProps authProps = new AuthProps();
+  private final TokenService tokenService;
+
+  private final AtomicInteger reloads = new AtomicInteger();
+
+  /**
+   * 本地缓存中的会话及共享存储中的会话。
+   */
+  private LoginSession local;
+  private LoginSession shared;
+
+  public TokenAuthImplTest() {
+    authProps.setTokenKey("test#token_key");
+
+    this.tokenService = new TokenService(authProps);
+  }
+
+  @Test
+  void testMismatchReloadsBeforeRejecting() {
+    final String oldToken = token(0);
+    final String newToken = token(1);
+
+    // 其他节点刚刷新 Token，本节点的近端缓存仍是旧会话
+    local = session(oldToken);
+    shared = session(newToken);
+
+    final TokenAuthImpl tokenAuth = new TokenAuthImpl(tokenService, store(), TokenRevocationList.disabled(), authProps);
+
+    assertInstanceOf(AuthResult.Success.class, tokenAuth.authenticate(newToken));
+    assertEquals(1, reloads.get());
+
+    // 共享存储中也已替代时才判定为已废弃
+    assertEquals(AuthResult.Failure.REVOKED, tokenAuth.authenticate(oldToken));
+    assertEquals(2, reloads.get());
+  }
+
+  // 以不同的过期时间区分两个 Token
+  private String token(final int extraSec) {
+    return tokenService.createToken(new TokenPayload(
+      "wxj",
+      AuthProps.TOKEN_TYPE_ACCESS,
+      AuthProps.TOKEN_ISSUER,
+      System.currentTimeMillis() / 1000 + AuthProps.TOKEN_EXP_SEC + extraSec
+    ));
+  }
+
+  private static LoginSession session(final String accessToken) {
+    final AuthData auth = new AuthData(1, "wxj", "hash", "吴仙杰", AccountStatus.ENABLED, "user");
+
+    return LoginSession.of(auth, accessToken, null);
+  }
+
+  private SessionStore store() {
+    return new SessionStore() {
+
+      @Override
+      public Optional<LoginSession> get(final String username) {
+        return Optional.ofNullable(local);
+      }
+
+      @Override
+      public Optional<LoginSession> reload(final String username) {
+        reloads.incrementAndGet();
+        local = shared;
+
+        return Optional.ofNullable(shared);
+      }
+
+      @Override
+      public void put(final String username, final LoginSession session) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void remove(final String username) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void removeByUserId(final long userId) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void updateByUserId(final long userId, final UnaryOperator<LoginSession> patch) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void updateByRoleId(final long roleId, final UnaryOperator<LoginSession> patch) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Stats getStats() {
+        return new Stats(0, 0, 0, 0);
+      }
+    };
+  }
+}
@@ -0,0 +1,186 @@
+package net.wuxianjie.springbootweb.auth;
+
+import cn.hutool.core.lang.Console;
+import cn.hutool.jwt.JWT;
+import cn.hutool.jwt.JWTHeader;
+import cn.hutool.jwt.JWTPayload;
+import cn.hutool.jwt.JWTUtil;
+import cn.hutool.jwt.JWTValidator;
+import cn.hutool.jwt.signers.JWTSignerUtil;
+import net.wuxianjie.springbootweb.auth.dto.TokenPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenServiceTest {
+
+  private static final String TOKEN_KEY = "test#token_key";
+
+  private static final int WARMUP_OPS = 20_000;
+  private static final int MEASURE_OPS = 50_000;
+
+  private AuthProps authProps;
+  private TokenService tokenService;
+  private String token;
+
+  @BeforeEach
+  void setUp() {
+    authProps = new AuthProps();
+    authProps.setTokenKey(TOKEN_KEY);
+
+    tokenService = new TokenService(authProps);
+
+    token = tokenService.createToken(new TokenPayload(
+      "wxj",
+      AuthProps.TOKEN_TYPE_ACCESS,
+      AuthProps.TOKEN_ISSUER,
+      System.currentTimeMillis() / 1000 + AuthProps.TOKEN_EXP_SEC
+    ));
+  }
+
+  @Test
+  void testVerify() {
+    final TokenPayload payload = tokenService.verify(token).orElseThrow();
+
+    assertEquals("wxj", payload.getUsername());
+    assertEquals(AuthProps.TOKEN_TYPE_ACCESS, payload.getType());
+    assertEquals(AuthProps.TOKEN_ISSUER, payload.getIss());
+  }
+
+  @Test
+  void testVerifyStatelessClaims() {
+    final long authorityBits = AuthorityLattice.bitsOf(List.of("user", "role_view"));
+    final TokenPayload.Claims claims = new TokenPayload.Claims(
+      1,
+      AccountStatus.ENABLED,
+      2,
+      authorityBits,
+      System.currentTimeMillis()
+    );
+
+    final String statelessToken = tokenService.createToken(new TokenPayload(
+      "wxj",
+      AuthProps.TOKEN_TYPE_ACCESS,
+      AuthProps.TOKEN_ISSUER,
+      System.currentTimeMillis() / 1000 + AuthProps.TOKEN_EXP_SEC,
+      claims
+    ));
+
+    assertEquals(claims, tokenService.verify(statelessToken).orElseThrow().getClaims());
+    assertEquals(List.of("user", "role_view"), AuthorityLattice.codesOf(authorityBits));
+
+    // 会话模式的 Token 不含身份验证数据
+    assertNull(tokenService.verify(token).orElseThrow().getClaims());
+  }
+
+  @Test
+  void testVerifyRejectsIllegalToken() {
+    // 篡改签名
+    assertTrue(tokenService.verify(token.substring(0, token.length() - 2) + "xx").isEmpty());
+
+    // 非 JWT 格式
+    assertTrue(tokenService.verify("not-a-jwt").isEmpty());
+
+    // 已过期
+    final String expired = tokenService.createToken(new TokenPayload(
+      "wxj",
+      AuthProps.TOKEN_TYPE_ACCESS,
+      AuthProps.TOKEN_ISSUER,
+      System.currentTimeMillis() / 1000 - 1
+    ));
+    assertTrue(tokenService.verify(expired).isEmpty());
+
+    // 缺少必要载荷
+    final String missingType = JWT.create()
+      .setPayload(AuthProps.JWT_PAYLOAD_USERNAME, "wxj")
+      .setPayload(JWTPayload.EXPIRES_AT, System.currentTimeMillis() / 1000 + 60)
+      .sign(JWTSignerUtil.hs256(TOKEN_KEY.getBytes()));
+    assertTrue(tokenService.verify(missingType).isEmpty());
+  }
+
+  @Test
+  void testKeyRotation() {
+    // 新密钥设为签名密钥，旧密钥仅用于验签
+    final AuthProps rotated = new AuthProps();
+    rotated.setTokenKey("new#token_key");
+    rotated.setTokenKeyId("k2");
+    rotated.setVerificationKeys(Map.of("k1", TOKEN_KEY));
+
+    final TokenService rotatedService = new TokenService(rotated);
+
+    assertTrue(rotatedService.verify(token).isPresent());
+
+    final String newToken = rotatedService.createToken(new TokenPayload(
+      "wxj",
+      AuthProps.TOKEN_TYPE_ACCESS,
+      AuthProps.TOKEN_ISSUER,
+      System.currentTimeMillis() / 1000 + AuthProps.TOKEN_EXP_SEC
+    ));
+
+    assertEquals("k2", JWT.of(newToken).getHeader(JWTHeader.KEY_ID));
+    assertTrue(rotatedService.verify(newToken).isPresent());
+    assertTrue(tokenService.verify(newToken).isEmpty());
+
+    // 启用密钥环前签发的 Token 不含 `kid`，依次尝试所有密钥
+    final String legacy = JWT.create()
+      .setPayload(AuthProps.JWT_PAYLOAD_USERNAME, "wxj")
+      .setPayload(AuthProps.JWT_PAYLOAD_TYPE, AuthProps.TOKEN_TYPE_ACCESS)
+      .setPayload(JWTPayload.ISSUER, AuthProps.TOKEN_ISSUER)
+      .setPayload(JWTPayload.EXPIRES_AT, System.currentTimeMillis() / 1000 + 60)
+      .sign(JWTSignerUtil.hs256(TOKEN_KEY.getBytes()));
+    assertTrue(rotatedService.verify(legacy).isPresent());
+
+    // 移除旧密钥后，旧 Token 不再可用
+    rotated.setVerificationKeys(Map.of());
+    assertTrue(new TokenService(rotated).verify(token).isEmpty());
+  }
+
+  /**
+   * 对比原先“先验签再解析”的两步流程与单次验证流程的耗时。
+   *
+   * <p>耗时较长，默认不运行，见 {@code pom.xml} 中的 {@code test.excluded-groups}。
+   */
+  @Tag("perf")
+  @Test
+  void benchmarkVerifyAgainstTwoStepPath() {
+    for (int i = 0; i < WARMUP_OPS; i++) {
+      twoStepVerify(token);
+      tokenService.verify(token);
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURE_OPS; i++) {
+      assertNotNull(twoStepVerify(token));
+    }
+    final long twoStepNs = (System.nanoTime() - start) / MEASURE_OPS;
+
+    start = System.nanoTime();
+    for (int i = 0; i < MEASURE_OPS; i++) {
+      assertTrue(tokenService.verify(token).isPresent());
+    }
+    final long singlePassNs = (System.nanoTime() - start) / MEASURE_OPS;
+
+    Console.log("两步验证: {} ns/op\n单次验证: {} ns/op", twoStepNs, singlePassNs);
+  }
+
+  // 原 `TokenService.isLegal` 加 `TokenService.parse` 的流程
+  private TokenPayload twoStepVerify(final String token) {
+    JWTValidator.of(token)
+      .validateAlgorithm(JWTSignerUtil.hs256(authProps.getTokenKey().getBytes()))
+      .validateDate();
+
+    final JWT jwt = JWTUtil.parseToken(token);
+
+    return new TokenPayload(
+      jwt.getPayload(AuthProps.JWT_PAYLOAD_USERNAME).toString(),
+      jwt.getPayload(AuthProps.JWT_PAYLOAD_TYPE).toString(),
+      jwt.getPayload(JWTPayload.ISSUER).toString(),
+      Long.parseLong(jwt.getPayload(JWTPayload.EXPIRES_AT).toString())
+    );
+  }
+}
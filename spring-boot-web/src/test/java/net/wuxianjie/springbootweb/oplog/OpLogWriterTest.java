@@ -0,0 +1,82 @@
+package net.wuxianjie.springbootweb.oplog;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpLogWriterTest {
+
+  private final List<String> written = new CopyOnWriteArrayList<>();
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @Test
+  void testWritesOnCallerWhenFullAndDrainsOnClose() {
+    final OpLogProps props = new OpLogProps();
+    props.setQueueCapacity(2);
+    props.setBatchSize(1);
+
+    final OpLogWriter writer = new OpLogWriter(blockingMapper(), props);
+
+    // 第 1 条被后台线程取出后阻塞在写入中，第 2、3 条占满队列，第 4 条由请求线程直接写入
+    writer.submit(opLog("1"));
+
+    while (writer.getStats().queued() > 0) {
+      Thread.onSpinWait();
+    }
+
+    writer.submit(opLog("2"));
+    writer.submit(opLog("3"));
+    writer.submit(opLog("4"));
+
+    assertEquals(1, writer.getStats().syncFallbacks());
+    assertEquals(2, writer.getStats().queued());
+    assertEquals(List.of("4"), written);
+
+    release.countDown();
+    writer.close();
+
+    // 关闭后的提交直接写入
+    writer.submit(opLog("5"));
+
+    assertEquals(List.of("4", "1", "2", "3", "5"), written);
+    assertEquals(5, writer.getStats().written());
+    assertEquals(0, writer.getStats().queued());
+  }
+
+  private OpLogMapper blockingMapper() {
+    return (OpLogMapper) Proxy.newProxyInstance(
+      OpLogMapper.class.getClassLoader(),
+      new Class<?>[]{OpLogMapper.class},
+      (proxy, method, args) -> switch (method.getName()) {
+        case "insert" -> {
+          written.add(((OpLog) args[0]).getMessage());
+
+          yield 1;
+        }
+        case "insertBatch" -> {
+          release.await();
+
+          @SuppressWarnings("unchecked") final List<OpLog> opLogs = (List<OpLog>) args[0];
+
+          opLogs.forEach(o -> written.add(o.getMessage()));
+
+          yield opLogs.size();
+        }
+        default -> throw new UnsupportedOperationException(method.getName());
+      }
+    );
+  }
+
+  private static OpLog opLog(final String message) {
+    final OpLog opLog = new OpLog();
+    opLog.setMessage(message);
+
+    return opLog;
+  }
+}
@@ -0,0 +1,182 @@
+package net.wuxianjie.springbootweb.role;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * 以动态代理实现的最小 JDBC 数据源，仅用于在无数据库的环境下驱动 MyBatis 及 Spring 事务。
+ *
+ * <p>查询结果由 {@code queries} 根据 SQL 及参数给出，其余语句一律视为更新成功，所有 JDBC 调用按顺序记录在 {@link #log} 中。
+ */
+class FakeDataSource {
+
+  final List<String> log = Collections.synchronizedList(new ArrayList<>());
+
+  private final BiFunction<String, List<Object>, List<Map<String, Object>>> queries;
+  private final DataSource dataSource;
+
+  /**
+   * @param queries 根据 SQL 及参数返回查询结果，返回 {@code null} 代表该语句不是查询
+   */
+  FakeDataSource(final BiFunction<String, List<Object>, List<Map<String, Object>>> queries) {
+    this.queries = queries;
+    this.dataSource = proxy(DataSource.class, (p, m, args) -> switch (m.getName()) {
+      case "getConnection" -> connection();
+      default -> unsupported(m.getName());
+    });
+  }
+
+  DataSource dataSource() {
+    return dataSource;
+  }
+
+  private Connection connection() {
+    final boolean[] autoCommit = {true};
+
+    log.add("open");
+
+    final DatabaseMetaData metaData = proxy(DatabaseMetaData.class, (p, m, args) -> switch (m.getName()) {
+      case "supportsMultipleResultSets", "supportsBatchUpdates" -> false;
+      default -> unsupported(m.getName());
+    });
+
+    return proxy(Connection.class, (conn, m, args) -> switch (m.getName()) {
+      case "getAutoCommit" -> autoCommit[0];
+      case "setAutoCommit" -> {
+        autoCommit[0] = (Boolean) args[0];
+        log.add("autoCommit=" + autoCommit[0]);
+        yield null;
+      }
+      case "commit", "rollback", "close" -> {
+        log.add(m.getName());
+        yield null;
+      }
+      case "isReadOnly", "isClosed" -> false;
+      case "getMetaData" -> metaData;
+      case "prepareStatement" -> statement((Connection) conn, normalize((String) args[0]), autoCommit[0]);
+      default -> unsupported(m.getName());
+    });
+  }
+
+  private PreparedStatement statement(final Connection conn, final String sql, final boolean autoCommit) {
+    final List<Object> params = new ArrayList<>();
+    final List<List<Object>> batch = new ArrayList<>();
+    final ResultSet[] resultSet = {null};
+
+    return proxy(PreparedStatement.class, (p, m, args) -> {
+      final String name = m.getName();
+
+      if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+        while (params.size() < index) {
+          params.add(null);
+        }
+
+        params.set(index - 1, name.equals("setNull") ? null : args[1]);
+
+        return null;
+      }
+
+      return switch (name) {
+        case "execute" -> {
+          final List<Map<String, Object>> rows = queries.apply(sql, List.copyOf(params));
+
+          log.add((autoCommit ? "" : "tx:") + (rows == null ? "update " : "query ") + sql);
+          resultSet[0] = rows == null ? null : resultSet(rows);
+
+          yield rows != null;
+        }
+        case "addBatch" -> {
+          batch.add(List.copyOf(params));
+          yield null;
+        }
+        case "executeBatch" -> {
+          log.add((autoCommit ? "" : "tx:") + "batch(" + batch.size() + ") " + sql);
+          final int[] counts = new int[batch.size()];
+          Arrays.fill(counts, 1);
+          batch.clear();
+          yield counts;
+        }
+        case "getResultSet" -> resultSet[0];
+        case "getUpdateCount" -> resultSet[0] == null ? 1 : -1;
+        case "getMoreResults" -> false;
+        case "getQueryTimeout" -> 0;
+        case "getConnection" -> conn;
+        case "close", "clearParameters", "clearBatch", "setQueryTimeout", "setFetchSize" -> null;
+        default -> unsupported(name);
+      };
+    });
+  }
+
+  private static ResultSet resultSet(final List<Map<String, Object>> rows) {
+    final List<String> columns = rows.isEmpty() ? List.of() : List.copyOf(rows.get(0).keySet());
+    final int[] cursor = {-1};
+    final Object[] last = {null};
+
+    final ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (p, m, args) -> switch (m.getName()) {
+      case "getColumnCount" -> columns.size();
+      case "getColumnLabel", "getColumnName" -> columns.get((Integer) args[0] - 1);
+      case "getColumnType" -> Types.OTHER;
+      case "getColumnClassName" -> Object.class.getName();
+      default -> unsupported(m.getName());
+    });
+
+    return proxy(ResultSet.class, (p, m, args) -> {
+      final String name = m.getName();
+
+      switch (name) {
+        case "next":
+          return ++cursor[0] < rows.size();
+        case "getMetaData":
+          return metaData;
+        case "getType":
+          return ResultSet.TYPE_FORWARD_ONLY;
+        case "wasNull":
+          return last[0] == null;
+        case "close":
+          return null;
+        case "isClosed":
+          return false;
+        default:
+          break;
+      }
+
+      if (!name.startsWith("get") || args == null || args.length != 1) {
+        return unsupported(name);
+      }
+
+      final String column = args[0] instanceof Integer index ? columns.get(index - 1) : (String) args[0];
+      final Object value = rows.get(cursor[0]).get(column);
+      last[0] = value;
+
+      return switch (name) {
+        case "getLong" -> value == null ? 0L : ((Number) value).longValue();
+        case "getInt" -> value == null ? 0 : ((Number) value).intValue();
+        case "getBoolean" -> value != null && (value instanceof Boolean b ? b : ((Number) value).intValue() != 0);
+        case "getString" -> value == null ? null : value.toString();
+        default -> value;
+      };
+    });
+  }
+
+  private static String normalize(final String sql) {
+    return sql.replaceAll("\\s+", " ").trim();
+  }
+
+  private static Object unsupported(final String method) {
+    throw new UnsupportedOperationException(method);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, m, args) -> switch (m.getName()) {
+      case "toString" -> "Fake" + type.getSimpleName();
+      case "hashCode" -> System.identityHashCode(p);
+      case "equals" -> p == args[0];
+      default -> handler.invoke(p, m, args);
+    });
+  }
+}
@@ -0,0 +1,90 @@
+package net.wuxianjie.springbootweb.role;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.wuxianjie.springbootweb.auth.AuthProps;
+import net.wuxianjie.springbootweb.role.dto.RoleBaseInfo;
+import net.wuxianjie.springbootweb.role.dto.RoleItemResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoleListCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private RoleTreeCache treeCache;
+  private RoleUserCounter counter;
+  private RoleListCache listCache;
+
+  @BeforeEach
+  void setUp() {
+    final RoleMapper mapper = (RoleMapper) Proxy.newProxyInstance(
+      RoleMapper.class.getClassLoader(),
+      new Class<?>[]{RoleMapper.class},
+      (proxy, method, args) -> switch (method.getName()) {
+        case "selectAllBase" -> List.of(
+          new RoleBaseInfo(1, "r1", "root", null, null, "1", null, null),
+          new RoleBaseInfo(2, "r2", "user", 1L, "r1", "1.2", null, null)
+        );
+        case "selectUserCountGroupByRoleId" -> List.of(new RoleMapper.UserCount(2, 3));
+        default -> throw new UnsupportedOperationException(method.getName());
+      }
+    );
+
+    treeCache = new RoleTreeCache(mapper, new AuthProps());
+    counter = new RoleUserCounter(mapper, treeCache, new AuthProps());
+    listCache = new RoleListCache(treeCache, counter, new ObjectMapper());
+  }
+
+  @Test
+  void testServesCachedBytesUntilVersionChanges() {
+    final RoleListCache.Entry first = listCache.get(1, loader(1));
+    final RoleListCache.Entry second = listCache.get(1, loader(1));
+
+    assertSame(first, second);
+    assertEquals(1, loads.get());
+
+    counter.onMembershipChanged(new RoleMembershipChangedEvent(null, 2L));
+
+    final RoleListCache.Entry third = listCache.get(1, loader(1));
+
+    assertEquals(2, loads.get());
+    assertNotEquals(first.getEtag(), third.getEtag());
+
+    // 重建快照但内容不变时，ETag 保持不变
+    treeCache.onRoleTreeChanged(new RoleTreeChangedEvent());
+
+    assertEquals(third.getEtag(), listCache.get(1, loader(1)).getEtag());
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void testMatchesIfNoneMatch() {
+    final RoleListCache.Entry entry = listCache.get(2, loader(2));
+    final String etag = entry.getEtag();
+
+    assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+    assertTrue(entry.matches(etag));
+    assertTrue(entry.matches("\"other\", W/" + etag));
+    assertTrue(entry.matches("*"));
+    assertFalse(entry.matches("\"other\""));
+    assertFalse(entry.matches(null));
+  }
+
+  private Supplier<List<RoleItemResponse>> loader(final long roleId) {
+    return () -> {
+      loads.incrementAndGet();
+
+      final List<RoleItemResponse> roles = treeCache.get().getSelfAndSubordinates(roleId);
+      roles.forEach(role -> role.setSubtreeUserCount(counter.get(role.getId()).subtree()));
+
+      return roles;
+    };
+  }
+}
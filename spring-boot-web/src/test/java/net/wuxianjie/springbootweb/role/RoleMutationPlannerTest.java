@@ -0,0 +1,177 @@
+package net.wuxianjie.springbootweb.role;
+
+import net.wuxianjie.springbootweb.auth.AccountStatus;
+import net.wuxianjie.springbootweb.auth.AuthProps;
+import net.wuxianjie.springbootweb.auth.dto.LoginSession;
+import net.wuxianjie.springbootweb.role.dto.UpdateRoleRequest;
+import net.wuxianjie.springbootweb.shared.restapi.ApiException;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 以真实的 MyBatis 及 Spring 事务驱动 {@link RoleMutationPlanner}，数据库由 {@link FakeDataSource} 模拟。
+ */
+public class RoleMutationPlannerTest {
+
+  /**
+   * 数据库中各角色的全路径。
+   */
+  private final Map<Long, String> fullPaths = new HashMap<>(Map.of(1L, "1", 2L, "1.2", 3L, "1.3", 4L, "1.2.4"));
+
+  private final List<Object> events = new ArrayList<>();
+
+  private boolean nameExists;
+  private FakeDataSource db;
+  private RoleMutationPlanner planner;
+  private RoleService roleService;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    db = new FakeDataSource(this::query);
+
+    final SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
+    factoryBean.setDataSource(db.dataSource());
+    factoryBean.setMapperLocations(new ClassPathResource("net/wuxianjie/springbootweb/role/RoleMapper.xml"));
+
+    final SqlSessionFactory factory = factoryBean.getObject();
+    final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(db.dataSource());
+    final RoleMapper roleMapper = new SqlSessionTemplate(factory).getMapper(RoleMapper.class);
+
+    // 冷启动：角色树快照尚未加载
+    final RoleTreeCache treeCache = new RoleTreeCache(roleMapper, new AuthProps());
+    planner = new RoleMutationPlanner(factory, transactionManager);
+    roleService = new RoleService(roleMapper, treeCache, null, planner, null, events::add);
+
+    final LoginSession session = new LoginSession(1, "wxj", "吴仙杰", AccountStatus.ENABLED, 1, "root", null, null);
+    SecurityContextHolder.getContext().setAuthentication(
+      new UsernamePasswordAuthenticationToken(session, null, List.of())
+    );
+  }
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void testColdStartMoveRunsInOwnBatchTransaction() {
+    roleService.updateRole(2, new UpdateRoleRequest("r2", null, 3L, null));
+
+    // 快照在事务外加载，事务中先按 id 升序加锁，再批量发送写语句，最后提交
+    final List<String> log = db.log;
+    final int begin = log.indexOf("autoCommit=false");
+
+    assertTrue(begin > 0, log.toString());
+    assertTrue(log.subList(0, begin).stream().anyMatch(s -> s.startsWith("query select id, name")), log.toString());
+    final List<String> tx = log.subList(begin + 1, log.indexOf("commit"));
+
+    assertEquals(6, tx.size(), log.toString());
+    assertEquals("tx:query select full_path from role where id = ? for update", tx.get(0));
+    assertEquals("tx:query select full_path from role where id = ? for update", tx.get(1));
+    assertTrue(tx.get(2).startsWith("tx:batch(1) update role SET"), tx.get(2));
+    assertTrue(tx.get(3).startsWith("tx:batch(1) update role r join role_closure c"), tx.get(3));
+    assertTrue(tx.get(4).startsWith("tx:batch(1) delete c from role_closure c"), tx.get(4));
+    assertTrue(tx.get(5).startsWith("tx:batch(1) insert into role_closure"), tx.get(5));
+    assertEquals(1, log.stream().filter("commit"::equals).count(), log.toString());
+    assertFalse(log.contains("rollback"));
+
+    final RoleMutationPlanner.Stats stats = planner.getStats();
+
+    assertEquals(1, stats.mutations());
+    assertEquals(4, stats.statements());
+    assertEquals(4, stats.statementsPerMutation());
+    assertEquals(0, stats.conflicts());
+    assertTrue(events.contains(new RoleTreeChangedEvent()));
+  }
+
+  @Test
+  void testStaleParentIsRejectedAndRolledBack() {
+    // 快照加载后，父角色在其他节点被移动
+    roleService.getRoleDetail(2);
+    fullPaths.put(3L, "1.2.4.3");
+
+    final ApiException e = assertThrows(ApiException.class, () -> roleService.updateRole(2, new UpdateRoleRequest("r2", null, 3L, null)));
+
+    assertEquals(HttpStatus.CONFLICT, e.getStatus());
+    assertTrue(db.log.contains("rollback"));
+    assertTrue(db.log.stream().noneMatch(s -> s.contains("batch(")), db.log.toString());
+    assertEquals(1, planner.getStats().conflicts());
+  }
+
+  @Test
+  void testDuplicateNameIsCheckedInDatabase() {
+    nameExists = true;
+
+    final ApiException e = assertThrows(ApiException.class, () -> roleService.updateRole(4, new UpdateRoleRequest("r1", null, 2L, null)));
+
+    assertEquals(HttpStatus.CONFLICT, e.getStatus());
+    assertTrue(db.log.contains("tx:query select exists(select 1 from role where name = ?)"), db.log.toString());
+    assertTrue(db.log.contains("rollback"));
+  }
+
+  @Test
+  void testRefusesToJoinExistingTransaction() {
+    final TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(db.dataSource()));
+
+    assertThrows(IllegalStateException.class, () -> tx.executeWithoutResult(status ->
+      planner.execute(new RoleMutationPlanner.UpdatePlan(new Role(), "1.2", null))
+    ));
+  }
+
+  private List<Map<String, Object>> query(final String sql, final List<Object> params) {
+    if (sql.startsWith("select id, name, authorities")) {
+      final List<Map<String, Object>> rows = new ArrayList<>();
+
+      fullPaths.forEach((id, fullPath) -> {
+        final Map<String, Object> row = new LinkedHashMap<>();
+        final String[] ids = fullPath.split("\\.");
+
+        row.put("id", id);
+        row.put("name", "r" + id);
+        row.put("authorities", "user");
+        row.put("parent_id", ids.length > 1 ? Long.parseLong(ids[ids.length - 2]) : null);
+        row.put("parent_name", null);
+        row.put("full_path", fullPath);
+        row.put("updated_at", null);
+        row.put("remark", null);
+        rows.add(row);
+      });
+
+      return rows;
+    }
+
+    if (sql.startsWith("select full_path from role where id = ? for update")) {
+      final Map<String, Object> row = new LinkedHashMap<>();
+      row.put("full_path", fullPaths.get(((Number) params.get(0)).longValue()));
+
+      return List.of(row);
+    }
+
+    if (sql.startsWith("select exists(select 1 from role where name = ?)")) {
+      final Map<String, Object> row = new LinkedHashMap<>();
+      row.put("exists", nameExists);
+
+      return List.of(row);
+    }
+
+    return null;
+  }
+}
@@ -0,0 +1,60 @@
+package net.wuxianjie.springbootweb.role;
+
+import net.wuxianjie.springbootweb.role.dto.RoleBaseInfo;
+import net.wuxianjie.springbootweb.role.dto.RoleItemResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoleTreeTest {
+
+  private final RoleTree tree = RoleTree.of(List.of(
+    role(12, 2L, "1.2.12"),
+    role(1, null, "1"),
+    role(2, 1L, "1.2"),
+    role(20, 1L, "1.20"),
+    role(21, 2L, "1.2.21"),
+    role(121, 12L, "1.2.12.121")
+  ));
+
+  @Test
+  void testSubordinate() {
+    assertTrue(tree.isSubordinate(1, 121));
+    assertTrue(tree.isSubordinate(2, 12));
+    assertFalse(tree.isSubordinate(2, 2));
+    assertFalse(tree.isSubordinate(2, 20));
+    assertFalse(tree.isSubordinate(12, 2));
+    assertFalse(tree.isSubordinate(2, 999));
+
+    assertTrue(tree.isSelfOrSubordinate(2, 2));
+    assertTrue(tree.isSelfOrSubordinate(2, 121));
+    assertFalse(tree.isSelfOrSubordinate(999, 999));
+  }
+
+  @Test
+  void testSelfAndSubordinatesOrderedByFullPath() {
+    assertEquals(List.of(2L, 12L, 121L, 21L), ids(tree.getSelfAndSubordinates(2)));
+    assertEquals(List.of(20L), ids(tree.getSelfAndSubordinates(20)));
+    assertEquals(6, tree.getSelfAndSubordinates(1).size());
+    assertTrue(tree.getSelfAndSubordinates(999).isEmpty());
+  }
+
+  @Test
+  void testFindReturnsCopy() {
+    final RoleBaseInfo role = tree.find(12).orElseThrow();
+    role.getAuthorities().add("root");
+
+    assertEquals(List.of("user"), tree.find(12).orElseThrow().getAuthorities());
+    assertEquals("1.2.12", tree.getFullPath(12).orElseThrow());
+  }
+
+  private static List<Long> ids(final List<RoleItemResponse> roles) {
+    return roles.stream().map(RoleItemResponse::getId).toList();
+  }
+
+  private static RoleBaseInfo role(final long id, final Long parentId, final String fullPath) {
+    return new RoleBaseInfo(id, "r" + id, "user", parentId, parentId == null ? null : "r" + parentId, fullPath, null, null);
+  }
+}
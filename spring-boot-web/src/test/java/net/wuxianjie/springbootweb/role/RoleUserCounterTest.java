@@ -0,0 +1,112 @@
+package net.wuxianjie.springbootweb.role;
+
+import net.wuxianjie.springbootweb.auth.AuthProps;
+import net.wuxianjie.springbootweb.role.dto.RoleBaseInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoleUserCounterTest {
+
+  private final List<RoleBaseInfo> roles = new ArrayList<>(List.of(
+    role(1, null, "1"),
+    role(2, 1L, "1.2"),
+    role(3, 2L, "1.2.3"),
+    role(4, 1L, "1.4")
+  ));
+
+  private final AtomicInteger countQueries = new AtomicInteger();
+
+  private RoleTreeCache treeCache;
+  private RoleUserCounter counter;
+
+  @BeforeEach
+  void setUp() {
+    final RoleMapper mapper = (RoleMapper) Proxy.newProxyInstance(
+      RoleMapper.class.getClassLoader(),
+      new Class<?>[]{RoleMapper.class},
+      (proxy, method, args) -> switch (method.getName()) {
+        case "selectAllBase" -> List.copyOf(roles);
+        case "selectUserCountGroupByRoleId" -> {
+          countQueries.incrementAndGet();
+
+          yield List.of(new RoleMapper.UserCount(1, 1), new RoleMapper.UserCount(3, 2));
+        }
+        default -> throw new UnsupportedOperationException(method.getName());
+      }
+    );
+
+    treeCache = new RoleTreeCache(mapper, new AuthProps());
+    counter = new RoleUserCounter(mapper, treeCache, new AuthProps());
+  }
+
+  @Test
+  void testInitialAggregation() {
+    assertEquals(new RoleUserCounter.Counts(1, 3), counter.get(1));
+    assertEquals(new RoleUserCounter.Counts(0, 2), counter.get(2));
+    assertEquals(new RoleUserCounter.Counts(2, 2), counter.get(3));
+    assertEquals(new RoleUserCounter.Counts(0, 0), counter.get(4));
+    assertEquals(new RoleUserCounter.Counts(0, 0), counter.get(999));
+    assertEquals(1, countQueries.get());
+  }
+
+  @Test
+  void testMembershipChangesUpdateAncestors() {
+    counter.get(1);
+
+    counter.onMembershipChanged(new RoleMembershipChangedEvent(3L, 4L));
+    counter.onMembershipChanged(new RoleMembershipChangedEvent(null, 2L));
+
+    assertEquals(new RoleUserCounter.Counts(1, 4), counter.get(1));
+    assertEquals(new RoleUserCounter.Counts(1, 2), counter.get(2));
+    assertEquals(new RoleUserCounter.Counts(1, 1), counter.get(3));
+    assertEquals(new RoleUserCounter.Counts(1, 1), counter.get(4));
+
+    counter.onMembershipChanged(new RoleMembershipChangedEvent(4L, null));
+
+    assertEquals(new RoleUserCounter.Counts(1, 3), counter.get(1));
+    assertEquals(new RoleUserCounter.Counts(0, 0), counter.get(4));
+    assertEquals(1, countQueries.get());
+  }
+
+  @Test
+  void testRoleMoveReaggregatesInMemory() {
+    counter.get(1);
+    counter.onMembershipChanged(new RoleMembershipChangedEvent(null, 2L));
+
+    // 将角色 2 及其下级移至角色 4 下
+    roles.set(1, role(2, 4L, "1.4.2"));
+    roles.set(2, role(3, 2L, "1.4.2.3"));
+    treeCache.onRoleTreeChanged(new RoleTreeChangedEvent());
+
+    assertEquals(new RoleUserCounter.Counts(1, 4), counter.get(1));
+    assertEquals(new RoleUserCounter.Counts(0, 3), counter.get(4));
+    assertEquals(new RoleUserCounter.Counts(1, 3), counter.get(2));
+    assertEquals(1, countQueries.get());
+  }
+
+  @Test
+  void testAddUserToNewRoleBeforeRead() {
+    counter.get(1);
+
+    // 新增角色后，在任何读取之前即向其添加用户
+    roles.add(role(5, 3L, "1.2.3.5"));
+    treeCache.onRoleTreeChanged(new RoleTreeChangedEvent());
+    counter.onMembershipChanged(new RoleMembershipChangedEvent(null, 5L));
+
+    assertEquals(new RoleUserCounter.Counts(1, 1), counter.get(5));
+    assertEquals(new RoleUserCounter.Counts(2, 3), counter.get(3));
+    assertEquals(new RoleUserCounter.Counts(1, 4), counter.get(1));
+    assertEquals(1, countQueries.get());
+  }
+
+  private static RoleBaseInfo role(final long id, final Long parentId, final String fullPath) {
+    return new RoleBaseInfo(id, "r" + id, "user", parentId, null, fullPath, null, null);
+  }
+}
@@ -0,0 +1,61 @@
+package net.wuxianjie.springbootweb.shared.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+  @Test
+  void testBurstThenRefill() {
+    final long start = 1_000_000_000L;
+    final TokenBucket bucket = new TokenBucket(3, 2, start);
+
+    assertTrue(bucket.isFull(start));
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, bucket.tryAcquire(start));
+    }
+
+    assertFalse(bucket.isFull(start));
+
+    final long waitNanos = bucket.tryAcquire(start);
+
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(500), waitNanos);
+
+    // 等待后恰好补充一个令牌
+    assertEquals(0, bucket.tryAcquire(start + waitNanos));
+    assertTrue(bucket.tryAcquire(start + waitNanos) > 0);
+
+    // 空闲足够久后恢复为满
+    assertTrue(bucket.isFull(start + TimeUnit.SECONDS.toNanos(2)));
+  }
+
+  @Test
+  void testConcurrentAcquireNeverExceedsCapacity() throws InterruptedException {
+    final long now = System.nanoTime();
+    final TokenBucket bucket = new TokenBucket(1000, 0.001, now);
+    final AtomicInteger granted = new AtomicInteger();
+    final Thread[] threads = new Thread[8];
+
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < 500; j++) {
+          if (bucket.tryAcquire(now) == 0) {
+            granted.incrementAndGet();
+          }
+        }
+      });
+      threads[i].start();
+    }
+
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(1000, granted.get());
+  }
+}